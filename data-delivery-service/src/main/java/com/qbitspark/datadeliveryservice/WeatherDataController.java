@@ -209,6 +209,16 @@ public class WeatherDataController {
 
             return ResponseEntity.ok(response);
 
+        } catch (IllegalArgumentException e) {
+            log.warn("⚠️  Rejected search request: {}", e.getMessage());
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("status", "ERROR");
+            response.put("message", "Search failed: " + e.getMessage());
+            response.put("timestamp", LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+
+            return ResponseEntity.badRequest().body(response);
+
         } catch (Exception e) {
             log.error("❌ Error searching weather data", e);
 
@@ -245,6 +255,16 @@ public class WeatherDataController {
 
             return ResponseEntity.ok(response);
 
+        } catch (IllegalArgumentException e) {
+            log.warn("⚠️  Rejected export request: {}", e.getMessage());
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("status", "ERROR");
+            response.put("message", "Export failed: " + e.getMessage());
+            response.put("timestamp", LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+
+            return ResponseEntity.badRequest().body(response);
+
         } catch (Exception e) {
             log.error("❌ Error exporting to CSV", e);
 
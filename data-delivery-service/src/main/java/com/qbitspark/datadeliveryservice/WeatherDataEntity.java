@@ -8,8 +8,8 @@ import lombok.NoArgsConstructor;
 import java.time.LocalDateTime;
 
 @Entity
+// Partitioned by month on timestamp; the storage service owns the schema
 @Table(name = "weather_data", indexes = {
-        @Index(name = "idx_city", columnList = "city"),
         @Index(name = "idx_timestamp", columnList = "timestamp"),
         @Index(name = "idx_city_timestamp", columnList = "city, timestamp")
 })
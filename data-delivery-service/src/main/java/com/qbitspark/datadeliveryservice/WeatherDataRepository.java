@@ -3,15 +3,17 @@ package com.qbitspark.datadeliveryservice;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
-import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
-public interface WeatherDataRepository extends JpaRepository<WeatherDataEntity, Long> {
+// Filtered searches go through JpaSpecificationExecutor, see WeatherDataSpecifications
+public interface WeatherDataRepository extends JpaRepository<WeatherDataEntity, Long>,
+        JpaSpecificationExecutor<WeatherDataEntity> {
 
     // Basic city queries
     List<WeatherDataEntity> findByCity(String city);
@@ -54,21 +56,6 @@ public interface WeatherDataRepository extends JpaRepository<WeatherDataEntity,
     // Wind speed queries
     List<WeatherDataEntity> findByWindSpeedGreaterThan(Double windSpeed);
 
-    // Complex filtering - you can extend this for more advanced searches
-    @Query("SELECT w FROM WeatherDataEntity w WHERE " +
-            "(:city IS NULL OR w.city = :city) AND " +
-            "(:startDate IS NULL OR w.timestamp >= :startDate) AND " +
-            "(:endDate IS NULL OR w.timestamp <= :endDate) AND " +
-            "(:minTemp IS NULL OR w.temperature >= :minTemp) AND " +
-            "(:maxTemp IS NULL OR w.temperature <= :maxTemp)")
-    Page<WeatherDataEntity> findWithFilters(
-            @Param("city") String city,
-            @Param("startDate") LocalDateTime startDate,
-            @Param("endDate") LocalDateTime endDate,
-            @Param("minTemp") Double minTemp,
-            @Param("maxTemp") Double maxTemp,
-            Pageable pageable);
-
     // Get distinct cities
     @Query("SELECT DISTINCT w.city FROM WeatherDataEntity w ORDER BY w.city")
     List<String> findDistinctCities();
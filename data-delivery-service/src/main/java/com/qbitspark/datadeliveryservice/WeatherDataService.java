@@ -13,15 +13,21 @@ import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 @Service
 @Slf4j
 public class WeatherDataService {
 
+    // Exports are built in one String, so every export path reads at most this many rows
+    private static final int EXPORT_LIMIT = 1000;
+
     @Autowired
     private WeatherDataRepository weatherDataRepository;
 
+    // Daily per-city rollups kept by the storage service; statistics read these, not the readings
+    @Autowired
+    private WeatherRollupRepository weatherRollupRepository;
+
     public long getTotalRecords() {
         return weatherDataRepository.count();
     }
@@ -29,13 +35,7 @@ public class WeatherDataService {
     public List<String> getAllCities() {
         log.info("🏙️  Fetching all distinct cities");
 
-        // Get a sample of records and extract unique cities
-        List<WeatherDataEntity> allRecords = weatherDataRepository.findAll();
-        List<String> cities = allRecords.stream()
-                .map(WeatherDataEntity::getCity)
-                .distinct()
-                .sorted()
-                .collect(Collectors.toList());
+        List<String> cities = weatherRollupRepository.findDistinctCities();
 
         log.info("✅ Found {} unique cities", cities.size());
         return cities;
@@ -61,30 +61,27 @@ public class WeatherDataService {
         Map<String, Object> stats = new HashMap<>();
 
         try {
+            List<WeatherRollupRepository.CitySummary> summaries = weatherRollupRepository.summarizeByCity();
+
             // Total records
-            long totalRecords = weatherDataRepository.count();
+            long totalRecords = summaries.stream().mapToLong(WeatherRollupRepository.CitySummary::getReadings).sum();
             stats.put("totalRecords", totalRecords);
 
-            // Get all cities
-            List<String> cities = getAllCities();
+            List<String> cities = summaries.stream().map(WeatherRollupRepository.CitySummary::getCity).toList();
             stats.put("totalCities", cities.size());
             stats.put("cities", cities);
 
-            // Get some sample data for calculations
-            List<WeatherDataEntity> sampleData = weatherDataRepository.findAll();
-
-            if (!sampleData.isEmpty()) {
+            if (totalRecords > 0) {
                 // Temperature statistics
-                double avgTemp = sampleData.stream()
-                        .mapToDouble(WeatherDataEntity::getTemperature)
-                        .average()
-                        .orElse(0.0);
-                double minTemp = sampleData.stream()
-                        .mapToDouble(WeatherDataEntity::getTemperature)
+                double avgTemp = summaries.stream()
+                        .mapToDouble(WeatherRollupRepository.CitySummary::getTemperatureSum)
+                        .sum() / totalRecords;
+                double minTemp = summaries.stream()
+                        .mapToDouble(WeatherRollupRepository.CitySummary::getTemperatureMin)
                         .min()
                         .orElse(0.0);
-                double maxTemp = sampleData.stream()
-                        .mapToDouble(WeatherDataEntity::getTemperature)
+                double maxTemp = summaries.stream()
+                        .mapToDouble(WeatherRollupRepository.CitySummary::getTemperatureMax)
                         .max()
                         .orElse(0.0);
 
@@ -95,13 +92,10 @@ public class WeatherDataService {
                 ));
 
                 // Rainfall statistics
-                double totalRainfall = sampleData.stream()
-                        .mapToDouble(WeatherDataEntity::getRainfall)
+                double totalRainfall = summaries.stream()
+                        .mapToDouble(WeatherRollupRepository.CitySummary::getRainfallSum)
                         .sum();
-                double avgRainfall = sampleData.stream()
-                        .mapToDouble(WeatherDataEntity::getRainfall)
-                        .average()
-                        .orElse(0.0);
+                double avgRainfall = totalRainfall / totalRecords;
 
                 stats.put("rainfall", Map.of(
                         "total", Math.round(totalRainfall * 100.0) / 100.0,
@@ -109,21 +103,20 @@ public class WeatherDataService {
                 ));
 
                 // Humidity statistics
-                double avgHumidity = sampleData.stream()
-                        .mapToDouble(WeatherDataEntity::getHumidity)
-                        .average()
-                        .orElse(0.0);
+                double avgHumidity = summaries.stream()
+                        .mapToDouble(WeatherRollupRepository.CitySummary::getHumiditySum)
+                        .sum() / totalRecords;
 
                 stats.put("humidity", Map.of(
                         "average", Math.round(avgHumidity * 100.0) / 100.0
                 ));
 
                 // Record counts
-                long hotDays = sampleData.stream()
-                        .mapToLong(data -> data.getTemperature() > 30.0 ? 1 : 0)
+                long hotDays = summaries.stream()
+                        .mapToLong(WeatherRollupRepository.CitySummary::getHotReadings)
                         .sum();
-                long rainyDays = sampleData.stream()
-                        .mapToLong(data -> data.getRainfall() > 0.1 ? 1 : 0)
+                long rainyDays = summaries.stream()
+                        .mapToLong(WeatherRollupRepository.CitySummary::getRainyReadings)
                         .sum();
 
                 stats.put("counts", Map.of(
@@ -132,21 +125,19 @@ public class WeatherDataService {
                 ));
 
                 // Date range
-                if (!sampleData.isEmpty()) {
-                    LocalDateTime earliest = sampleData.stream()
-                            .map(WeatherDataEntity::getTimestamp)
-                            .min(LocalDateTime::compareTo)
-                            .orElse(null);
-                    LocalDateTime latest = sampleData.stream()
-                            .map(WeatherDataEntity::getTimestamp)
-                            .max(LocalDateTime::compareTo)
-                            .orElse(null);
-
-                    stats.put("dateRange", Map.of(
-                            "earliest", earliest != null ? earliest.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME) : "unknown",
-                            "latest", latest != null ? latest.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME) : "unknown"
-                    ));
-                }
+                LocalDateTime earliest = summaries.stream()
+                        .map(WeatherRollupRepository.CitySummary::getFirstReading)
+                        .min(LocalDateTime::compareTo)
+                        .orElse(null);
+                LocalDateTime latest = summaries.stream()
+                        .map(WeatherRollupRepository.CitySummary::getLastReading)
+                        .max(LocalDateTime::compareTo)
+                        .orElse(null);
+
+                stats.put("dateRange", Map.of(
+                        "earliest", earliest != null ? earliest.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME) : "unknown",
+                        "latest", latest != null ? latest.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME) : "unknown"
+                ));
             }
 
             stats.put("status", "SUCCESS");
@@ -166,39 +157,33 @@ public class WeatherDataService {
         log.info("🔍 Searching with filters: city={}, dates={}-{}, temp={}-{}",
                 city, startDate, endDate, minTemp, maxTemp);
 
-        // For simplicity, we'll implement basic filtering
-        // In a real production system, you'd use Spring Data JPA Specifications or custom queries
-
-        if (city != null && !city.trim().isEmpty()) {
-            return weatherDataRepository.findByCity(city, pageable);
-        }
-
-        if (minTemp != null && maxTemp != null) {
-            return weatherDataRepository.findByTemperatureBetween(minTemp, maxTemp, pageable);
-        }
-
-        if (minTemp != null) {
-            return weatherDataRepository.findByTemperatureGreaterThanEqual(minTemp, pageable);
-        }
-
-        if (maxTemp != null) {
-            return weatherDataRepository.findByTemperatureLessThanEqual(maxTemp, pageable);
-        }
-
-        // If no specific filters, return all
-        return weatherDataRepository.findAll(pageable);
+        // Only the given filters end up in the WHERE clause, so a date range prunes partitions
+        return weatherDataRepository.findAll(WeatherDataSpecifications.matching(
+                city,
+                WeatherDataSpecifications.parseStart(startDate),
+                WeatherDataSpecifications.parseEnd(endDate),
+                minTemp, maxTemp), pageable);
     }
 
     public String exportToCsv(String city, String startDate, String endDate) {
         log.info("📁 Exporting data to CSV: city={}, dates={}-{}", city, startDate, endDate);
 
         List<WeatherDataEntity> data;
-
-        if (city != null && !city.trim().isEmpty()) {
-            data = weatherDataRepository.findByCity(city);
+        LocalDateTime from = WeatherDataSpecifications.parseStart(startDate);
+        LocalDateTime until = WeatherDataSpecifications.parseEnd(endDate);
+
+        if (from != null || until != null) {
+            // Bounded by the date range, which only reads the partitions it covers; still capped
+            // because the whole export is built in memory
+            Pageable pageable = PageRequest.of(0, EXPORT_LIMIT, Sort.by(Sort.Direction.ASC, "timestamp"));
+            data = weatherDataRepository.findAll(
+                    WeatherDataSpecifications.matching(city, from, until, null, null), pageable).getContent();
+        } else if (city != null && !city.trim().isEmpty()) {
+            Pageable pageable = PageRequest.of(0, EXPORT_LIMIT, Sort.by(Sort.Direction.DESC, "timestamp"));
+            data = weatherDataRepository.findByCity(city, pageable).getContent();
         } else {
             // Limit export to avoid memory issues
-            Pageable pageable = PageRequest.of(0, 1000, Sort.by(Sort.Direction.DESC, "timestamp"));
+            Pageable pageable = PageRequest.of(0, EXPORT_LIMIT, Sort.by(Sort.Direction.DESC, "timestamp"));
             data = weatherDataRepository.findAll(pageable).getContent();
         }
 
@@ -228,19 +213,19 @@ public class WeatherDataService {
     public Map<String, Object> getCityStatistics(String cityName) {
         log.info("📊 Calculating statistics for city: {}", cityName);
 
-        List<WeatherDataEntity> cityData = weatherDataRepository.findByCity(cityName);
+        WeatherRollupRepository.CitySummary summary = weatherRollupRepository.summarizeCity(cityName).orElse(null);
 
-        if (cityData.isEmpty()) {
+        if (summary == null) {
             return Map.of("status", "ERROR", "message", "No data found for city: " + cityName);
         }
 
         Map<String, Object> stats = new HashMap<>();
         stats.put("city", cityName);
-        stats.put("recordCount", cityData.size());
+        stats.put("recordCount", summary.getReadings());
 
-        double avgTemp = cityData.stream().mapToDouble(WeatherDataEntity::getTemperature).average().orElse(0.0);
-        double avgHumidity = cityData.stream().mapToDouble(WeatherDataEntity::getHumidity).average().orElse(0.0);
-        double totalRainfall = cityData.stream().mapToDouble(WeatherDataEntity::getRainfall).sum();
+        double avgTemp = summary.getTemperatureSum() / summary.getReadings();
+        double avgHumidity = summary.getHumiditySum() / summary.getReadings();
+        double totalRainfall = summary.getRainfallSum();
 
         stats.put("averageTemperature", Math.round(avgTemp * 100.0) / 100.0);
         stats.put("averageHumidity", Math.round(avgHumidity * 100.0) / 100.0);
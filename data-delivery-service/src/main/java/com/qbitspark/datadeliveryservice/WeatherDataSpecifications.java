@@ -0,0 +1,71 @@
+package com.qbitspark.datadeliveryservice;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+// Search filters built only from the criteria that are present. weather_data is partitioned by
+// month on timestamp, and a plain "timestamp >= ? AND timestamp < ?" lets PostgreSQL skip the
+// partitions outside the range; "(? IS NULL OR timestamp >= ?)" style optional filters do not.
+public final class WeatherDataSpecifications {
+
+    private WeatherDataSpecifications() {
+    }
+
+    public static Specification<WeatherDataEntity> matching(String city, LocalDateTime from, LocalDateTime until,
+                                                            Double minTemp, Double maxTemp) {
+        List<Specification<WeatherDataEntity>> filters = new ArrayList<>();
+        if (city != null && !city.trim().isEmpty()) {
+            filters.add((root, query, cb) -> cb.equal(root.get("city"), city));
+        }
+        if (from != null) {
+            filters.add((root, query, cb) -> cb.greaterThanOrEqualTo(root.get("timestamp"), from));
+        }
+        if (until != null) {
+            filters.add((root, query, cb) -> cb.lessThan(root.get("timestamp"), until));
+        }
+        if (minTemp != null) {
+            filters.add((root, query, cb) -> cb.greaterThanOrEqualTo(root.get("temperature"), minTemp));
+        }
+        if (maxTemp != null) {
+            filters.add((root, query, cb) -> cb.lessThanOrEqualTo(root.get("temperature"), maxTemp));
+        }
+        return Specification.allOf(filters);
+    }
+
+    // Start of a range: "2024-05-01" or "2024-05-01T06:00"
+    public static LocalDateTime parseStart(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            return LocalDateTime.parse(value.trim());
+        } catch (DateTimeParseException e) {
+            return parseDate(value).atStartOfDay();
+        }
+    }
+
+    // Exclusive end of a range; a plain date includes that whole day
+    public static LocalDateTime parseEnd(String value) {
+        if (value == null || value.trim().isEmpty()) {
+            return null;
+        }
+        try {
+            return LocalDateTime.parse(value.trim());
+        } catch (DateTimeParseException e) {
+            return parseDate(value).plusDays(1).atStartOfDay();
+        }
+    }
+
+    private static LocalDate parseDate(String value) {
+        try {
+            return LocalDate.parse(value.trim());
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid date '" + value + "', expected yyyy-MM-dd or yyyy-MM-ddTHH:mm", e);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.qbitspark.datadeliveryservice;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface WeatherRollupRepository extends JpaRepository<WeatherRollupEntity, WeatherRollupEntity.Key> {
+
+    // Totals of one city over all its daily rollups
+    interface CitySummary {
+        String getCity();
+        Long getReadings();
+        Double getTemperatureSum();
+        Double getTemperatureMin();
+        Double getTemperatureMax();
+        Double getHumiditySum();
+        Double getRainfallSum();
+        Long getHotReadings();
+        Long getRainyReadings();
+        LocalDateTime getFirstReading();
+        LocalDateTime getLastReading();
+    }
+
+    @Query("SELECT r.city AS city, SUM(r.readings) AS readings, SUM(r.temperatureSum) AS temperatureSum, "
+            + "MIN(r.temperatureMin) AS temperatureMin, MAX(r.temperatureMax) AS temperatureMax, "
+            + "SUM(r.humiditySum) AS humiditySum, SUM(r.rainfallSum) AS rainfallSum, "
+            + "SUM(r.hotReadings) AS hotReadings, SUM(r.rainyReadings) AS rainyReadings, "
+            + "MIN(r.firstReading) AS firstReading, MAX(r.lastReading) AS lastReading "
+            + "FROM WeatherRollupEntity r GROUP BY r.city ORDER BY r.city")
+    List<CitySummary> summarizeByCity();
+
+    @Query("SELECT r.city AS city, SUM(r.readings) AS readings, SUM(r.temperatureSum) AS temperatureSum, "
+            + "MIN(r.temperatureMin) AS temperatureMin, MAX(r.temperatureMax) AS temperatureMax, "
+            + "SUM(r.humiditySum) AS humiditySum, SUM(r.rainfallSum) AS rainfallSum, "
+            + "SUM(r.hotReadings) AS hotReadings, SUM(r.rainyReadings) AS rainyReadings, "
+            + "MIN(r.firstReading) AS firstReading, MAX(r.lastReading) AS lastReading "
+            + "FROM WeatherRollupEntity r WHERE r.city = :city GROUP BY r.city")
+    Optional<CitySummary> summarizeCity(@Param("city") String city);
+
+    @Query("SELECT DISTINCT r.city FROM WeatherRollupEntity r ORDER BY r.city")
+    List<String> findDistinctCities();
+}
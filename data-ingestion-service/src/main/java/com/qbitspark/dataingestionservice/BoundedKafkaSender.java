@@ -0,0 +1,112 @@
+package com.qbitspark.dataingestionservice;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+
+// Wraps KafkaTemplate.send with a bounded in-flight window. A send takes one record permit
+// and one permit per value byte before it is handed to the producer; both are returned when
+// the broker acknowledges or rejects it. Readers therefore block here, at a predictable point,
+// instead of filling buffer-memory and keeping millions of pending futures on the heap.
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class BoundedKafkaSender {
+
+    private final KafkaTemplate<String, byte[]> kafkaTemplate;
+
+    @Value("${app.kafka.producer.max-in-flight-records:20000}")
+    private int maxInFlightRecords;
+
+    // Keep below spring.kafka.producer.buffer-memory so send() itself never blocks on it
+    @Value("${app.kafka.producer.max-in-flight-bytes:16777216}")
+    private int maxInFlightBytes;
+
+    private Semaphore recordPermits;
+    private Semaphore bytePermits;
+
+    private final LongAdder queued = new LongAdder();
+    private final LongAdder acknowledged = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    @PostConstruct
+    void init() {
+        recordPermits = new Semaphore(maxInFlightRecords);
+        bytePermits = new Semaphore(maxInFlightBytes);
+        log.info("Kafka sends limited to {} records / {} bytes in flight", maxInFlightRecords, maxInFlightBytes);
+    }
+
+    public CompletableFuture<SendResult<String, byte[]>> send(ProducerRecord<String, byte[]> producerRecord) {
+        // A single message larger than the byte window still goes out, alone
+        int bytes = Math.min(producerRecord.value().length, maxInFlightBytes);
+
+        try {
+            recordPermits.acquire();
+            try {
+                bytePermits.acquire(bytes);
+            } catch (InterruptedException e) {
+                recordPermits.release();
+                throw e;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for Kafka send capacity", e);
+        }
+
+        queued.increment();
+        CompletableFuture<SendResult<String, byte[]>> future;
+        try {
+            future = kafkaTemplate.send(producerRecord);
+        } catch (RuntimeException e) {
+            release(bytes);
+            failed.increment();
+            throw e;
+        }
+
+        return future.whenComplete((result, ex) -> {
+            release(bytes);
+            if (ex != null) {
+                failed.increment();
+            } else {
+                acknowledged.increment();
+            }
+        });
+    }
+
+    // Blocks until every record handed to the producer so far has completed
+    public void flush() {
+        kafkaTemplate.flush();
+    }
+
+    private void release(int bytes) {
+        bytePermits.release(bytes);
+        recordPermits.release();
+    }
+
+    public long getInFlight() {
+        return maxInFlightRecords - recordPermits.availablePermits();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("queued", queued.sum());
+        stats.put("acknowledged", acknowledged.sum());
+        stats.put("failed", failed.sum());
+        stats.put("inFlightRecords", getInFlight());
+        stats.put("inFlightBytes", maxInFlightBytes - bytePermits.availablePermits());
+        stats.put("maxInFlightRecords", maxInFlightRecords);
+        stats.put("maxInFlightBytes", maxInFlightBytes);
+        return stats;
+    }
+}
@@ -0,0 +1,62 @@
+package com.qbitspark.dataingestionservice;
+
+import java.util.concurrent.ConcurrentSkipListSet;
+
+// Send progress of one line-aligned byte range of a CSV file. The committed offset is the
+// start of the oldest line Kafka has not acknowledged yet, or the end of the last line read
+// once everything before it is acknowledged, so resuming from it never skips a record.
+public class ChunkProgress {
+
+    private final int index;
+    private final long start;
+    private final long end;
+
+    // Start offsets of lines handed to Kafka but not yet acknowledged
+    private final ConcurrentSkipListSet<Long> pending = new ConcurrentSkipListSet<>();
+    private volatile long readOffset;
+
+    public ChunkProgress(int index, long start, long end, long resumeOffset) {
+        this.index = index;
+        this.start = start;
+        this.end = end;
+        this.readOffset = resumeOffset;
+    }
+
+    public void submitted(long lineStart, long nextLineStart) {
+        pending.add(lineStart);
+        readOffset = nextLineStart;
+    }
+
+    // Line that produced no message (e.g. malformed), nothing to wait for
+    public void skipped(long nextLineStart) {
+        readOffset = nextLineStart;
+    }
+
+    public void acknowledged(long lineStart) {
+        pending.remove(lineStart);
+    }
+
+    public long committedOffset() {
+        // Read the offset before looking at pending lines: a line submitted in between can only
+        // make the answer more conservative, never skip it
+        long read = readOffset;
+        Long oldestPending = pending.ceiling(Long.MIN_VALUE);
+        return oldestPending != null ? oldestPending : read;
+    }
+
+    public boolean isComplete() {
+        return committedOffset() >= end;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public long getStart() {
+        return start;
+    }
+
+    public long getEnd() {
+        return end;
+    }
+}
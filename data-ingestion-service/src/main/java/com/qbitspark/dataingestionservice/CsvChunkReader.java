@@ -0,0 +1,147 @@
+package com.qbitspark.dataingestionservice;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+// Splits a CSV file into line-aligned byte ranges and walks the lines of each range
+// through a memory-mapped view, so every range can be handled by its own worker.
+public final class CsvChunkReader {
+
+    // A MappedByteBuffer is int-indexed, so no single range may exceed this size
+    static final long MAX_CHUNK_BYTES = 1L << 30;
+
+    private static final int BOUNDARY_SCAN_BYTES = 8192;
+
+    private CsvChunkReader() {
+    }
+
+    // Byte range [start, end) of the file; start is always the first byte of a line
+    public record Chunk(int index, long start, long end) {
+        public long length() {
+            return end - start;
+        }
+    }
+
+    @FunctionalInterface
+    public interface LineHandler {
+        // Line content is buffer[start, end) without the line terminator; the next line starts at next.
+        // Buffer indexes are relative to the chunk start.
+        void onLine(ByteBuffer buffer, int start, int end, int next);
+    }
+
+    public static List<Chunk> split(FileChannel channel, int parallelism, boolean skipHeader) throws IOException {
+        long fileSize = channel.size();
+        long dataStart = skipHeader ? nextLineStart(channel, 0, fileSize) : 0;
+        long dataLength = fileSize - dataStart;
+
+        List<Chunk> chunks = new ArrayList<>();
+        if (dataLength <= 0) {
+            return chunks;
+        }
+
+        // Never map more than MAX_CHUNK_BYTES at once, even with low parallelism. Each range is
+        // extended to the end of its last line, so leave room for one line beyond the target size
+        long maxTargetSize = MAX_CHUNK_BYTES - BOUNDARY_SCAN_BYTES;
+        long minChunks = (dataLength + maxTargetSize - 1) / maxTargetSize;
+        int chunkCount = (int) Math.max(Math.max(parallelism, 1), minChunks);
+        long targetSize = Math.max(1, dataLength / chunkCount);
+
+        long start = dataStart;
+        while (start < fileSize) {
+            long end = chunks.size() == chunkCount - 1
+                    ? fileSize
+                    : nextLineStart(channel, Math.min(start + targetSize, fileSize) - 1, fileSize);
+            // Guard against a single line longer than the mapping limit
+            if (end - start > MAX_CHUNK_BYTES) {
+                throw new IOException("CSV range starting at byte " + start + " exceeds " + MAX_CHUNK_BYTES + " bytes");
+            }
+            chunks.add(new Chunk(chunks.size(), start, end));
+            start = end;
+        }
+        return chunks;
+    }
+
+    // Calls the handler for every line in the chunk, in file order. Returns the number of lines seen.
+    public static long readLines(FileChannel channel, Chunk chunk, LineHandler handler) throws IOException {
+        if (chunk.length() == 0) {
+            return 0;
+        }
+
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, chunk.start(), chunk.length());
+        int limit = buffer.limit();
+        int lineStart = 0;
+        long lines = 0;
+
+        for (int i = 0; i < limit; i++) {
+            if (buffer.get(i) == '\n') {
+                handler.onLine(buffer, lineStart, trimCarriageReturn(buffer, lineStart, i), i + 1);
+                lines++;
+                lineStart = i + 1;
+            }
+        }
+
+        // Last line of the file may not be terminated
+        if (lineStart < limit) {
+            handler.onLine(buffer, lineStart, trimCarriageReturn(buffer, lineStart, limit), limit);
+            lines++;
+        }
+        return lines;
+    }
+
+    // Offset just past the last '\n' in [start, end), or start if the range holds no complete line.
+    // Used when following a file that is still being appended to.
+    public static long completeLinesEnd(FileChannel channel, long start, long end) throws IOException {
+        ByteBuffer scan = ByteBuffer.allocate(BOUNDARY_SCAN_BYTES);
+        long offset = end;
+
+        while (offset > start) {
+            int length = (int) Math.min(BOUNDARY_SCAN_BYTES, offset - start);
+            scan.clear().limit(length);
+            long position = offset - length;
+            int read = 0;
+            while (read < length) {
+                int n = channel.read(scan, position + read);
+                if (n <= 0) {
+                    break;
+                }
+                read += n;
+            }
+            for (int i = read - 1; i >= 0; i--) {
+                if (scan.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            offset = position;
+        }
+        return start;
+    }
+
+    private static int trimCarriageReturn(ByteBuffer buffer, int start, int end) {
+        return end > start && buffer.get(end - 1) == '\r' ? end - 1 : end;
+    }
+
+    // Offset of the first byte after the next '\n' at or after position, or fileSize if there is none
+    static long nextLineStart(FileChannel channel, long position, long fileSize) throws IOException {
+        ByteBuffer scan = ByteBuffer.allocate(BOUNDARY_SCAN_BYTES);
+        long offset = Math.max(position, 0);
+
+        while (offset < fileSize) {
+            scan.clear();
+            int read = channel.read(scan, offset);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (scan.get(i) == '\n') {
+                    return offset + i + 1;
+                }
+            }
+            offset += read;
+        }
+        return fileSize;
+    }
+}
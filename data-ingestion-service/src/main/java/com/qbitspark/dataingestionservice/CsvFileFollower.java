@@ -0,0 +1,275 @@
+package com.qbitspark.dataingestionservice;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Follow mode: publishes only the complete lines appended to a CSV file since the last read.
+// The directory is watched with a WatchService; the poll timeout doubles as a fallback on
+// platforms where watch events are slow. Appended lines are sent in batches of up to
+// max-batch-bytes; after each batch the follower waits for its acknowledgements and persists the
+// offset together with the file identity, so a restart continues after the last acknowledged line
+// (only a crash between an acknowledgement and its checkpoint sends that batch again), and a
+// rotated or truncated file is read again from its first data line.
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class CsvFileFollower {
+
+    private final WeatherDataProducer weatherDataProducer;
+    private final IngestionJobRegistry jobRegistry;
+    private final IngestionCheckpointStore checkpointStore;
+
+    @Value("${app.ingestion.follow.poll-interval-ms:250}")
+    private long pollIntervalMs;
+
+    @Value("${app.ingestion.follow.resume-on-startup:true}")
+    private boolean resumeOnStartup;
+
+    @Value("${app.ingestion.follow.max-batch-bytes:1048576}")
+    private long maxBatchBytes;
+
+    private final Map<Path, IngestionJob> followers = new ConcurrentHashMap<>();
+    private volatile boolean stopping;
+
+    // Followers that were still active when the service stopped are started again
+    @EventListener(ApplicationReadyEvent.class)
+    void resumeFollowers() throws IOException {
+        if (!resumeOnStartup) {
+            return;
+        }
+        for (IngestionCheckpointStore.FollowState state : checkpointStore.listFollowStates()) {
+            if (state.active()) {
+                log.info("Resuming follow of {} at offset {}", state.file(), state.offset());
+                follow(state.file(), false);
+            }
+        }
+    }
+
+    @PreDestroy
+    void stopFollowers() throws InterruptedException {
+        stopping = true;
+        followers.values().forEach(IngestionJob::requestCancel);
+
+        // Give followers time to flush and save their offsets before the producer goes away
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (followers.values().stream().anyMatch(job -> !job.isFinished()) && System.nanoTime() < deadline) {
+            Thread.sleep(50);
+        }
+    }
+
+    // Starts following the file, or returns the job already following it
+    public IngestionJob follow(Path file, boolean fromBeginning) {
+        Path absolute = file.toAbsolutePath().normalize();
+        return followers.compute(absolute, (path, existing) -> existing != null && !existing.isFinished()
+                ? existing
+                : jobRegistry.submitDedicated("follow", path.toString(), 1, job -> run(job, path, fromBeginning)));
+    }
+
+    public List<IngestionJob> getFollowers() {
+        return List.copyOf(followers.values());
+    }
+
+    private void run(IngestionJob job, Path file, boolean fromBeginning) {
+        FollowedFile followed = new FollowedFile(file);
+
+        try (WatchService watcher = file.getFileSystem().newWatchService()) {
+            file.getParent().register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+
+            Optional<IngestionCheckpointStore.FollowState> saved = checkpointStore.loadFollowState(file);
+            followed.restore(saved.orElse(null), fromBeginning);
+            log.info("Following {} from offset {}", file, followed.position);
+
+            while (!job.isCancelRequested()) {
+                boolean sent;
+                try {
+                    sent = followed.readAppended(job);
+                } catch (CancellationException e) {
+                    // Lines already submitted are still tracked by the committed offset
+                    break;
+                }
+
+                if (sent) {
+                    // Checkpoint every acknowledged batch; more may be waiting, so read again right away
+                    weatherDataProducer.awaitAcknowledgements();
+                    followed.checkpoint(true);
+                    continue;
+                }
+
+                WatchKey key = watcher.poll(pollIntervalMs, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    // Any event in the directory triggers a size check; events carry no offsets anyway
+                    key.pollEvents();
+                    key.reset();
+                }
+            }
+
+            weatherDataProducer.awaitAcknowledgements();
+            // A stop caused by shutdown keeps the follower active so it resumes on the next start
+            followed.checkpoint(stopping);
+            log.info("Stopped following {} at offset {}", file, followed.committedOffset());
+            job.finish(IngestionJob.Status.CANCELLED);
+
+        } catch (IOException e) {
+            log.error("Error following CSV file: {}", file, e);
+            throw new RuntimeException("Failed to follow weather data file", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Following weather data file interrupted", e);
+        } finally {
+            followed.close();
+        }
+    }
+
+    // Read state of one followed file. Only touched by its follower thread.
+    private final class FollowedFile {
+        private final Path file;
+        private FileChannel channel;
+        private FileLineIndex lines;
+        private String fileKey;
+        private ChunkProgress progress;
+        private long position;
+
+        private FollowedFile(Path file) {
+            this.file = file;
+        }
+
+        void restore(IngestionCheckpointStore.FollowState saved, boolean fromBeginning) throws IOException {
+            if (!open()) {
+                // Not created yet: start with its first data line once it appears
+                reset(0);
+                return;
+            }
+
+            if (saved != null && Objects.equals(saved.fileKey(), fileKey) && saved.offset() <= channel.size()) {
+                reset(saved.offset());
+            } else if (saved != null || fromBeginning) {
+                // Saved offset belongs to an earlier file under this name
+                reset(0);
+            } else {
+                // Only rows appended from now on
+                reset(CsvChunkReader.completeLinesEnd(channel, 0, channel.size()));
+            }
+        }
+
+        // Returns whether lines were sent
+        boolean readAppended(IngestionJob job) throws IOException {
+            if (channel == null && !open()) {
+                return false;
+            }
+
+            String currentKey = currentFileKey();
+            if (currentKey != null && !currentKey.equals(fileKey)) {
+                // Rotated: finish what was appended to the old file, then switch
+                while (ingestCompleteLines(job)) {
+                    weatherDataProducer.awaitAcknowledgements();
+                    checkpoint(true);
+                }
+                log.info("{} was replaced, reading the new file from the start", file);
+                close();
+                if (!open()) {
+                    return false;
+                }
+                reset(0);
+            } else if (channel.size() < position) {
+                log.info("{} was truncated, reading it again from the start", file);
+                weatherDataProducer.awaitAcknowledgements();
+                reset(0);
+            }
+
+            return ingestCompleteLines(job);
+        }
+
+        // Sends the complete lines after position, up to max-batch-bytes of them (at least one line)
+        private boolean ingestCompleteLines(IngestionJob job) throws IOException {
+            long size = channel.size();
+            if (position == 0) {
+                // Header goes first; wait until it is complete
+                if (CsvChunkReader.completeLinesEnd(channel, 0, size) == 0) {
+                    return false;
+                }
+                position = CsvChunkReader.nextLineStart(channel, 0, size);
+                progress.skipped(position);
+            }
+
+            long end = CsvChunkReader.completeLinesEnd(channel, position, Math.min(size, position + maxBatchBytes));
+            if (end == position) {
+                // A line longer than the batch
+                end = CsvChunkReader.completeLinesEnd(channel, position, size);
+            }
+            if (end <= position) {
+                return false;
+            }
+            weatherDataProducer.ingestRange(channel, lines, progress, position, end, job);
+            position = end;
+            return true;
+        }
+
+        void checkpoint(boolean active) throws IOException {
+            checkpointStore.saveFollowState(new IngestionCheckpointStore.FollowState(file, committedOffset(), fileKey, active));
+        }
+
+        long committedOffset() {
+            return progress.committedOffset();
+        }
+
+        private void reset(long offset) {
+            position = offset;
+            progress = new ChunkProgress(0, offset, Long.MAX_VALUE, offset);
+        }
+
+        private boolean open() throws IOException {
+            try {
+                channel = FileChannel.open(file, StandardOpenOption.READ);
+                lines = new FileLineIndex(file.toString(), channel);
+                fileKey = currentFileKey();
+                return true;
+            } catch (NoSuchFileException e) {
+                return false;
+            }
+        }
+
+        private String currentFileKey() throws IOException {
+            try {
+                Object key = Files.readAttributes(file, BasicFileAttributes.class).fileKey();
+                return key != null ? key.toString() : null;
+            } catch (NoSuchFileException e) {
+                // Removed while being followed; keep reading the open channel until it reappears
+                return fileKey;
+            }
+        }
+
+        void close() {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    log.debug("Error closing {}", file, e);
+                }
+                channel = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.qbitspark.dataingestionservice;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.List;
+import java.util.stream.Stream;
+
+// Expands a directory or a glob such as /data/drops/2024-*/*.csv.gz into the regular files it
+// matches, in name order. A directory matches its own *.csv and *.csv.gz files.
+public final class CsvFileResolver {
+
+    static final String DIRECTORY_PATTERN = "*.{csv,csv.gz}";
+
+    private CsvFileResolver() {
+    }
+
+    public static List<Path> resolve(String pathOrGlob) throws IOException {
+        Path base;
+        String pattern;
+
+        int firstGlobChar = indexOfGlobChar(pathOrGlob);
+        if (firstGlobChar < 0) {
+            Path path = Path.of(pathOrGlob);
+            if (Files.isRegularFile(path)) {
+                return List.of(path);
+            }
+            if (!Files.isDirectory(path)) {
+                throw new IOException("No such file or directory: " + pathOrGlob);
+            }
+            base = path;
+            pattern = DIRECTORY_PATTERN;
+        } else {
+            // The base directory is everything before the path segment holding the first glob character
+            int separator = pathOrGlob.lastIndexOf('/', firstGlobChar);
+            base = Path.of(separator < 0 ? "." : pathOrGlob.substring(0, separator + 1));
+            pattern = pathOrGlob.substring(separator + 1);
+        }
+
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+        int depth = pattern.contains("**") ? Integer.MAX_VALUE : (int) pattern.chars().filter(c -> c == '/').count() + 1;
+        Path root = base;
+        try (Stream<Path> files = Files.walk(root, depth)) {
+            return files.filter(Files::isRegularFile)
+                    .filter(file -> matcher.matches(root.relativize(file)))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    // Gzip is detected from the magic bytes, not the extension
+    public static boolean isGzip(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return in.read() == 0x1f && in.read() == 0x8b;
+        }
+    }
+
+    private static int indexOfGlobChar(String path) {
+        for (int i = 0; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if (c == '*' || c == '?' || c == '[' || c == '{') {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,54 @@
+package com.qbitspark.dataingestionservice;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Line numbers for byte offsets of a file, for workers that start reading mid-file. Newlines are
+// only counted when a line number is actually asked for (i.e. on the reject path), and every
+// answer is remembered, so later lookups only scan from the nearest known offset.
+public class FileLineIndex {
+
+    private static final int SCAN_BYTES = 1 << 16;
+
+    private final String source;
+    private final FileChannel channel;
+    // offset -> number of '\n' before it
+    private final TreeMap<Long, Long> newlinesBefore = new TreeMap<>(Map.of(0L, 0L));
+
+    public FileLineIndex(String source, FileChannel channel) {
+        this.source = source;
+        this.channel = channel;
+    }
+
+    public String source() {
+        return source;
+    }
+
+    // 1-based number of the line starting at offset
+    public synchronized long lineNumberAt(long offset) throws IOException {
+        Map.Entry<Long, Long> known = newlinesBefore.floorEntry(offset);
+        long position = known.getKey();
+        long newlines = known.getValue();
+
+        ByteBuffer scan = ByteBuffer.allocate(SCAN_BYTES);
+        while (position < offset) {
+            scan.clear().limit((int) Math.min(SCAN_BYTES, offset - position));
+            int read = channel.read(scan, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (scan.get(i) == '\n') {
+                    newlines++;
+                }
+            }
+            position += read;
+        }
+
+        newlinesBefore.put(offset, newlines);
+        return newlines + 1;
+    }
+}
@@ -0,0 +1,210 @@
+package com.qbitspark.dataingestionservice;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+// Persists the acknowledged byte offset of every range of a file being ingested, so a
+// restarted ingestion of the same, unchanged file continues where the last one stopped.
+@Component
+@Slf4j
+public class IngestionCheckpointStore {
+
+    @Value("${app.ingestion.checkpoint-dir:checkpoints}")
+    private Path checkpointDir;
+
+    @Value("${app.ingestion.checkpoint-interval-ms:5000}")
+    private long checkpointIntervalMs;
+
+    private ScheduledExecutorService scheduler;
+
+    @PostConstruct
+    void init() throws IOException {
+        Files.createDirectories(checkpointDir);
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ingestion-checkpointer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    // Saves the job's checkpoint for the file periodically until the returned checkpoints are stopped
+    public ScheduledCheckpoints scheduleCheckpoints(IngestionJob job, Path file) {
+        ScheduledCheckpoints checkpoints = new ScheduledCheckpoints(job, file);
+        checkpoints.future = scheduler.scheduleWithFixedDelay(checkpoints::run,
+                checkpointIntervalMs, checkpointIntervalMs, TimeUnit.MILLISECONDS);
+        return checkpoints;
+    }
+
+    // Periodic saves of one file's checkpoint. stop() waits for a save that is already running,
+    // so a final save or delete after it is never overwritten by a stale one.
+    public final class ScheduledCheckpoints {
+
+        private final IngestionJob job;
+        private final Path file;
+        private ScheduledFuture<?> future;
+        private boolean stopped;
+
+        private ScheduledCheckpoints(IngestionJob job, Path file) {
+            this.job = job;
+            this.file = file;
+        }
+
+        private synchronized void run() {
+            if (stopped) {
+                return;
+            }
+            try {
+                save(job, file);
+            } catch (Exception e) {
+                log.warn("Could not checkpoint ingestion of {}: {}", file, e.getMessage());
+            }
+        }
+
+        public synchronized void stop() {
+            stopped = true;
+            future.cancel(false);
+        }
+    }
+
+    public void save(IngestionJob job, Path file) throws IOException {
+        Properties checkpoint = new Properties();
+        checkpoint.setProperty("path", file.toAbsolutePath().toString());
+        checkpoint.setProperty("size", String.valueOf(Files.size(file)));
+        checkpoint.setProperty("lastModified", String.valueOf(Files.getLastModifiedTime(file).toMillis()));
+
+        List<ChunkProgress> chunks = job.getChunks();
+        checkpoint.setProperty("chunks", String.valueOf(chunks.size()));
+        for (ChunkProgress chunk : chunks) {
+            checkpoint.setProperty("chunk." + chunk.getIndex(),
+                    chunk.getStart() + "," + chunk.getEnd() + "," + chunk.committedOffset());
+        }
+
+        // Write-then-rename so a crash never leaves a torn checkpoint behind
+        Path target = checkpointFile(file);
+        writeAtomically(target, checkpoint, "Ingestion checkpoint for job " + job.getId());
+    }
+
+    // Ranges with their committed offsets, if a checkpoint exists for this exact file version
+    public Optional<List<ChunkProgress>> load(Path file) throws IOException {
+        Path checkpointFile = checkpointFile(file);
+        if (!Files.exists(checkpointFile)) {
+            return Optional.empty();
+        }
+
+        Properties checkpoint = new Properties();
+        try (Reader reader = Files.newBufferedReader(checkpointFile)) {
+            checkpoint.load(reader);
+        }
+
+        boolean sameFile = String.valueOf(Files.size(file)).equals(checkpoint.getProperty("size"))
+                && String.valueOf(Files.getLastModifiedTime(file).toMillis()).equals(checkpoint.getProperty("lastModified"));
+        if (!sameFile) {
+            log.info("Ignoring checkpoint for {}: file changed since it was written", file);
+            return Optional.empty();
+        }
+
+        int chunkCount = Integer.parseInt(checkpoint.getProperty("chunks"));
+        List<ChunkProgress> chunks = new ArrayList<>(chunkCount);
+        for (int i = 0; i < chunkCount; i++) {
+            String[] range = checkpoint.getProperty("chunk." + i).split(",");
+            chunks.add(new ChunkProgress(i, Long.parseLong(range[0]), Long.parseLong(range[1]), Long.parseLong(range[2])));
+        }
+        return Optional.of(chunks);
+    }
+
+    // Follow mode: acknowledged offset into a growing file, plus the file identity it belongs to
+    public record FollowState(Path file, long offset, String fileKey, boolean active) {
+    }
+
+    public void saveFollowState(FollowState state) throws IOException {
+        Properties checkpoint = new Properties();
+        checkpoint.setProperty("path", state.file().toAbsolutePath().toString());
+        checkpoint.setProperty("offset", String.valueOf(state.offset()));
+        checkpoint.setProperty("fileKey", state.fileKey() != null ? state.fileKey() : "");
+        checkpoint.setProperty("active", String.valueOf(state.active()));
+
+        Path target = followFile(state.file());
+        writeAtomically(target, checkpoint, "Follow offset for " + state.file().getFileName());
+    }
+
+    // Each save gets its own temp file, so concurrent saves never write into or rename the same one
+    private static void writeAtomically(Path target, Properties checkpoint, String comment) throws IOException {
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+        try {
+            try (Writer writer = Files.newBufferedWriter(temp)) {
+                checkpoint.store(writer, comment);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    public Optional<FollowState> loadFollowState(Path file) throws IOException {
+        Path followFile = followFile(file);
+        return Files.exists(followFile) ? Optional.of(readFollowState(followFile)) : Optional.empty();
+    }
+
+    public List<FollowState> listFollowStates() throws IOException {
+        List<FollowState> states = new ArrayList<>();
+        try (Stream<Path> files = Files.list(checkpointDir)) {
+            for (Path followFile : files.filter(path -> path.toString().endsWith(".follow")).toList()) {
+                states.add(readFollowState(followFile));
+            }
+        }
+        return states;
+    }
+
+    private FollowState readFollowState(Path followFile) throws IOException {
+        Properties checkpoint = new Properties();
+        try (Reader reader = Files.newBufferedReader(followFile)) {
+            checkpoint.load(reader);
+        }
+        String fileKey = checkpoint.getProperty("fileKey", "");
+        return new FollowState(Path.of(checkpoint.getProperty("path")),
+                Long.parseLong(checkpoint.getProperty("offset")),
+                fileKey.isEmpty() ? null : fileKey,
+                Boolean.parseBoolean(checkpoint.getProperty("active")));
+    }
+
+    public void delete(Path file) throws IOException {
+        Files.deleteIfExists(checkpointFile(file));
+    }
+
+    private Path checkpointFile(Path file) {
+        return checkpointDir.resolve(baseName(file) + ".checkpoint");
+    }
+
+    private Path followFile(Path file) {
+        return checkpointDir.resolve(baseName(file) + ".follow");
+    }
+
+    private static String baseName(Path file) {
+        Path absolute = file.toAbsolutePath().normalize();
+        return absolute.getFileName() + "-" + Integer.toHexString(absolute.toString().hashCode());
+    }
+}
@@ -0,0 +1,153 @@
+package com.qbitspark.dataingestionservice;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+// One ingestion run tracked by IngestionJobRegistry. Counters are updated by the
+// workers while the job runs and read by the job API at any time.
+@Getter
+public class IngestionJob {
+
+    public enum Status {
+        RUNNING, COMPLETED, FAILED, CANCELLED
+    }
+
+    private final String id;
+    private final String type;
+    private final String source;
+    private final int parallelism;
+    private final Instant startedAt = Instant.now();
+
+    private volatile Status status = Status.RUNNING;
+    private volatile Instant finishedAt;
+    private volatile String failure;
+    private volatile boolean cancelRequested;
+
+    private final AtomicLong records = new AtomicLong();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder sendFailures = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+
+    // Directory/glob jobs: matched files and what happened to them
+    @Setter
+    private volatile int filesMatched;
+    private final LongAdder filesIngested = new LongAdder();
+    private final LongAdder filesSkipped = new LongAdder();
+    private final LongAdder filesFailed = new LongAdder();
+
+    // Byte ranges of the source file with their acknowledged offsets (file jobs only)
+    @Setter
+    private volatile List<ChunkProgress> chunks = List.of();
+    @Setter
+    private volatile long resumedFromBytes;
+
+    // Quarantined lines per reason; the map is filled once and never changes shape
+    private final Map<RejectReason, LongAdder> rejects = new EnumMap<>(RejectReason.class);
+    private final List<Runnable> completionCallbacks = new CopyOnWriteArrayList<>();
+
+    // Job-type specific figures merged into the status (e.g. load-test latencies)
+    @Setter
+    private volatile Supplier<Map<String, Object>> details;
+
+    public IngestionJob(String id, String type, String source, int parallelism) {
+        this.id = id;
+        this.type = type;
+        this.source = source;
+        this.parallelism = parallelism;
+        for (RejectReason reason : RejectReason.values()) {
+            rejects.put(reason, new LongAdder());
+        }
+    }
+
+    // Counts a rejected line; returns the job's total number of rejects so far
+    public long rejected(RejectReason reason) {
+        rejects.get(reason).increment();
+        errors.increment();
+        return errors.sum();
+    }
+
+    // Run by the registry once the job body has returned, whatever the outcome
+    public void onCompletion(Runnable callback) {
+        completionCallbacks.add(callback);
+    }
+
+    void runCompletionCallbacks() {
+        completionCallbacks.forEach(Runnable::run);
+    }
+
+    public void requestCancel() {
+        cancelRequested = true;
+    }
+
+    public void finish(Status finalStatus) {
+        status = finalStatus;
+        finishedAt = Instant.now();
+    }
+
+    public void fail(Throwable cause) {
+        failure = cause.getMessage();
+        finish(Status.FAILED);
+    }
+
+    public boolean isFinished() {
+        return status != Status.RUNNING;
+    }
+
+    public long getCommittedBytes() {
+        return chunks.stream().mapToLong(chunk -> chunk.committedOffset() - chunk.getStart()).sum();
+    }
+
+    public Map<String, Object> toStatus() {
+        Instant end = finishedAt != null ? finishedAt : Instant.now();
+        double seconds = Math.max(Duration.between(startedAt, end).toMillis() / 1000.0, 0.001);
+
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("jobId", id);
+        status.put("type", type);
+        status.put("source", source);
+        status.put("status", this.status.name());
+        status.put("parallelism", parallelism);
+        status.put("records", records.get());
+        status.put("errors", errors.sum());
+        Map<String, Long> rejectsByReason = new LinkedHashMap<>();
+        rejects.forEach((reason, count) -> {
+            if (count.sum() > 0) {
+                rejectsByReason.put(reason.name(), count.sum());
+            }
+        });
+        status.put("rejectsByReason", rejectsByReason);
+        status.put("sendFailures", sendFailures.sum());
+        status.put("bytesRead", bytesRead.sum());
+        status.put("committedBytes", getCommittedBytes());
+        status.put("resumedFromBytes", resumedFromBytes);
+        if (filesMatched > 0) {
+            status.put("filesMatched", filesMatched);
+            status.put("filesIngested", filesIngested.sum());
+            status.put("filesSkipped", filesSkipped.sum());
+            status.put("filesFailed", filesFailed.sum());
+        }
+        if (details != null) {
+            status.putAll(details.get());
+        }
+        status.put("rowsPerSecond", Math.round(records.get() / seconds));
+        status.put("startedAt", startedAt.toString());
+        if (finishedAt != null) {
+            status.put("finishedAt", finishedAt.toString());
+        }
+        if (failure != null) {
+            status.put("failure", failure);
+        }
+        return status;
+    }
+}
@@ -0,0 +1,174 @@
+package com.qbitspark.dataingestionservice;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+// Runs ingestion jobs on a bounded pool and keeps them addressable by id for the job API.
+// Finished jobs stay listed for finished-job-ttl-ms, and only the newest max-finished-jobs of them.
+@Component
+@Slf4j
+public class IngestionJobRegistry {
+
+    @Value("${app.ingestion.max-concurrent-jobs:2}")
+    private int maxConcurrentJobs;
+
+    @Value("${app.ingestion.finished-job-ttl-ms:3600000}")
+    private long finishedJobTtlMs;
+
+    @Value("${app.ingestion.max-finished-jobs:200}")
+    private int maxFinishedJobs;
+
+    private final Map<String, IngestionJob> jobs = new ConcurrentHashMap<>();
+    private final AtomicInteger dedicatedThreadIds = new AtomicInteger();
+    private ExecutorService jobExecutor;
+
+    @PostConstruct
+    void init() {
+        AtomicInteger threadIds = new AtomicInteger();
+        jobExecutor = Executors.newFixedThreadPool(maxConcurrentJobs,
+                runnable -> new Thread(runnable, "ingestion-job-" + threadIds.incrementAndGet()));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        jobs.values().forEach(IngestionJob::requestCancel);
+        jobExecutor.shutdown();
+    }
+
+    // The body runs asynchronously and is expected to finish() the job; failures are recorded here
+    public IngestionJob submit(String type, String source, int parallelism, Consumer<IngestionJob> body) {
+        return start(type, source, parallelism, body, jobExecutor);
+    }
+
+    // Like submit, but refuses to start while a job of the same type is running on the same source:
+    // both would share one checkpoint, and the first to finish would delete it under the other
+    public synchronized IngestionJob submitExclusive(String type, String source, int parallelism, Consumer<IngestionJob> body) {
+        String normalized = normalizeSource(source);
+        for (IngestionJob job : jobs.values()) {
+            if (!job.isFinished() && job.getType().equals(type) && normalizeSource(job.getSource()).equals(normalized)) {
+                throw new JobAlreadyRunningException(job);
+            }
+        }
+        return submit(type, source, parallelism, body);
+    }
+
+    // Jobs that run until cancelled (follow mode) get their own thread instead of holding a pool slot
+    public IngestionJob submitDedicated(String type, String source, int parallelism, Consumer<IngestionJob> body) {
+        return start(type, source, parallelism, body,
+                runnable -> new Thread(runnable, "ingestion-" + type + "-" + dedicatedThreadIds.incrementAndGet()).start());
+    }
+
+    // Runs the job on the calling thread, e.g. while a request body is being uploaded; the job
+    // is visible through the job API while it runs and finished when this returns
+    public IngestionJob runInline(String type, String source, int parallelism, Consumer<IngestionJob> body) {
+        return start(type, source, parallelism, body, Runnable::run);
+    }
+
+    private IngestionJob start(String type, String source, int parallelism, Consumer<IngestionJob> body, Executor executor) {
+        evictFinished();
+        IngestionJob job = new IngestionJob(UUID.randomUUID().toString(), type, source, parallelism);
+        jobs.put(job.getId(), job);
+
+        executor.execute(() -> {
+            try {
+                body.accept(job);
+                if (!job.isFinished()) {
+                    job.finish(job.isCancelRequested() ? IngestionJob.Status.CANCELLED : IngestionJob.Status.COMPLETED);
+                }
+            } catch (Exception e) {
+                log.error("Ingestion job {} failed", job.getId(), e);
+                job.fail(e);
+            } finally {
+                job.runCompletionCallbacks();
+            }
+        });
+        return job;
+    }
+
+    public Optional<IngestionJob> get(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId));
+    }
+
+    public Collection<IngestionJob> list() {
+        evictFinished();
+        return jobs.values();
+    }
+
+    public boolean cancel(String jobId) {
+        IngestionJob job = jobs.get(jobId);
+        if (job == null || job.isFinished()) {
+            return false;
+        }
+        job.requestCancel();
+        return true;
+    }
+
+    // Running jobs are always kept
+    private void evictFinished() {
+        Instant now = Instant.now();
+        Instant expired = now.minusMillis(finishedJobTtlMs);
+        List<IngestionJob> finished = new ArrayList<>();
+        for (IngestionJob job : jobs.values()) {
+            if (!job.isFinished()) {
+                continue;
+            }
+            if (finishedAt(job, now).isBefore(expired)) {
+                jobs.remove(job.getId());
+            } else {
+                finished.add(job);
+            }
+        }
+        if (finished.size() > maxFinishedJobs) {
+            finished.sort(Comparator.comparing(job -> finishedAt(job, now)));
+            finished.subList(0, finished.size() - maxFinishedJobs).forEach(job -> jobs.remove(job.getId()));
+        }
+    }
+
+    private static String normalizeSource(String source) {
+        try {
+            return Path.of(source).toAbsolutePath().normalize().toString();
+        } catch (InvalidPathException e) {
+            return source;
+        }
+    }
+
+    // finish() sets the status before the time
+    private static Instant finishedAt(IngestionJob job, Instant now) {
+        Instant finishedAt = job.getFinishedAt();
+        return finishedAt != null ? finishedAt : now;
+    }
+
+    public static class JobAlreadyRunningException extends IllegalStateException {
+
+        private final transient IngestionJob runningJob;
+
+        JobAlreadyRunningException(IngestionJob runningJob) {
+            super("Job " + runningJob.getId() + " is already ingesting " + runningJob.getSource());
+            this.runningJob = runningJob;
+        }
+
+        public IngestionJob getRunningJob() {
+            return runningJob;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.qbitspark.dataingestionservice;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.util.Properties;
+import java.util.zip.CRC32C;
+
+// Record of files that were fully ingested and acknowledged: path=size,lastModified,crc32c,ingestedAt.
+// A file whose size and modification time match its entry is skipped without being read; if only
+// the modification time changed (e.g. the drop was copied again) the checksum decides.
+@Component
+@Slf4j
+public class IngestionManifest {
+
+    private static final int CHECKSUM_BUFFER_BYTES = 1 << 16;
+
+    @Value("${app.ingestion.manifest-file:checkpoints/ingestion-manifest.properties}")
+    private Path manifestFile;
+
+    private final Properties entries = new Properties();
+
+    @PostConstruct
+    void load() throws IOException {
+        if (manifestFile.getParent() != null) {
+            Files.createDirectories(manifestFile.getParent());
+        }
+        if (Files.exists(manifestFile)) {
+            try (Reader reader = Files.newBufferedReader(manifestFile)) {
+                entries.load(reader);
+            }
+            log.info("Loaded ingestion manifest with {} files", entries.size());
+        }
+    }
+
+    // Size and modification time of a file, taken when its ingestion starts
+    public record FileState(Path file, long size, long lastModified) {
+    }
+
+    public static FileState stat(Path file) throws IOException {
+        return new FileState(file, Files.size(file), Files.getLastModifiedTime(file).toMillis());
+    }
+
+    // The checksum is computed outside the lock, so workers only wait for each other to update the entries
+    public boolean isIngested(FileState state) throws IOException {
+        String entry;
+        synchronized (this) {
+            entry = entries.getProperty(key(state.file()));
+        }
+        if (entry == null) {
+            return false;
+        }
+
+        String[] fields = entry.split(",");
+        if (Long.parseLong(fields[0]) != state.size()) {
+            return false;
+        }
+        if (Long.parseLong(fields[1]) == state.lastModified()) {
+            return true;
+        }
+
+        // Same size, newer timestamp: only re-ingest if the content really changed
+        if (!Long.toHexString(checksum(state.file(), state.size())).equals(fields[2])) {
+            return false;
+        }
+        put(state, fields[2], fields[3]);
+        return true;
+    }
+
+    // Records the file as it was when its ingestion started; rows appended since then change its
+    // size, so the next run reads it again
+    public void recordIngested(FileState state) throws IOException {
+        put(state, Long.toHexString(checksum(state.file(), state.size())), Instant.now().toString());
+    }
+
+    private synchronized void put(FileState state, String checksum, String ingestedAt) throws IOException {
+        entries.setProperty(key(state.file()), state.size() + "," + state.lastModified() + "," + checksum + ","
+                + ingestedAt);
+        save();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private void save() throws IOException {
+        Path temp = manifestFile.resolveSibling(manifestFile.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temp)) {
+            entries.store(writer, "Ingested weather data files");
+        }
+        Files.move(temp, manifestFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static String key(Path file) {
+        return file.toAbsolutePath().normalize().toString();
+    }
+
+    // CRC32C of the first size bytes
+    static long checksum(Path file, long size) throws IOException {
+        CRC32C crc = new CRC32C();
+        byte[] buffer = new byte[CHECKSUM_BUFFER_BYTES];
+        try (InputStream in = Files.newInputStream(file)) {
+            long remaining = size;
+            int read;
+            while (remaining > 0 && (read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining))) > 0) {
+                crc.update(buffer, 0, read);
+                remaining -= read;
+            }
+        }
+        return crc.getValue();
+    }
+}
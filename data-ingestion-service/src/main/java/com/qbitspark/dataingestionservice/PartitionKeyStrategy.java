@@ -0,0 +1,63 @@
+package com.qbitspark.dataingestionservice;
+
+import java.time.ZoneOffset;
+import java.util.Map;
+
+// Chooses the Kafka key, and through the default partitioner the partition, of a weather record.
+// Records with the same key stay in order; records of one city under different keys do not.
+public interface PartitionKeyStrategy {
+
+    String name();
+
+    String keyFor(WeatherRecord weatherRecord);
+
+    // One key per city: strict per-city order, at most one partition per city
+    record City() implements PartitionKeyStrategy {
+        @Override
+        public String name() {
+            return "city";
+        }
+
+        @Override
+        public String keyFor(WeatherRecord weatherRecord) {
+            return weatherRecord.getCity();
+        }
+    }
+
+    // One key per city and time bucket: order holds within a bucket, and a city's history
+    // spreads over the partitions bucket by bucket
+    record CityTimeBucket(long bucketMillis) implements PartitionKeyStrategy {
+        @Override
+        public String name() {
+            return "city-time-bucket";
+        }
+
+        @Override
+        public String keyFor(WeatherRecord weatherRecord) {
+            return weatherRecord.getCity() + "@" + bucketOf(weatherRecord, bucketMillis);
+        }
+    }
+
+    // Plain city keys, except for the configured hot cities which are spread over
+    // weight sub-keys. The sub-key follows the time bucket, so each bucket stays in order.
+    record WeightedCity(long bucketMillis, Map<String, Integer> hotCities) implements PartitionKeyStrategy {
+        @Override
+        public String name() {
+            return "weighted";
+        }
+
+        @Override
+        public String keyFor(WeatherRecord weatherRecord) {
+            String city = weatherRecord.getCity();
+            Integer spread = hotCities.get(city);
+            if (spread == null || spread <= 1) {
+                return city;
+            }
+            return city + "#" + Math.floorMod(bucketOf(weatherRecord, bucketMillis), spread);
+        }
+    }
+
+    private static long bucketOf(WeatherRecord weatherRecord, long bucketMillis) {
+        return Math.floorDiv(weatherRecord.getTimestamp().toInstant(ZoneOffset.UTC).toEpochMilli(), bucketMillis);
+    }
+}
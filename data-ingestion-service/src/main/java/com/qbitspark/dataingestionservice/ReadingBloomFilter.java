@@ -0,0 +1,157 @@
+package com.qbitspark.dataingestionservice;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Thread-safe Bloom filter over (city, reading timestamp). Bits are set with CAS on 64-bit words,
+// so concurrent writers never lose each other's bits. Double hashing derives the k probe
+// positions from two 64-bit hashes of the key.
+public class ReadingBloomFilter {
+
+    private static final int FORMAT_VERSION = 1;
+    private static final int MAGIC = 0x57524246; // "WRBF"
+
+    private final long bitCount;
+    private final int hashCount;
+    private final AtomicLongArray words;
+
+    public ReadingBloomFilter(long bitCount, int hashCount) {
+        // Whole words only, so the bit count always matches the backing array
+        this.bitCount = Math.max(64, (bitCount + 63) / 64 * 64);
+        this.hashCount = hashCount;
+        this.words = new AtomicLongArray((int) (this.bitCount / 64));
+    }
+
+    // Optimal size for the expected number of readings and false-positive rate
+    public static ReadingBloomFilter forCapacity(long expectedInsertions, double falsePositiveRate, long maxBytes) {
+        long bits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        long maxBits = maxBytes > Long.MAX_VALUE / 8 ? Long.MAX_VALUE : maxBytes * 8;
+        bits = Math.min(bits, Math.min(maxBits, (long) Integer.MAX_VALUE * 64));
+        int hashes = (int) Math.max(1, Math.round((double) bits / expectedInsertions * Math.log(2)));
+        return new ReadingBloomFilter(bits, hashes);
+    }
+
+    public boolean mightContain(String city, long epochMillis) {
+        long h1 = hash1(city, epochMillis);
+        long h2 = hash2(h1);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Returns true if the key was (probably) present before
+    public boolean put(String city, long epochMillis) {
+        long h1 = hash1(city, epochMillis);
+        long h2 = hash2(h1);
+        boolean present = true;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+            int index = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long word = words.get(index);
+            while ((word & mask) == 0) {
+                present = false;
+                long witness = words.compareAndExchange(index, word, word | mask);
+                if (witness == word) {
+                    break;
+                }
+                word = witness;
+            }
+        }
+        return present;
+    }
+
+    public long bitCount() {
+        return bitCount;
+    }
+
+    public int hashCount() {
+        return hashCount;
+    }
+
+    public long memoryBytes() {
+        return bitCount / 8;
+    }
+
+    public long setBits() {
+        long set = 0;
+        for (int i = 0; i < words.length(); i++) {
+            set += Long.bitCount(words.get(i));
+        }
+        return set;
+    }
+
+    // Current chance that an unseen reading is reported as seen: (set bits / bits)^k
+    public double currentFalsePositiveRate() {
+        return Math.pow((double) setBits() / bitCount, hashCount);
+    }
+
+    // Estimate of distinct readings inserted so far, from the fill ratio
+    public long approximateCount() {
+        double fill = (double) setBits() / bitCount;
+        return fill >= 1 ? Long.MAX_VALUE : Math.round(-(double) bitCount / hashCount * Math.log1p(-fill));
+    }
+
+    public void clear() {
+        for (int i = 0; i < words.length(); i++) {
+            words.set(i, 0);
+        }
+    }
+
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeLong(bitCount);
+        out.writeInt(hashCount);
+        for (int i = 0; i < words.length(); i++) {
+            out.writeLong(words.get(i));
+        }
+    }
+
+    // Null if the stream holds a filter of a different shape, which then cannot be reused
+    public static ReadingBloomFilter readFrom(DataInputStream in, long expectedBits, int expectedHashes) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+            throw new IOException("Not a weather reading Bloom filter");
+        }
+        long bits = in.readLong();
+        int hashes = in.readInt();
+        ReadingBloomFilter filter = new ReadingBloomFilter(expectedBits, expectedHashes);
+        if (bits != filter.bitCount || hashes != expectedHashes) {
+            return null;
+        }
+        for (int i = 0; i < filter.words.length(); i++) {
+            filter.words.set(i, in.readLong());
+        }
+        return filter;
+    }
+
+    // FNV-1a over the city's chars (no allocation), mixed with the timestamp and finalised like MurmurHash3
+    private static long hash1(String city, long epochMillis) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < city.length(); i++) {
+            hash ^= city.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return fmix64(hash ^ fmix64(epochMillis));
+    }
+
+    private static long hash2(long h1) {
+        // Odd, so successive probes never cycle on a power-of-two-sized filter
+        return fmix64(h1 ^ 0x9E3779B97F4A7C15L) | 1;
+    }
+
+    private static long fmix64(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+}
@@ -0,0 +1,190 @@
+package com.qbitspark.dataingestionservice;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.ZoneOffset;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Optional dedup stage in front of the Kafka send: a reading whose (city, timestamp) is already
+// in the Bloom filter is dropped before it is serialized. Readings enter the filter only once
+// Kafka has acknowledged them, so a failed send is retried by a resumed job instead of being
+// mistaken for a duplicate. Until then the reading is held in an exact in-flight set, which also
+// drops repeats sent before the first copy is acknowledged; it holds at most the readings inside
+// the send window and open envelopes. The filter is saved to disk periodically and on shutdown.
+@Component
+@Slf4j
+public class ReadingDeduplicator {
+
+    @Value("${app.ingestion.dedup.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.ingestion.dedup.expected-readings:50000000}")
+    private long expectedReadings;
+
+    @Value("${app.ingestion.dedup.false-positive-rate:0.0001}")
+    private double falsePositiveRate;
+
+    @Value("${app.ingestion.dedup.max-memory-bytes:268435456}")
+    private long maxMemoryBytes;
+
+    @Value("${app.ingestion.dedup.file:checkpoints/readings.bloom}")
+    private Path filterFile;
+
+    @Value("${app.ingestion.dedup.save-interval-ms:60000}")
+    private long saveIntervalMs;
+
+    private ReadingBloomFilter filter;
+    private final Set<ReadingKey> inFlight = ConcurrentHashMap.newKeySet();
+    private ScheduledExecutorService saver;
+    private volatile boolean dirty;
+
+    private final LongAdder checked = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    @PostConstruct
+    void init() throws IOException {
+        if (!enabled) {
+            return;
+        }
+
+        ReadingBloomFilter sized = ReadingBloomFilter.forCapacity(expectedReadings, falsePositiveRate, maxMemoryBytes);
+        filter = load(sized).orElse(sized);
+        log.info("Reading dedup enabled: {} MB Bloom filter, {} hashes, ~{} readings already seen",
+                filter.memoryBytes() / (1024 * 1024), filter.hashCount(), filter.approximateCount());
+
+        saver = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "dedup-saver");
+            thread.setDaemon(true);
+            return thread;
+        });
+        saver.scheduleWithFixedDelay(this::saveQuietly, saveIntervalMs, saveIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (enabled) {
+            saver.shutdownNow();
+            saveQuietly();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // True if the reading was (probably) published before, or is being published now, and should be
+    // dropped. Otherwise the reading is claimed until acknowledged() or failed() is called for it.
+    public boolean isDuplicate(WeatherRecord weatherRecord) {
+        checked.increment();
+        ReadingKey key = ReadingKey.of(weatherRecord);
+        // Claim first, then check the filter: acknowledged() puts before it releases the claim
+        if (!inFlight.add(key)) {
+            dropped.increment();
+            return true;
+        }
+        if (filter.mightContain(key.city(), key.epochMillis())) {
+            inFlight.remove(key);
+            dropped.increment();
+            return true;
+        }
+        return false;
+    }
+
+    public void acknowledged(WeatherRecord weatherRecord) {
+        ReadingKey key = ReadingKey.of(weatherRecord);
+        filter.put(key.city(), key.epochMillis());
+        dirty = true;
+        inFlight.remove(key);
+    }
+
+    // The send failed: release the claim so the reading can be sent again
+    public void failed(WeatherRecord weatherRecord) {
+        inFlight.remove(ReadingKey.of(weatherRecord));
+    }
+
+    public void clear() {
+        if (enabled) {
+            filter.clear();
+            dirty = true;
+            saveQuietly();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        if (!enabled) {
+            return stats;
+        }
+        stats.put("checked", checked.sum());
+        stats.put("dropped", dropped.sum());
+        stats.put("inFlight", inFlight.size());
+        stats.put("approximateReadings", filter.approximateCount());
+        stats.put("expectedReadings", expectedReadings);
+        stats.put("targetFalsePositiveRate", falsePositiveRate);
+        stats.put("currentFalsePositiveRate", filter.currentFalsePositiveRate());
+        stats.put("memoryBytes", filter.memoryBytes());
+        stats.put("hashFunctions", filter.hashCount());
+        return stats;
+    }
+
+    private record ReadingKey(String city, long epochMillis) {
+
+        static ReadingKey of(WeatherRecord weatherRecord) {
+            return new ReadingKey(weatherRecord.getCity(), weatherRecord.getTimestamp().toInstant(ZoneOffset.UTC).toEpochMilli());
+        }
+    }
+
+    private Optional<ReadingBloomFilter> load(ReadingBloomFilter sized) throws IOException {
+        if (!Files.exists(filterFile)) {
+            return Optional.empty();
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(filterFile), 1 << 16))) {
+            ReadingBloomFilter loaded = ReadingBloomFilter.readFrom(in, sized.bitCount(), sized.hashCount());
+            if (loaded == null) {
+                log.warn("Ignoring saved dedup filter {}: it was built for a different size", filterFile);
+            }
+            return Optional.ofNullable(loaded);
+        }
+    }
+
+    private synchronized void saveQuietly() {
+        if (!dirty) {
+            return;
+        }
+        dirty = false;
+        try {
+            if (filterFile.getParent() != null) {
+                Files.createDirectories(filterFile.getParent());
+            }
+            Path temp = filterFile.resolveSibling(filterFile.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp), 1 << 16))) {
+                filter.writeTo(out);
+            }
+            Files.move(temp, filterFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            dirty = true;
+            log.warn("Could not save dedup filter to {}: {}", filterFile, e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package com.qbitspark.dataingestionservice;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Destination for lines that could not be parsed: a per-job rejects file (default), the
+// weather-data-rejects topic, or nowhere. Each reject carries the source, line number, byte
+// offset (when reading a file) and reason; only the first log-first rejects of a job are logged.
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class RejectQuarantine {
+
+    static final String REJECTS_TOPIC = "weather-data-rejects";
+
+    private final BoundedKafkaSender kafkaSender;
+
+    // file, topic or none
+    @Value("${app.ingestion.rejects.target:file}")
+    private String target;
+
+    @Value("${app.ingestion.rejects.dir:rejects}")
+    private Path rejectsDir;
+
+    @Value("${app.ingestion.rejects.log-first:20}")
+    private int logFirst;
+
+    private final Map<String, BufferedWriter> writers = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void init() throws IOException {
+        if ("file".equalsIgnoreCase(target)) {
+            Files.createDirectories(rejectsDir);
+        }
+    }
+
+    // offset is -1 for sources without byte positions (streams)
+    public void reject(IngestionJob job, String source, long lineNumber, long offset, RejectReason reason, byte[] line) {
+        long rejected = job.rejected(reason);
+        if (rejected <= logFirst) {
+            log.warn("Rejected line {} of {} ({}): {}{}", lineNumber, source, reason,
+                    new String(line, StandardCharsets.UTF_8),
+                    rejected == logFirst ? " - further rejects of this job are not logged" : "");
+        }
+
+        if ("file".equalsIgnoreCase(target)) {
+            writeToFile(job, source, lineNumber, offset, reason, line);
+        } else if ("topic".equalsIgnoreCase(target)) {
+            sendToTopic(job, source, lineNumber, offset, reason, line);
+        }
+    }
+
+    public Path rejectsFile(IngestionJob job) {
+        return rejectsDir.resolve(job.getId() + ".rejects.csv");
+    }
+
+    private void writeToFile(IngestionJob job, String source, long lineNumber, long offset, RejectReason reason, byte[] line) {
+        BufferedWriter writer = writers.computeIfAbsent(job.getId(), id -> openWriter(job));
+        synchronized (writer) {
+            try {
+                writer.write(quote(source) + "," + lineNumber + "," + offset + "," + reason + ",");
+                writer.write(quote(new String(line, StandardCharsets.UTF_8)));
+                writer.newLine();
+            } catch (IOException e) {
+                log.error("Could not write reject of {} to {}", source, rejectsFile(job), e);
+            }
+        }
+    }
+
+    // RFC 4180 field: paths and raw lines may hold commas, quotes or line breaks
+    static String quote(String field) {
+        return "\"" + field.replace("\"", "\"\"") + "\"";
+    }
+
+    private BufferedWriter openWriter(IngestionJob job) {
+        try {
+            BufferedWriter writer = Files.newBufferedWriter(rejectsFile(job), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            writer.write("source,line,offset,reason,raw");
+            writer.newLine();
+            job.onCompletion(() -> close(job.getId()));
+            return writer;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void close(String jobId) {
+        BufferedWriter writer = writers.remove(jobId);
+        if (writer != null) {
+            synchronized (writer) {
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                    log.warn("Could not close rejects file of job {}", jobId, e);
+                }
+            }
+        }
+    }
+
+    private void sendToTopic(IngestionJob job, String source, long lineNumber, long offset, RejectReason reason, byte[] line) {
+        ProducerRecord<String, byte[]> producerRecord = new ProducerRecord<>(REJECTS_TOPIC, source, line);
+        producerRecord.headers()
+                .add("reject-reason", reason.name().getBytes(StandardCharsets.UTF_8))
+                .add("source", source.getBytes(StandardCharsets.UTF_8))
+                .add("line-number", Long.toString(lineNumber).getBytes(StandardCharsets.UTF_8))
+                .add("offset", Long.toString(offset).getBytes(StandardCharsets.UTF_8))
+                .add("job-id", job.getId().getBytes(StandardCharsets.UTF_8));
+
+        kafkaSender.send(producerRecord).whenComplete((result, ex) -> {
+            if (ex != null) {
+                log.error("Failed to quarantine line {} of {} to {}", lineNumber, source, REJECTS_TOPIC, ex);
+            }
+        });
+    }
+}
@@ -0,0 +1,13 @@
+package com.qbitspark.dataingestionservice;
+
+// Why a CSV line was quarantined instead of published
+public enum RejectReason {
+    EMPTY_LINE,
+    FIELD_COUNT,
+    BAD_TIMESTAMP,
+    BAD_TEMPERATURE,
+    BAD_HUMIDITY,
+    BAD_RAINFALL,
+    BAD_WIND_SPEED,
+    BAD_PRESSURE
+}
@@ -0,0 +1,82 @@
+package com.qbitspark.dataingestionservice;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+// Synthetic readings shaped like the Tanzania data set: a seasonal temperature cycle (warmest
+// around January, coolest around July), a diurnal cycle peaking mid-afternoon, and rain that
+// arrives in bursts which cool the air and raise humidity. One instance per generating thread.
+public class SyntheticWeather {
+
+    // Annual mean temperature per city; unknown cities get one derived from their name
+    private static final Map<String, Double> MEAN_TEMPERATURE = Map.of(
+            "Dar es Salaam", 26.5, "Dodoma", 22.5, "Arusha", 19.5, "Mwanza", 23.5, "Mbeya", 17.0,
+            "Morogoro", 24.5, "Tanga", 26.0, "Zanzibar", 27.0, "Kigoma", 24.0, "Moshi", 22.0);
+
+    private static final double SEASONAL_AMPLITUDE = 3.0;
+    private static final double DIURNAL_AMPLITUDE = 5.0;
+
+    // Two-state rain model: chance per reading to start or stop a burst
+    private static final double RAIN_START_PROBABILITY = 0.03;
+    private static final double RAIN_STOP_PROBABILITY = 0.25;
+
+    private final SplittableRandom random;
+    private final Map<String, CityState> cities = new HashMap<>();
+
+    public SyntheticWeather(long seed) {
+        this.random = new SplittableRandom(seed);
+    }
+
+    public WeatherRecord next(String city, LocalDateTime timestamp) {
+        CityState state = cities.computeIfAbsent(city, CityState::new);
+
+        double dayOfYear = timestamp.getDayOfYear() + timestamp.getHour() / 24.0;
+        double hour = timestamp.getHour() + timestamp.getMinute() / 60.0;
+        double seasonal = SEASONAL_AMPLITUDE * Math.cos(2 * Math.PI * (dayOfYear - 15) / 365.25);
+        double diurnal = DIURNAL_AMPLITUDE * Math.cos(2 * Math.PI * (hour - 15) / 24);
+
+        if (state.raining) {
+            state.raining = random.nextDouble() >= RAIN_STOP_PROBABILITY;
+        } else {
+            state.raining = random.nextDouble() < RAIN_START_PROBABILITY * (1 + Math.max(seasonal, 0) / SEASONAL_AMPLITUDE);
+            state.burstIntensity = 0.5 + random.nextDouble() * 8;
+        }
+        double rainfall = state.raining ? -Math.log(1 - random.nextDouble()) * state.burstIntensity : 0;
+
+        double temperature = state.meanTemperature + seasonal + diurnal - Math.min(rainfall, 6)
+                + random.nextDouble(-0.8, 0.8);
+        double humidity = clamp(65 - diurnal * 3 + (state.raining ? 20 : 0) + random.nextDouble(-5, 5), 10, 100);
+
+        // Wind and pressure wander around their means
+        state.windSpeed = clamp(state.windSpeed + random.nextDouble(-1.5, 1.5) + (8 - state.windSpeed) * 0.05
+                + (state.raining ? 0.5 : 0), 0, 60);
+        state.pressure = clamp(state.pressure + random.nextDouble(-0.6, 0.6) + (1013 - state.pressure) * 0.02
+                - (state.raining ? 0.2 : 0), 980, 1040);
+
+        return new WeatherRecord(timestamp, city, round(temperature, 10), round(humidity, 10),
+                round(rainfall, 100), round(state.windSpeed, 10), round(state.pressure, 10));
+    }
+
+    // Same precision as the CSV data and the binary wire format
+    private static double round(double value, int scale) {
+        return Math.round(value * scale) / (double) scale;
+    }
+
+    private static double clamp(double value, double min, double max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    private static final class CityState {
+        private final double meanTemperature;
+        private boolean raining;
+        private double burstIntensity;
+        private double windSpeed = 8;
+        private double pressure = 1013;
+
+        private CityState(String city) {
+            this.meanTemperature = MEAN_TEMPERATURE.getOrDefault(city, 18 + Math.floorMod(city.hashCode(), 100) / 10.0);
+        }
+    }
+}
@@ -0,0 +1,462 @@
+package com.qbitspark.dataingestionservice;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.time.Year;
+import java.time.format.DateTimeFormatter;
+
+// Single-pass parser for weather CSV lines working directly on bytes.
+// Produces exactly what the old regex + split implementation of WeatherRecord.fromCsvLine did:
+// a comma between a digit and 1-2 digits that end the field is a European decimal separator.
+// Not thread-safe (scratch buffers and city cache), so each worker keeps its own instance.
+public final class WeatherCsvParser {
+
+    private static final int FIELD_COUNT = 7;
+    private static final int MAX_TRACKED_FIELDS = 32;
+    private static final int CITY_CACHE_SIZE = 64;
+
+    // Fallback for timestamps outside the fast path (odd widths, 24:00, invalid dates...)
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    // Every power of ten up to 1e22 is exactly representable as a double
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    // Every character that can appear in a string Double.parseDouble accepts (decimal commas included)
+    private static final String DOUBLE_LITERAL_CHARS = "0123456789+-.,eEdDfFxXpPaAbBcCNIinty";
+
+    private static final ThreadLocal<WeatherCsvParser> THREAD_PARSER = ThreadLocal.withInitial(WeatherCsvParser::new);
+
+    private final int[] fieldStarts = new int[MAX_TRACKED_FIELDS];
+    private final int[] fieldEnds = new int[MAX_TRACKED_FIELDS];
+    private final byte[][] cityKeys = new byte[CITY_CACHE_SIZE][];
+    private final String[] cityValues = new String[CITY_CACHE_SIZE];
+    private byte[] scratch = new byte[256];
+
+    // Outcome of the last tryParse call
+    private RejectReason rejectReason;
+    private boolean decimalFailed;
+
+    // Parser bound to the calling thread, for callers that cannot keep their own instance
+    public static WeatherCsvParser forCurrentThread() {
+        return THREAD_PARSER.get();
+    }
+
+    public WeatherRecord parse(CharSequence line) {
+        int length = encodeToScratch(line);
+        return parse(scratch, 0, length);
+    }
+
+    public WeatherRecord parse(ByteBuffer buffer, int from, int to) {
+        if (buffer.hasArray()) {
+            int offset = buffer.arrayOffset();
+            return parse(buffer.array(), offset + from, offset + to);
+        }
+        int length = to - from;
+        ensureScratch(length);
+        buffer.get(from, scratch, 0, length);
+        return parse(scratch, 0, length);
+    }
+
+    public WeatherRecord parse(byte[] bytes, int from, int to) {
+        int fields = splitFields(bytes, from, to);
+        if (fields != FIELD_COUNT) {
+            throw new IllegalArgumentException("Invalid CSV line (expected 7 fields, got " + fields + "): "
+                    + normalizedLine(bytes, from, to));
+        }
+
+        try {
+            return new WeatherRecord(
+                    parseTimestamp(bytes, fieldStarts[0], fieldEnds[0]),
+                    parseCity(bytes, fieldStarts[1], fieldEnds[1]),
+                    parseDecimal(bytes, fieldStarts[2], fieldEnds[2]),
+                    parseDecimal(bytes, fieldStarts[3], fieldEnds[3]),
+                    parseDecimal(bytes, fieldStarts[4], fieldEnds[4]),
+                    parseDecimal(bytes, fieldStarts[5], fieldEnds[5]),
+                    parseDecimal(bytes, fieldStarts[6], fieldEnds[6])
+            );
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Error parsing CSV line: " + normalizedLine(bytes, from, to), e);
+        }
+    }
+
+    // Non-throwing variant for the ingestion hot path: accepts exactly the lines parse() accepts,
+    // but returns null for a bad line and leaves the reason in rejectReason(). Malformed input
+    // is screened before any JDK parser is asked, so dirty files do not pay for exceptions.
+    public WeatherRecord tryParse(CharSequence line) {
+        int length = encodeToScratch(line);
+        return tryParse(scratch, 0, length);
+    }
+
+    public WeatherRecord tryParse(ByteBuffer buffer, int from, int to) {
+        if (buffer.hasArray()) {
+            int offset = buffer.arrayOffset();
+            return tryParse(buffer.array(), offset + from, offset + to);
+        }
+        int length = to - from;
+        ensureScratch(length);
+        buffer.get(from, scratch, 0, length);
+        return tryParse(scratch, 0, length);
+    }
+
+    public WeatherRecord tryParse(byte[] bytes, int from, int to) {
+        rejectReason = null;
+        int fields = splitFields(bytes, from, to);
+        if (fields != FIELD_COUNT) {
+            return reject(trimStart(bytes, from, to) == to ? RejectReason.EMPTY_LINE : RejectReason.FIELD_COUNT);
+        }
+
+        LocalDateTime timestamp = tryParseTimestamp(bytes, fieldStarts[0], fieldEnds[0]);
+        if (timestamp == null) {
+            return reject(RejectReason.BAD_TIMESTAMP);
+        }
+        String city = parseCity(bytes, fieldStarts[1], fieldEnds[1]);
+
+        decimalFailed = false;
+        double temperature = tryParseDecimal(bytes, fieldStarts[2], fieldEnds[2]);
+        if (decimalFailed) {
+            return reject(RejectReason.BAD_TEMPERATURE);
+        }
+        double humidity = tryParseDecimal(bytes, fieldStarts[3], fieldEnds[3]);
+        if (decimalFailed) {
+            return reject(RejectReason.BAD_HUMIDITY);
+        }
+        double rainfall = tryParseDecimal(bytes, fieldStarts[4], fieldEnds[4]);
+        if (decimalFailed) {
+            return reject(RejectReason.BAD_RAINFALL);
+        }
+        double windSpeed = tryParseDecimal(bytes, fieldStarts[5], fieldEnds[5]);
+        if (decimalFailed) {
+            return reject(RejectReason.BAD_WIND_SPEED);
+        }
+        double pressure = tryParseDecimal(bytes, fieldStarts[6], fieldEnds[6]);
+        if (decimalFailed) {
+            return reject(RejectReason.BAD_PRESSURE);
+        }
+        return new WeatherRecord(timestamp, city, temperature, humidity, rainfall, windSpeed, pressure);
+    }
+
+    public RejectReason rejectReason() {
+        return rejectReason;
+    }
+
+    private WeatherRecord reject(RejectReason reason) {
+        rejectReason = reason;
+        return null;
+    }
+
+    // Records trimmed field boundaries and returns the field count the old split(",") would report
+    private int splitFields(byte[] bytes, int from, int to) {
+        int fields = 0;
+        int nonEmptyFields = 0;
+        int fieldStart = from;
+        int lastDecimalEnd = from;
+
+        for (int i = from; i <= to; i++) {
+            if (i < to && bytes[i] != ',') {
+                continue;
+            }
+            if (i < to) {
+                int decimalDigits = decimalCommaDigits(bytes, from, to, i, lastDecimalEnd);
+                if (decimalDigits > 0) {
+                    lastDecimalEnd = i + 1 + decimalDigits;
+                    continue;
+                }
+            }
+
+            if (fields < MAX_TRACKED_FIELDS) {
+                fieldStarts[fields] = trimStart(bytes, fieldStart, i);
+                fieldEnds[fields] = trimEnd(bytes, fieldStarts[fields], i);
+            }
+            fields++;
+            // split(",") drops trailing empty fields, but a lone empty line still counts as one field
+            if (i > fieldStart) {
+                nonEmptyFields = fields;
+            }
+            fieldStart = i + 1;
+        }
+        return fields == 1 ? 1 : nonEmptyFields;
+    }
+
+    // Mirrors the regex (\d),(\d{1,2})(?=,|$) applied left to right without overlapping matches.
+    // Returns the number of decimal digits after the comma at index, or 0 for a field separator.
+    private static int decimalCommaDigits(byte[] bytes, int from, int to, int index, int lastDecimalEnd) {
+        if (index - 1 < Math.max(from, lastDecimalEnd) || !isDigit(bytes[index - 1])
+                || index + 1 >= to || !isDigit(bytes[index + 1])) {
+            return 0;
+        }
+        if (index + 2 < to && isDigit(bytes[index + 2]) && (index + 3 == to || bytes[index + 3] == ',')) {
+            return 2;
+        }
+        if (index + 2 == to || bytes[index + 2] == ',') {
+            return 1;
+        }
+        return 0;
+    }
+
+    private static LocalDateTime parseTimestamp(byte[] bytes, int from, int to) {
+        if (to - from == 19
+                && bytes[from + 4] == '-' && bytes[from + 7] == '-' && bytes[from + 10] == ' '
+                && bytes[from + 13] == ':' && bytes[from + 16] == ':') {
+            int year = digits(bytes, from, 4);
+            int month = digits(bytes, from + 5, 2);
+            int day = digits(bytes, from + 8, 2);
+            int hour = digits(bytes, from + 11, 2);
+            int minute = digits(bytes, from + 14, 2);
+            int second = digits(bytes, from + 17, 2);
+
+            if (year > 0 && month >= 1 && month <= 12 && day >= 1 && day <= monthLength(year, month)
+                    && hour >= 0 && hour <= 23 && minute >= 0 && minute <= 59 && second >= 0 && second <= 59) {
+                return LocalDateTime.of(year, month, day, hour, minute, second);
+            }
+        }
+        // Anything unusual goes through the formatter to keep its resolving rules (e.g. Feb 30 clamping).
+        // Any comma left inside a field is a decimal comma the old regex turned into '.'
+        String text = new String(bytes, from, to - from, StandardCharsets.UTF_8).replace(',', '.');
+        return LocalDateTime.parse(text, TIMESTAMP_FORMAT);
+    }
+
+    private static LocalDateTime tryParseTimestamp(byte[] bytes, int from, int to) {
+        // Fast path of parseTimestamp, which never throws for a well-formed timestamp
+        if (to - from == 19) {
+            int year = digits(bytes, from, 4);
+            int month = digits(bytes, from + 5, 2);
+            int day = digits(bytes, from + 8, 2);
+            int hour = digits(bytes, from + 11, 2);
+            int minute = digits(bytes, from + 14, 2);
+            int second = digits(bytes, from + 17, 2);
+            if (bytes[from + 4] == '-' && bytes[from + 7] == '-' && bytes[from + 10] == ' '
+                    && bytes[from + 13] == ':' && bytes[from + 16] == ':'
+                    && year > 0 && month >= 1 && month <= 12 && day >= 1 && day <= monthLength(year, month)
+                    && hour >= 0 && hour <= 23 && minute >= 0 && minute <= 59 && second >= 0 && second <= 59) {
+                return LocalDateTime.of(year, month, day, hour, minute, second);
+            }
+        }
+
+        // Only text made of characters the pattern can consume is worth handing to the formatter
+        if (to - from < 19) {
+            return null;
+        }
+        for (int i = from; i < to; i++) {
+            byte b = bytes[i];
+            if (!isDigit(b) && b != '-' && b != '+' && b != ' ' && b != ':') {
+                return null;
+            }
+        }
+        try {
+            return parseTimestamp(bytes, from, to);
+        } catch (DateTimeException e) {
+            return null;
+        }
+    }
+
+    private static int monthLength(int year, int month) {
+        return Month.of(month).length(Year.isLeap(year));
+    }
+
+    // Value of count ASCII digits, or -1 if any of them is not a digit
+    private static int digits(byte[] bytes, int from, int count) {
+        int value = 0;
+        for (int i = from; i < from + count; i++) {
+            if (!isDigit(bytes[i])) {
+                return -1;
+            }
+            value = value * 10 + (bytes[i] - '0');
+        }
+        return value;
+    }
+
+    // Plain decimals are computed exactly (mantissa and power of ten both fit a double, so the
+    // division rounds the same way Double.parseDouble does); everything else falls back to it.
+    private static double parseDecimal(byte[] bytes, int from, int to) {
+        int i = from;
+        boolean negative = false;
+        if (i < to && (bytes[i] == '-' || bytes[i] == '+')) {
+            negative = bytes[i] == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int digitCount = 0;
+        int fractionDigits = -1;
+        for (; i < to; i++) {
+            byte b = bytes[i];
+            if (isDigit(b)) {
+                mantissa = mantissa * 10 + (b - '0');
+                digitCount++;
+                if (fractionDigits >= 0) {
+                    fractionDigits++;
+                }
+            } else if ((b == '.' || b == ',') && fractionDigits < 0) {
+                fractionDigits = 0;
+            } else {
+                return parseDecimalSlow(bytes, from, to);
+            }
+        }
+
+        if (digitCount == 0 || digitCount > 18 || mantissa >= MAX_EXACT_MANTISSA) {
+            return parseDecimalSlow(bytes, from, to);
+        }
+        double value = fractionDigits > 0 ? mantissa / POWERS_OF_TEN[fractionDigits] : mantissa;
+        return negative ? -value : value;
+    }
+
+    // parseDecimal that sets decimalFailed instead of throwing
+    private double tryParseDecimal(byte[] bytes, int from, int to) {
+        int i = from;
+        if (i < to && (bytes[i] == '-' || bytes[i] == '+')) {
+            i++;
+        }
+        boolean plain = true;
+        boolean seenDigit = false;
+        boolean seenSeparator = false;
+        for (; i < to && plain; i++) {
+            byte b = bytes[i];
+            if (isDigit(b)) {
+                seenDigit = true;
+            } else if ((b == '.' || b == ',') && !seenSeparator) {
+                seenSeparator = true;
+            } else {
+                plain = false;
+            }
+        }
+        if (plain && seenDigit) {
+            return parseDecimal(bytes, from, to);
+        }
+
+        // Double.parseDouble also takes exponents, hex, NaN/Infinity and d/f suffixes; anything
+        // else (empty, N/A, stray punctuation...) is rejected without asking it
+        if (from == to) {
+            decimalFailed = true;
+            return 0;
+        }
+        for (int j = from; j < to; j++) {
+            if (DOUBLE_LITERAL_CHARS.indexOf(bytes[j]) < 0) {
+                decimalFailed = true;
+                return 0;
+            }
+        }
+        try {
+            return parseDecimalSlow(bytes, from, to);
+        } catch (NumberFormatException e) {
+            decimalFailed = true;
+            return 0;
+        }
+    }
+
+    private static double parseDecimalSlow(byte[] bytes, int from, int to) {
+        return Double.parseDouble(new String(bytes, from, to - from, StandardCharsets.UTF_8).replace(',', '.'));
+    }
+
+    // City names repeat constantly, so reuse the String for byte-identical names
+    private String parseCity(byte[] bytes, int from, int to) {
+        int length = to - from;
+        int hash = 1;
+        for (int i = from; i < to; i++) {
+            if (bytes[i] == ',') {
+                return new String(bytes, from, length, StandardCharsets.UTF_8).replace(',', '.');
+            }
+            hash = 31 * hash + bytes[i];
+        }
+        int slot = (hash ^ (hash >>> 16)) & (CITY_CACHE_SIZE - 1);
+
+        byte[] key = cityKeys[slot];
+        if (key != null && key.length == length && regionEquals(key, bytes, from)) {
+            return cityValues[slot];
+        }
+
+        String city = new String(bytes, from, length, StandardCharsets.UTF_8);
+        byte[] newKey = new byte[length];
+        System.arraycopy(bytes, from, newKey, 0, length);
+        cityKeys[slot] = newKey;
+        cityValues[slot] = city;
+        return city;
+    }
+
+    private static boolean regionEquals(byte[] key, byte[] bytes, int from) {
+        for (int i = 0; i < key.length; i++) {
+            if (key[i] != bytes[from + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int trimStart(byte[] bytes, int from, int to) {
+        while (from < to && (bytes[from] & 0xFF) <= ' ') {
+            from++;
+        }
+        return from;
+    }
+
+    private static int trimEnd(byte[] bytes, int from, int to) {
+        while (to > from && (bytes[to - 1] & 0xFF) <= ' ') {
+            to--;
+        }
+        return to;
+    }
+
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+
+    // Line text as the old implementation reported it (decimal commas already replaced); error path only
+    private String normalizedLine(byte[] bytes, int from, int to) {
+        byte[] copy = new byte[to - from];
+        System.arraycopy(bytes, from, copy, 0, copy.length);
+        int lastDecimalEnd = from;
+        for (int i = from; i < to; i++) {
+            if (bytes[i] == ',') {
+                int decimalDigits = decimalCommaDigits(bytes, from, to, i, lastDecimalEnd);
+                if (decimalDigits > 0) {
+                    copy[i - from] = '.';
+                    lastDecimalEnd = i + 1 + decimalDigits;
+                }
+            }
+        }
+        return new String(copy, StandardCharsets.UTF_8);
+    }
+
+    // UTF-8 encodes the line into the scratch buffer without allocating for lines that fit
+    private int encodeToScratch(CharSequence line) {
+        int length = line.length();
+        ensureScratch(length * 3);
+        int position = 0;
+
+        for (int i = 0; i < length; i++) {
+            char c = line.charAt(i);
+            if (c < 0x80) {
+                scratch[position++] = (byte) c;
+            } else if (c < 0x800) {
+                scratch[position++] = (byte) (0xC0 | (c >> 6));
+                scratch[position++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(line.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, line.charAt(++i));
+                scratch[position++] = (byte) (0xF0 | (codePoint >> 18));
+                scratch[position++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                scratch[position++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                scratch[position++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                scratch[position++] = '?';
+            } else {
+                scratch[position++] = (byte) (0xE0 | (c >> 12));
+                scratch[position++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                scratch[position++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        return position;
+    }
+
+    private void ensureScratch(int length) {
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+    }
+}
@@ -1,11 +1,17 @@
 package com.qbitspark.dataingestionservice;
 
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.concurrent.CompletableFuture;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
 
@@ -17,40 +23,223 @@ public class WeatherDataController {
     @Autowired
     private WeatherDataProducer weatherDataProducer;
 
+    @Autowired
+    private BoundedKafkaSender kafkaSender;
+
+    @Autowired
+    private WeatherEnvelopeBatcher envelopeBatcher;
+
+    @Autowired
+    private IngestionJobRegistry jobRegistry;
+
+    @Autowired
+    private CsvFileFollower fileFollower;
+
+    @Autowired
+    private WeatherPartitioning partitioning;
+
+    @Autowired
+    private WeatherLoadGenerator loadGenerator;
+
+    @Autowired
+    private ReadingDeduplicator deduplicator;
+
+    @Value("${app.load.cities:Dar es Salaam,Dodoma,Arusha,Mwanza,Mbeya}")
+    private List<String> defaultLoadCities;
+
+    @Value("${app.csv.parallelism:1}")
+    private int defaultParallelism;
+
+    @Value("${app.ingestion.file-parallelism:4}")
+    private int defaultFileParallelism;
+
     @GetMapping("/health")
     public ResponseEntity<Map<String, String>> health() {
         Map<String, String> response = new HashMap<>();
         response.put("status", "UP");
         response.put("service", "Data Ingestion Service");
-        response.put("timestamp", java.time.LocalDateTime.now().toString());
+        response.put("timestamp", LocalDateTime.now().toString());
         return ResponseEntity.ok(response);
     }
 
     @PostMapping("/ingest")
-    public ResponseEntity<Map<String, String>> ingestWeatherData(@RequestParam String csvFilePath) {
+    public ResponseEntity<Map<String, String>> ingestWeatherData(@RequestParam String csvFilePath,
+                                                                 @RequestParam(required = false) Integer parallelism,
+                                                                 @RequestParam(defaultValue = "true") boolean resume) {
         log.info("Received request to ingest weather data from: {}", csvFilePath);
 
         Map<String, String> response = new HashMap<>();
 
         try {
+            int workers = parallelism != null ? parallelism : defaultParallelism;
+
             // Run ingestion asynchronously to avoid timeout
-            CompletableFuture.runAsync(() -> {
-                weatherDataProducer.ingestWeatherDataFromCsv(csvFilePath);
-            });
+            IngestionJob job = startIngestion(csvFilePath, workers, resume);
 
             response.put("status", "STARTED");
+            response.put("jobId", job.getId());
             response.put("message", "Weather data ingestion started successfully");
             response.put("csvFile", csvFilePath);
-            response.put("timestamp", java.time.LocalDateTime.now().toString());
+            response.put("parallelism", String.valueOf(workers));
+            response.put("timestamp", LocalDateTime.now().toString());
 
             return ResponseEntity.ok(response);
 
+        } catch (IngestionJobRegistry.JobAlreadyRunningException e) {
+            return alreadyRunning(e);
         } catch (Exception e) {
             log.error("Error starting weather data ingestion", e);
 
             response.put("status", "ERROR");
             response.put("message", "Failed to start ingestion: " + e.getMessage());
-            response.put("timestamp", java.time.LocalDateTime.now().toString());
+            response.put("timestamp", LocalDateTime.now().toString());
+
+            return ResponseEntity.status(500).body(response);
+        }
+    }
+
+    @PostMapping("/ingest/batch")
+    public ResponseEntity<Map<String, String>> ingestWeatherDataFiles(@RequestParam String path,
+                                                                      @RequestParam(required = false) Integer parallelism) {
+        log.info("Received request to ingest weather data files matching: {}", path);
+
+        Map<String, String> response = new HashMap<>();
+
+        try {
+            int workers = parallelism != null ? parallelism : defaultFileParallelism;
+
+            // Files already in the manifest are skipped by the job
+            IngestionJob job = jobRegistry.submitExclusive("batch", path, workers, weatherDataProducer::runBatchJob);
+
+            response.put("status", "STARTED");
+            response.put("jobId", job.getId());
+            response.put("message", "Weather data ingestion started for matching files");
+            response.put("path", path);
+            response.put("parallelism", String.valueOf(workers));
+            response.put("timestamp", LocalDateTime.now().toString());
+
+            return ResponseEntity.ok(response);
+
+        } catch (IngestionJobRegistry.JobAlreadyRunningException e) {
+            return alreadyRunning(e);
+        } catch (Exception e) {
+            log.error("Error starting weather data ingestion", e);
+
+            response.put("status", "ERROR");
+            response.put("message", "Failed to start ingestion: " + e.getMessage());
+            response.put("timestamp", LocalDateTime.now().toString());
+
+            return ResponseEntity.status(500).body(response);
+        }
+    }
+
+    // The body is the CSV itself, plain or gzip. Form content types are not accepted because the
+    // container would try to parse the whole body as parameters.
+    @PostMapping(value = "/ingest/upload", consumes = {"text/csv", "text/plain", "application/gzip",
+            "application/x-gzip", "application/octet-stream"})
+    public ResponseEntity<Map<String, Object>> uploadWeatherData(HttpServletRequest request,
+                                                                @RequestHeader(value = "X-File-Name", defaultValue = "upload.csv") String fileName) {
+        log.info("Receiving weather data upload: {}", fileName);
+
+        try {
+            // Runs on this request thread so the body is consumed while it streams in
+            IngestionJob job = jobRegistry.runInline("upload", fileName, 1, uploadJob -> {
+                try {
+                    weatherDataProducer.runUploadJob(uploadJob, request.getInputStream());
+                } catch (java.io.IOException e) {
+                    throw new java.io.UncheckedIOException(e);
+                }
+            });
+
+            Map<String, Object> response = new HashMap<>(job.toStatus());
+            response.put("timestamp", LocalDateTime.now().toString());
+            return job.getStatus() == IngestionJob.Status.FAILED
+                    ? ResponseEntity.status(500).body(response)
+                    : ResponseEntity.ok(response);
+
+        } catch (Exception e) {
+            log.error("Error ingesting weather data upload", e);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("status", "ERROR");
+            response.put("message", "Failed to ingest upload: " + e.getMessage());
+            response.put("timestamp", LocalDateTime.now().toString());
+
+            return ResponseEntity.status(500).body(response);
+        }
+    }
+
+    @PostMapping("/follow")
+    public ResponseEntity<Map<String, String>> followWeatherData(@RequestParam String csvFilePath,
+                                                                 @RequestParam(defaultValue = "false") boolean fromBeginning) {
+        log.info("Received request to follow weather data file: {}", csvFilePath);
+
+        Map<String, String> response = new HashMap<>();
+
+        try {
+            // Runs until cancelled through DELETE /jobs/{jobId}
+            IngestionJob job = fileFollower.follow(java.nio.file.Path.of(csvFilePath), fromBeginning);
+
+            response.put("status", "FOLLOWING");
+            response.put("jobId", job.getId());
+            response.put("message", "Appended weather data rows will be published as they arrive");
+            response.put("csvFile", csvFilePath);
+            response.put("timestamp", LocalDateTime.now().toString());
+
+            return ResponseEntity.ok(response);
+
+        } catch (Exception e) {
+            log.error("Error starting to follow weather data file", e);
+
+            response.put("status", "ERROR");
+            response.put("message", "Failed to follow file: " + e.getMessage());
+            response.put("timestamp", LocalDateTime.now().toString());
+
+            return ResponseEntity.status(500).body(response);
+        }
+    }
+
+    @PostMapping("/load")
+    public ResponseEntity<Map<String, String>> startLoad(@RequestParam(required = false) List<String> cities,
+                                                         @RequestParam(defaultValue = "100000") long count,
+                                                         @RequestParam(defaultValue = "5000") double rate,
+                                                         @RequestParam(required = false) String start,
+                                                         @RequestParam(defaultValue = "PT1H") String step,
+                                                         @RequestParam(defaultValue = "42") long seed) {
+        Map<String, String> response = new HashMap<>();
+
+        try {
+            List<String> loadCities = cities != null && !cities.isEmpty() ? cities : defaultLoadCities;
+            WeatherLoadGenerator.LoadSpec spec = new WeatherLoadGenerator.LoadSpec(loadCities, count, rate,
+                    start != null ? LocalDateTime.parse(start) : LocalDateTime.of(2023, 1, 1, 0, 0),
+                    Duration.parse(step), seed);
+
+            // rate=0 sends as fast as the in-flight window allows
+            IngestionJob job = jobRegistry.submit("load", String.join(",", loadCities), 1,
+                    loadJob -> loadGenerator.run(loadJob, spec));
+
+            response.put("status", "STARTED");
+            response.put("jobId", job.getId());
+            response.put("message", "Synthetic weather load started");
+            response.put("records", String.valueOf(count));
+            response.put("recordsPerSecond", String.valueOf(rate));
+            response.put("timestamp", LocalDateTime.now().toString());
+
+            return ResponseEntity.ok(response);
+
+        } catch (DateTimeParseException e) {
+            response.put("status", "ERROR");
+            response.put("message", "Invalid start or step: " + e.getMessage());
+            response.put("timestamp", LocalDateTime.now().toString());
+
+            return ResponseEntity.badRequest().body(response);
+
+        } catch (Exception e) {
+            log.error("Error starting load generation", e);
+
+            response.put("status", "ERROR");
+            response.put("message", "Failed to start load generation: " + e.getMessage());
+            response.put("timestamp", LocalDateTime.now().toString());
 
             return ResponseEntity.status(500).body(response);
         }
@@ -67,7 +256,7 @@ public class WeatherDataController {
 
             response.put("status", "SUCCESS");
             response.put("message", "Test weather data sent to Kafka successfully");
-            response.put("timestamp", java.time.LocalDateTime.now().toString());
+            response.put("timestamp", LocalDateTime.now().toString());
 
             return ResponseEntity.ok(response);
 
@@ -76,14 +265,14 @@ public class WeatherDataController {
 
             response.put("status", "ERROR");
             response.put("message", "Failed to send test data: " + e.getMessage());
-            response.put("timestamp", java.time.LocalDateTime.now().toString());
+            response.put("timestamp", LocalDateTime.now().toString());
 
             return ResponseEntity.status(500).body(response);
         }
     }
 
     @PostMapping("/ingest/local")
-    public ResponseEntity<Map<String, String>> ingestLocalWeatherData() {
+    public ResponseEntity<Map<String, String>> ingestLocalWeatherData(@RequestParam(defaultValue = "true") boolean resume) {
         // Default path for our Tanzania weather data
         String defaultCsvPath = "tanzania_weather_data.csv";
 
@@ -93,29 +282,78 @@ public class WeatherDataController {
 
         try {
             // Run ingestion asynchronously
-            CompletableFuture.runAsync(() -> {
-                weatherDataProducer.ingestWeatherDataFromCsv(defaultCsvPath);
-            });
+            IngestionJob job = startIngestion(defaultCsvPath, defaultParallelism, resume);
 
             response.put("status", "STARTED");
+            response.put("jobId", job.getId());
             response.put("message", "Tanzania weather data ingestion started");
             response.put("csvFile", defaultCsvPath);
+            response.put("parallelism", String.valueOf(defaultParallelism));
             response.put("expectedRecords", "2,300,000+");
-            response.put("timestamp", java.time.LocalDateTime.now().toString());
+            response.put("timestamp", LocalDateTime.now().toString());
 
             return ResponseEntity.ok(response);
 
+        } catch (IngestionJobRegistry.JobAlreadyRunningException e) {
+            return alreadyRunning(e);
         } catch (Exception e) {
             log.error("Error starting local weather data ingestion", e);
 
             response.put("status", "ERROR");
             response.put("message", "Failed to start ingestion: " + e.getMessage());
-            response.put("timestamp", java.time.LocalDateTime.now().toString());
+            response.put("timestamp", LocalDateTime.now().toString());
 
             return ResponseEntity.status(500).body(response);
         }
     }
 
+    private IngestionJob startIngestion(String csvFilePath, int parallelism, boolean resume) {
+        return jobRegistry.submitExclusive("csv", csvFilePath, parallelism,
+                job -> weatherDataProducer.runCsvJob(job, resume));
+    }
+
+    private static ResponseEntity<Map<String, String>> alreadyRunning(IngestionJobRegistry.JobAlreadyRunningException e) {
+        Map<String, String> response = new HashMap<>();
+        response.put("status", "CONFLICT");
+        response.put("jobId", e.getRunningJob().getId());
+        response.put("message", e.getMessage());
+        response.put("timestamp", LocalDateTime.now().toString());
+        return ResponseEntity.status(409).body(response);
+    }
+
+    @GetMapping("/jobs")
+    public ResponseEntity<List<Map<String, Object>>> listJobs() {
+        List<Map<String, Object>> jobs = jobRegistry.list().stream()
+                .sorted(Comparator.comparing(IngestionJob::getStartedAt).reversed())
+                .map(IngestionJob::toStatus)
+                .toList();
+        return ResponseEntity.ok(jobs);
+    }
+
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<Map<String, Object>> getJob(@PathVariable String jobId) {
+        return jobRegistry.get(jobId)
+                .map(job -> ResponseEntity.ok(job.toStatus()))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @DeleteMapping("/jobs/{jobId}")
+    public ResponseEntity<Map<String, Object>> cancelJob(@PathVariable String jobId) {
+        if (jobRegistry.get(jobId).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        boolean cancelled = jobRegistry.cancel(jobId);
+        response.put("jobId", jobId);
+        response.put("status", cancelled ? "CANCELLING" : "NOT_RUNNING");
+        response.put("message", cancelled
+                ? "Job will stop after the lines in progress; its checkpoint is kept for resume"
+                : "Job has already finished");
+        response.put("timestamp", LocalDateTime.now().toString());
+        return ResponseEntity.ok(response);
+    }
+
     @GetMapping("/status")
     public ResponseEntity<Map<String, String>> getIngestionStatus() {
         Map<String, String> response = new HashMap<>();
@@ -123,8 +361,63 @@ public class WeatherDataController {
         response.put("description", "Kafka producer for Tanzania weather data");
         response.put("kafkaTopic", "weather-data");
         response.put("supportedFormats", "CSV");
-        response.put("timestamp", java.time.LocalDateTime.now().toString());
+        response.put("timestamp", LocalDateTime.now().toString());
+
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/partitioning/report")
+    public ResponseEntity<Map<String, Object>> getPartitioningReport(@RequestParam String csvFilePath,
+                                                                     @RequestParam(required = false) String strategy,
+                                                                     @RequestParam(required = false) Integer partitions) {
+        try {
+            Map<String, Object> response = new HashMap<>(
+                    partitioning.report(java.nio.file.Path.of(csvFilePath), strategy, partitions));
+            response.put("timestamp", LocalDateTime.now().toString());
+            return ResponseEntity.ok(response);
+
+        } catch (IllegalArgumentException e) {
+            Map<String, Object> response = new HashMap<>();
+            response.put("status", "ERROR");
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        } catch (Exception e) {
+            log.error("Error building partitioning report for: {}", csvFilePath, e);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("status", "ERROR");
+            response.put("message", "Failed to build report: " + e.getMessage());
+            response.put("timestamp", LocalDateTime.now().toString());
+            return ResponseEntity.status(500).body(response);
+        }
+    }
+
+    @GetMapping("/dedup")
+    public ResponseEntity<Map<String, Object>> getDedupStats() {
+        Map<String, Object> response = new HashMap<>(deduplicator.getStats());
+        response.put("timestamp", LocalDateTime.now().toString());
+        return ResponseEntity.ok(response);
+    }
+
+    // Forget every reading seen so far, e.g. after the weather_data table was emptied
+    @DeleteMapping("/dedup")
+    public ResponseEntity<Map<String, Object>> clearDedup() {
+        deduplicator.clear();
+
+        Map<String, Object> response = new HashMap<>(deduplicator.getStats());
+        response.put("status", "CLEARED");
+        response.put("timestamp", LocalDateTime.now().toString());
+        return ResponseEntity.ok(response);
+    }
+
+    @GetMapping("/producer/stats")
+    public ResponseEntity<Map<String, Object>> getProducerStats() {
+        Map<String, Object> response = new HashMap<>(kafkaSender.getStats());
+        response.put("envelopesSent", envelopeBatcher.getEnvelopesSent());
+        response.put("envelopeRecordsSent", envelopeBatcher.getRecordsSent());
+        response.put("envelopeOpenKeys", envelopeBatcher.getOpenKeys());
+        response.put("timestamp", LocalDateTime.now().toString());
 
         return ResponseEntity.ok(response);
     }
-}
\ No newline at end of file
+}
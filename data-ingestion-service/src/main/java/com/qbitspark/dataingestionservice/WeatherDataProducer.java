@@ -2,75 +2,455 @@ package com.qbitspark.dataingestionservice;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPInputStream;
 
 @RequiredArgsConstructor
 @Service
 @Slf4j
 public class WeatherDataProducer {
 
-    private static final String TOPIC_NAME = "weather-data";
+    static final String TOPIC_NAME = "weather-data";
 
-    private final KafkaTemplate<String, String> kafkaTemplate;
+    private static final int PROGRESS_MERGE_INTERVAL = 1000;
+    private static final int STREAM_BUFFER_BYTES = 1 << 16;
 
-    public void ingestWeatherDataFromCsv(String csvFilePath) {
-        log.info("Starting weather data ingestion from: {}", csvFilePath);
+    private static final byte[] JSON_FORMAT_HEADER = WeatherRecordCodec.FORMAT_JSON.getBytes(StandardCharsets.UTF_8);
+    private static final byte[] BINARY_FORMAT_HEADER = WeatherRecordCodec.FORMAT_BINARY.getBytes(StandardCharsets.UTF_8);
 
-        try (BufferedReader reader = new BufferedReader(new FileReader(csvFilePath))) {
-            String line;
-            int recordCount = 0;
-            int batchCount = 0;
+    private final BoundedKafkaSender kafkaSender;
+    private final WeatherEnvelopeBatcher envelopeBatcher;
+    private final IngestionCheckpointStore checkpointStore;
+    private final IngestionManifest manifest;
+    private final WeatherPartitioning partitioning;
+    private final RejectQuarantine quarantine;
+    private final ReadingDeduplicator deduplicator;
+
+    // json (default, readable by every consumer), binary or envelope
+    @Value("${app.kafka.wire-format:json}")
+    private String wireFormat;
+
+    // Runs a file ingestion job: memory-maps the file, splits it into line-aligned ranges
+    // and lets each worker parse and send its own range. Parallelism 1 is one worker over a
+    // single range; more workers produce the same records, only interleaved. The offset up to
+    // which every line is acknowledged is checkpointed per range, so with resume=true a job
+    // on an unchanged file continues after the last checkpoint instead of starting over.
+    public void runCsvJob(IngestionJob job, boolean resume) {
+        Path file = Path.of(job.getSource());
+        int parallelism = Math.max(job.getParallelism(), 1);
+        log.info("Starting weather data ingestion job {} from: {} with {} workers", job.getId(), file, parallelism);
+
+        AtomicInteger workerIds = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(parallelism,
+                runnable -> new Thread(runnable, "csv-worker-" + workerIds.incrementAndGet()));
+        IngestionCheckpointStore.ScheduledCheckpoints checkpoints = null;
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            FileLineIndex lines = new FileLineIndex(file.toString(), channel);
+            List<ChunkProgress> chunks = resume ? checkpointStore.load(file).orElse(null) : null;
+            if (chunks == null) {
+                chunks = CsvChunkReader.split(channel, parallelism, true).stream()
+                        .map(chunk -> new ChunkProgress(chunk.index(), chunk.start(), chunk.end(), chunk.start()))
+                        .toList();
+                log.info("Split {} bytes into {} ranges", channel.size(), chunks.size());
+            } else {
+                job.setResumedFromBytes(chunks.stream().mapToLong(chunk -> chunk.committedOffset() - chunk.getStart()).sum());
+                log.info("Resuming {} from checkpoint, {} bytes already acknowledged", file, job.getResumedFromBytes());
+                if (chunks.size() != parallelism) {
+                    // The ranges are fixed by the checkpoint; parallelism only caps how many run at once
+                    log.warn("Resuming {} with the {} ranges of its checkpoint instead of splitting it for {} workers",
+                            file, chunks.size(), parallelism);
+                }
+            }
+            job.setChunks(chunks);
+            checkpoints = checkpointStore.scheduleCheckpoints(job, file);
+
+            List<Future<?>> results = new ArrayList<>(chunks.size());
+            for (ChunkProgress chunk : chunks) {
+                if (!chunk.isComplete()) {
+                    results.add(workers.submit(() -> {
+                        ingestChunk(channel, lines, chunk, job);
+                        return null;
+                    }));
+                }
+            }
+
+            boolean cancelled = false;
+            for (Future<?> result : results) {
+                try {
+                    result.get();
+                } catch (ExecutionException e) {
+                    if (!(e.getCause() instanceof CancellationException)) {
+                        throw e;
+                    }
+                    cancelled = true;
+                }
+            }
+
+            // Wait for the last acknowledgements so the final checkpoint is exact
+            awaitAcknowledgements();
+            checkpoints.stop();
+
+            boolean complete = chunks.stream().allMatch(ChunkProgress::isComplete);
+            if (complete) {
+                checkpointStore.delete(file);
+            } else {
+                checkpointStore.save(job, file);
+            }
+
+            if (cancelled) {
+                log.info("Weather data ingestion job {} cancelled after {} records", job.getId(), job.getRecords().get());
+                job.finish(IngestionJob.Status.CANCELLED);
+            } else if (!complete) {
+                throw new IllegalStateException(job.getSendFailures().sum() + " records were not acknowledged; resume the job to retry");
+            } else {
+                log.info("✅ Weather data ingestion job {} completed! Total records processed: {}, errors: {}",
+                        job.getId(), job.getRecords().get(), job.getErrors().sum());
+                job.finish(IngestionJob.Status.COMPLETED);
+            }
+
+        } catch (IOException e) {
+            log.error("Error reading CSV file: {}", file, e);
+            throw new RuntimeException("Failed to read weather data file", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Weather data ingestion interrupted", e);
+        } catch (ExecutionException e) {
+            log.error("Error ingesting CSV file: {}", file, e.getCause());
+            throw new RuntimeException("Failed to ingest weather data file", e.getCause());
+        } finally {
+            if (checkpoints != null) {
+                checkpoints.stop();
+            }
+            workers.shutdownNow();
+        }
+    }
+
+    // Runs a directory/glob job: every matching file not yet in the manifest is ingested on
+    // its own worker, up to the job's parallelism at a time. Plain files go through the
+    // memory-mapped reader, gzip files are streamed through a decompressor. A file enters
+    // the manifest only once all of its records are acknowledged.
+    public void runBatchJob(IngestionJob job) {
+        int parallelism = Math.max(job.getParallelism(), 1);
+        AtomicInteger workerIds = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(parallelism,
+                runnable -> new Thread(runnable, "file-worker-" + workerIds.incrementAndGet()));
 
+        try {
+            List<Path> files = CsvFileResolver.resolve(job.getSource());
+            job.setFilesMatched(files.size());
+            log.info("Starting weather data ingestion job {} for {} files matching {} with {} workers",
+                    job.getId(), files.size(), job.getSource(), parallelism);
+
+            List<Future<?>> results = new ArrayList<>(files.size());
+            for (Path file : files) {
+                results.add(workers.submit(() -> ingestManifestFile(file, job)));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+
+            if (job.isCancelRequested()) {
+                job.finish(IngestionJob.Status.CANCELLED);
+            } else if (job.getFilesFailed().sum() > 0) {
+                throw new IllegalStateException(job.getFilesFailed().sum() + " files were not fully ingested; run the job again to retry them");
+            } else {
+                log.info("✅ Weather data ingestion job {} completed! Files ingested: {}, skipped: {}, records: {}",
+                        job.getId(), job.getFilesIngested().sum(), job.getFilesSkipped().sum(), job.getRecords().get());
+                job.finish(IngestionJob.Status.COMPLETED);
+            }
+
+        } catch (IOException e) {
+            log.error("Error listing CSV files: {}", job.getSource(), e);
+            throw new RuntimeException("Failed to list weather data files", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Weather data ingestion interrupted", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Failed to ingest weather data files", e.getCause());
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    private void ingestManifestFile(Path file, IngestionJob job) {
+        if (job.isCancelRequested()) {
+            return;
+        }
+
+        try {
+            // Taken before the file is opened: rows appended while it is read are not recorded as ingested
+            IngestionManifest.FileState state = IngestionManifest.stat(file);
+            if (manifest.isIngested(state)) {
+                log.debug("Skipping {}: already ingested", file);
+                job.getFilesSkipped().increment();
+                return;
+            }
+
+            boolean acknowledged = CsvFileResolver.isGzip(file) ? ingestGzipFile(file, job) : ingestPlainFile(file, job);
+            if (acknowledged) {
+                manifest.recordIngested(state);
+                job.getFilesIngested().increment();
+                log.info("Ingested {}", file);
+            } else {
+                job.getFilesFailed().increment();
+                log.warn("Not all records of {} were acknowledged; it stays out of the manifest", file);
+            }
+        } catch (CancellationException e) {
+            log.info("Ingestion of {} cancelled", file);
+        } catch (Exception e) {
+            job.getFilesFailed().increment();
+            log.error("Error ingesting CSV file: {}", file, e);
+        }
+    }
+
+    private boolean ingestPlainFile(Path file, IngestionJob job) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            FileLineIndex lines = new FileLineIndex(file.toString(), channel);
+            List<ChunkProgress> ranges = new ArrayList<>();
+            for (CsvChunkReader.Chunk chunk : CsvChunkReader.split(channel, 1, true)) {
+                ChunkProgress range = new ChunkProgress(chunk.index(), chunk.start(), chunk.end(), chunk.start());
+                ingestChunk(channel, lines, range, job);
+                ranges.add(range);
+            }
+            awaitAcknowledgements();
+            return ranges.stream().allMatch(ChunkProgress::isComplete);
+        }
+    }
+
+    private boolean ingestGzipFile(Path file, IngestionJob job) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return ingestStream(in, file.toString(), job);
+        }
+    }
+
+    // Upload job: the request body is parsed and published while it is still arriving, so
+    // memory stays bounded by the reader buffer and the in-flight window, not the upload size
+    public void runUploadJob(IngestionJob job, InputStream body) throws IOException {
+        log.info("Starting weather data upload job {} from: {}", job.getId(), job.getSource());
+
+        try {
+            boolean acknowledged = ingestStream(body, job.getSource(), job);
+            if (!acknowledged) {
+                throw new IllegalStateException(job.getSendFailures().sum() + " records were not acknowledged");
+            }
+            log.info("✅ Weather data upload job {} completed! Total records processed: {}, errors: {}",
+                    job.getId(), job.getRecords().get(), job.getErrors().sum());
+            job.finish(IngestionJob.Status.COMPLETED);
+        } catch (CancellationException e) {
+            log.info("Weather data upload job {} cancelled after {} records", job.getId(), job.getRecords().get());
+            job.finish(IngestionJob.Status.CANCELLED);
+        }
+    }
+
+    // Reads CSV text line by line, gzip or plain (detected from the first bytes), and sends
+    // every record. Returns whether all sends were acknowledged.
+    private boolean ingestStream(InputStream in, String source, IngestionJob job) throws IOException {
+        WeatherCsvParser parser = new WeatherCsvParser();
+        LongAdder failures = new LongAdder();
+        // {records, bytes}; bytes counts decompressed characters here
+        long[] localCount = new long[2];
+        long lineNumber = 1;
+
+        BufferedInputStream buffered = new BufferedInputStream(in, STREAM_BUFFER_BYTES);
+        buffered.mark(2);
+        boolean gzip = buffered.read() == 0x1f && buffered.read() == 0x8b;
+        buffered.reset();
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                gzip ? new GZIPInputStream(buffered, STREAM_BUFFER_BYTES) : buffered, StandardCharsets.UTF_8))) {
             // Skip header line
             reader.readLine();
 
+            String line;
             while ((line = reader.readLine()) != null) {
-                try {
-                    // Parse CSV line to WeatherRecord
-                    WeatherRecord weatherRecord = WeatherRecord.fromCsvLine(line);
-
-                    // Send to Kafka (async)
-                    sendWeatherRecord(weatherRecord);
+                if (job.isCancelRequested()) {
+                    throw new CancellationException("Ingestion job " + job.getId() + " cancelled");
+                }
 
-                    recordCount++;
+                lineNumber++;
+                localCount[1] += line.length() + 1;
+                WeatherRecord weatherRecord = parser.tryParse(line);
+                if (weatherRecord == null) {
+                    quarantine.reject(job, source, lineNumber, -1, parser.rejectReason(), line.getBytes(StandardCharsets.UTF_8));
+                    continue;
+                }
 
-                    // Log progress every 10,000 records
-                    if (recordCount % 10000 == 0) {
-                        log.info("Processed {} weather records...", recordCount);
+                sendWeatherRecord(weatherRecord).whenComplete((result, ex) -> {
+                    if (ex != null) {
+                        failures.increment();
+                        job.getSendFailures().increment();
                     }
+                });
+                if (++localCount[0] == PROGRESS_MERGE_INTERVAL) {
+                    mergeProgress(job, localCount);
+                }
+            }
+        } finally {
+            mergeProgress(job, localCount);
+        }
+
+        awaitAcknowledgements();
+        return failures.sum() == 0;
+    }
+
+    // Sends open envelopes and waits until the producer has completed everything sent so far
+    void awaitAcknowledgements() {
+        envelopeBatcher.flushAll();
+        kafkaSender.flush();
+    }
+
+    private void ingestChunk(FileChannel channel, FileLineIndex lines, ChunkProgress progress, IngestionJob job) throws IOException {
+        ingestRange(channel, lines, progress, progress.committedOffset(), progress.getEnd(), job);
+    }
+
+    // Parses and sends the complete lines in [from, to), reporting each line to progress.
+    // Lines that do not parse go to the quarantine; no exception is built for them.
+    void ingestRange(FileChannel channel, FileLineIndex lines, ChunkProgress progress,
+                     long from, long to, IngestionJob job) throws IOException {
+        WeatherCsvParser parser = new WeatherCsvParser();
+        long base = from;
+        long[] localCount = new long[2];
+        // Lines seen in this range, and the file line number of its first line once known
+        long[] lineInRange = {0, -1};
+
+        CsvChunkReader.Chunk chunk = new CsvChunkReader.Chunk(progress.getIndex(), base, to);
+        CsvChunkReader.readLines(channel, chunk, (buffer, start, end, next) -> {
+            if (job.isCancelRequested()) {
+                throw new CancellationException("Ingestion job " + job.getId() + " cancelled");
+            }
+
+            long lineStart = base + start;
+            long lineIndex = lineInRange[0]++;
+            localCount[1] += next - start;
 
-                } catch (Exception e) {
-                    log.error("Error processing line: {}", line, e);
+            WeatherRecord weatherRecord = parser.tryParse(buffer, start, end);
+            if (weatherRecord == null) {
+                progress.skipped(base + next);
+                if (lineInRange[1] < 0) {
+                    lineInRange[1] = lineNumberAt(lines, base);
                 }
+                byte[] line = new byte[end - start];
+                buffer.get(start, line);
+                quarantine.reject(job, lines.source(), lineInRange[1] + lineIndex, lineStart, parser.rejectReason(), line);
+                return;
             }
 
-            log.info("✅ Weather data ingestion completed! Total records processed: {}", recordCount);
+            progress.submitted(lineStart, base + next);
+            sendWeatherRecord(weatherRecord).whenComplete((result, ex) -> {
+                if (ex != null) {
+                    job.getSendFailures().increment();
+                } else {
+                    progress.acknowledged(lineStart);
+                }
+            });
+
+            // Merge into the shared counters in steps to keep workers off the same cache line
+            if (++localCount[0] == PROGRESS_MERGE_INTERVAL) {
+                mergeProgress(job, localCount);
+            }
+        });
 
+        mergeProgress(job, localCount);
+        log.debug("Finished range {} [{}-{})", progress.getIndex(), base, to);
+    }
+
+    private static long lineNumberAt(FileLineIndex lines, long offset) {
+        try {
+            return lines.lineNumberAt(offset);
         } catch (IOException e) {
-            log.error("Error reading CSV file: {}", csvFilePath, e);
-            throw new RuntimeException("Failed to read weather data file", e);
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // localCount holds {records, bytes} since the last merge and is reset
+    private void mergeProgress(IngestionJob job, long[] localCount) {
+        long delta = localCount[0];
+        job.getBytesRead().add(localCount[1]);
+        localCount[0] = 0;
+        localCount[1] = 0;
+
+        long before = job.getRecords().getAndAdd(delta);
+        long after = before + delta;
+
+        // Log progress every 10,000 records
+        if (after / 10000 > before / 10000) {
+            log.info("Processed {} weather records...", after / 10000 * 10000);
         }
     }
 
-    private void sendWeatherRecord(WeatherRecord weatherRecord) {
+    // Returns a future completed when Kafka has acknowledged the record (or at once for a
+    // reading the dedup stage has already seen or is still sending)
+    CompletableFuture<?> sendWeatherRecord(WeatherRecord weatherRecord) {
+        if (!deduplicator.isEnabled()) {
+            return publish(weatherRecord);
+        }
+        if (deduplicator.isDuplicate(weatherRecord)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<?> sent;
         try {
-            // Use city as the key for partitioning
-            String key = weatherRecord.getCity();
-            String value = weatherRecord.toString(); // JSON format
+            sent = publish(weatherRecord);
+        } catch (RuntimeException e) {
+            deduplicator.failed(weatherRecord);
+            throw e;
+        }
+        return sent.whenComplete((result, ex) -> {
+            if (ex == null) {
+                deduplicator.acknowledged(weatherRecord);
+            } else {
+                deduplicator.failed(weatherRecord);
+            }
+        });
+    }
+
+    private CompletableFuture<?> publish(WeatherRecord weatherRecord) {
+        if ("envelope".equalsIgnoreCase(wireFormat)) {
+            return envelopeBatcher.add(partitioning.keyFor(weatherRecord), weatherRecord);
+        }
+
+        try {
+            // Key chosen by the configured partitioning strategy (the city by default)
+            String key = partitioning.keyFor(weatherRecord);
+            boolean binary = "binary".equalsIgnoreCase(wireFormat);
+
+            ProducerRecord<String, byte[]> producerRecord = new ProducerRecord<>(TOPIC_NAME, key,
+                    binary ? WeatherRecordCodec.encode(weatherRecord) : weatherRecord.toString().getBytes(StandardCharsets.UTF_8));
+            producerRecord.headers().add(WeatherRecordCodec.FORMAT_HEADER,
+                    binary ? BINARY_FORMAT_HEADER : JSON_FORMAT_HEADER);
 
             // Send to Kafka topic
-            CompletableFuture<org.springframework.kafka.support.SendResult<String, String>> future =
-                    kafkaTemplate.send(TOPIC_NAME, key, value);
+            // Blocks while the in-flight window is full
+            CompletableFuture<org.springframework.kafka.support.SendResult<String, byte[]>> future =
+                    kafkaSender.send(producerRecord);
 
             // Optional: Handle success/failure (for production)
-            future.whenComplete((result, ex) -> {
+            return future.whenComplete((result, ex) -> {
                 if (ex != null) {
                     log.error("Failed to send weather record for city: {}", weatherRecord.getCity(), ex);
                 }
@@ -78,6 +458,7 @@ public class WeatherDataProducer {
 
         } catch (Exception e) {
             log.error("Error sending weather record to Kafka: {}", weatherRecord, e);
+            return CompletableFuture.failedFuture(e);
         }
     }
 
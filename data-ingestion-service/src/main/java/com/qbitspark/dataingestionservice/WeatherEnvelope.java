@@ -0,0 +1,174 @@
+package com.qbitspark.dataingestionservice;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+// Columnar batch of readings for one city, sent as a single Kafka message (format wr-batch-v1).
+// Must stay in sync with the envelope decoder in data-storage-service's WeatherRecordCodec.
+//
+// Layout (big-endian), version 1:
+//   byte      version
+//   short     city length, followed by the UTF-8 city bytes
+//   int       record count n
+//   n varints timestamps as zig-zag deltas from the previous one (epoch ms, first from 0)
+//   n ints    temperature x10, then n humidity x10, n rainfall x100, n wind speed x10, n pressure x10
+public class WeatherEnvelope {
+
+    public static final byte VERSION = 1;
+
+    private static final int MAX_VARINT_BYTES = 10;
+    // Smallest encoding of one reading: a one-byte varint plus five ints
+    private static final int MIN_READING_BYTES = 1 + 5 * 4;
+
+    private final String city;
+    private final long createdAtNanos = System.nanoTime();
+    // Completed once the broker has acknowledged (or rejected) this envelope
+    private final CompletableFuture<Void> sent = new CompletableFuture<>();
+    private final long[] timestamps;
+    private final int[] temperature;
+    private final int[] humidity;
+    private final int[] rainfall;
+    private final int[] windSpeed;
+    private final int[] pressure;
+    private int size;
+
+    public WeatherEnvelope(String city, int capacity) {
+        this.city = city;
+        this.timestamps = new long[capacity];
+        this.temperature = new int[capacity];
+        this.humidity = new int[capacity];
+        this.rainfall = new int[capacity];
+        this.windSpeed = new int[capacity];
+        this.pressure = new int[capacity];
+    }
+
+    public void add(WeatherRecord weatherRecord) {
+        timestamps[size] = weatherRecord.getTimestamp().toInstant(ZoneOffset.UTC).toEpochMilli();
+        temperature[size] = WeatherRecordCodec.scale("temperature", weatherRecord.getTemperature(), 10);
+        humidity[size] = WeatherRecordCodec.scale("humidity", weatherRecord.getHumidity(), 10);
+        rainfall[size] = WeatherRecordCodec.scale("rainfall", weatherRecord.getRainfall(), 100);
+        windSpeed[size] = WeatherRecordCodec.scale("windSpeed", weatherRecord.getWindSpeed(), 10);
+        pressure[size] = WeatherRecordCodec.scale("pressure", weatherRecord.getPressure(), 10);
+        size++;
+    }
+
+    public CompletableFuture<Void> sent() {
+        return sent;
+    }
+
+    public String getCity() {
+        return city;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isFull() {
+        return size == timestamps.length;
+    }
+
+    public long ageMillis() {
+        return (System.nanoTime() - createdAtNanos) / 1_000_000;
+    }
+
+    public byte[] encode() {
+        byte[] cityBytes = city.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(1 + 2 + cityBytes.length + 4 + size * (MAX_VARINT_BYTES + 5 * 4));
+
+        buffer.put(VERSION);
+        buffer.putShort((short) cityBytes.length);
+        buffer.put(cityBytes);
+        buffer.putInt(size);
+
+        long previous = 0;
+        for (int i = 0; i < size; i++) {
+            putVarLong(buffer, zigZag(timestamps[i] - previous));
+            previous = timestamps[i];
+        }
+        for (int[] column : new int[][]{temperature, humidity, rainfall, windSpeed, pressure}) {
+            for (int i = 0; i < size; i++) {
+                buffer.putInt(column[i]);
+            }
+        }
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    public static List<WeatherRecord> decode(byte[] message) {
+        ByteBuffer buffer = ByteBuffer.wrap(message);
+        byte version = buffer.get();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported weather envelope version: " + version);
+        }
+
+        int cityLength = buffer.getShort();
+        String city = new String(message, buffer.position(), cityLength, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + cityLength);
+        int count = buffer.getInt();
+        if (count < 0 || count > buffer.remaining() / MIN_READING_BYTES) {
+            throw new IllegalArgumentException("Invalid weather envelope record count " + count
+                    + " for " + buffer.remaining() + " remaining bytes");
+        }
+
+        List<WeatherRecord> records = new ArrayList<>(count);
+        long timestamp = 0;
+        for (int i = 0; i < count; i++) {
+            timestamp += unZigZag(getVarLong(buffer));
+            WeatherRecord weatherRecord = new WeatherRecord();
+            weatherRecord.setCity(city);
+            weatherRecord.setTimestamp(LocalDateTime.ofInstant(Instant.ofEpochMilli(timestamp), ZoneOffset.UTC));
+            records.add(weatherRecord);
+        }
+        for (WeatherRecord weatherRecord : records) {
+            weatherRecord.setTemperature(buffer.getInt() / 10.0);
+        }
+        for (WeatherRecord weatherRecord : records) {
+            weatherRecord.setHumidity(buffer.getInt() / 10.0);
+        }
+        for (WeatherRecord weatherRecord : records) {
+            weatherRecord.setRainfall(buffer.getInt() / 100.0);
+        }
+        for (WeatherRecord weatherRecord : records) {
+            weatherRecord.setWindSpeed(buffer.getInt() / 10.0);
+        }
+        for (WeatherRecord weatherRecord : records) {
+            weatherRecord.setPressure(buffer.getInt() / 10.0);
+        }
+        return records;
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void putVarLong(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static long getVarLong(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint in weather envelope");
+    }
+}
@@ -0,0 +1,171 @@
+package com.qbitspark.dataingestionservice;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Packs records per Kafka key into WeatherEnvelope messages: an envelope is sent when it holds
+// max-records readings or has been open for max-age-ms. Each key has its own lock and envelopes
+// are sent while holding it, so per-key order on the topic is preserved. Every partitioning
+// strategy maps a key to a single city, so an envelope still carries one city. A key's buffer is
+// dropped once its envelope is sent: city-time-bucket keys are never reused after their bucket,
+// and an envelope never spans two buckets, so the bucket must hold many readings per city for
+// envelopes to fill.
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class WeatherEnvelopeBatcher {
+
+    private static final byte[] ENVELOPE_FORMAT_HEADER = WeatherRecordCodec.FORMAT_ENVELOPE.getBytes(StandardCharsets.UTF_8);
+
+    private final BoundedKafkaSender kafkaSender;
+
+    @Value("${app.kafka.envelope.max-records:500}")
+    private int maxRecords;
+
+    @Value("${app.kafka.envelope.max-age-ms:1000}")
+    private long maxAgeMs;
+
+    private final Map<String, KeyBuffer> keyBuffers = new ConcurrentHashMap<>();
+    private final AtomicLong envelopesSent = new AtomicLong();
+    private final AtomicLong recordsSent = new AtomicLong();
+    private ScheduledExecutorService flusher;
+
+    @PostConstruct
+    void startFlusher() {
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "envelope-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = Math.max(maxAgeMs / 2, 10);
+        flusher.scheduleWithFixedDelay(this::flushExpired, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stopFlusher() {
+        flusher.shutdownNow();
+        flushAll();
+    }
+
+    // Returns a future completed when the envelope carrying this record is acknowledged
+    public CompletableFuture<Void> add(String key, WeatherRecord weatherRecord) {
+        while (true) {
+            KeyBuffer buffer = keyBuffers.computeIfAbsent(key, KeyBuffer::new);
+            synchronized (buffer) {
+                if (buffer.removed) {
+                    // Sent and dropped between the lookup and the lock; take the next buffer
+                    continue;
+                }
+                if (buffer.envelope == null) {
+                    buffer.envelope = new WeatherEnvelope(weatherRecord.getCity(), maxRecords);
+                }
+                WeatherEnvelope envelope = buffer.envelope;
+                envelope.add(weatherRecord);
+                if (envelope.isFull()) {
+                    send(buffer);
+                }
+                return envelope.sent();
+            }
+        }
+    }
+
+    // Sends every open envelope regardless of age, e.g. at the end of an ingestion run
+    public void flushAll() {
+        for (KeyBuffer buffer : keyBuffers.values()) {
+            synchronized (buffer) {
+                if (buffer.envelope != null) {
+                    send(buffer);
+                }
+            }
+        }
+    }
+
+    private void flushExpired() {
+        try {
+            for (KeyBuffer buffer : keyBuffers.values()) {
+                synchronized (buffer) {
+                    if (buffer.envelope != null && buffer.envelope.ageMillis() >= maxAgeMs) {
+                        send(buffer);
+                    }
+                }
+            }
+        } catch (Exception e) {
+            log.error("Error flushing weather envelopes", e);
+        }
+    }
+
+    // Caller holds the buffer lock. The buffer leaves the map only after the envelope is handed to
+    // the producer, so a later envelope for the same key cannot overtake it.
+    private void send(KeyBuffer buffer) {
+        WeatherEnvelope envelope = buffer.envelope;
+        buffer.envelope = null;
+        try {
+            sendEnvelope(buffer.key, envelope);
+        } finally {
+            buffer.removed = true;
+            keyBuffers.remove(buffer.key, buffer);
+        }
+    }
+
+    private void sendEnvelope(String key, WeatherEnvelope envelope) {
+        ProducerRecord<String, byte[]> producerRecord =
+                new ProducerRecord<>(WeatherDataProducer.TOPIC_NAME, key, envelope.encode());
+        producerRecord.headers().add(WeatherRecordCodec.FORMAT_HEADER, ENVELOPE_FORMAT_HEADER);
+
+        try {
+            kafkaSender.send(producerRecord).whenComplete((result, ex) -> {
+                if (ex != null) {
+                    log.error("Failed to send weather envelope for city: {} ({} records)",
+                            envelope.getCity(), envelope.size(), ex);
+                    envelope.sent().completeExceptionally(ex);
+                } else {
+                    envelope.sent().complete(null);
+                }
+            });
+        } catch (RuntimeException e) {
+            envelope.sent().completeExceptionally(e);
+            throw e;
+        }
+
+        envelopesSent.incrementAndGet();
+        recordsSent.addAndGet(envelope.size());
+        log.debug("Sent envelope for {} with {} records", envelope.getCity(), envelope.size());
+    }
+
+    public long getEnvelopesSent() {
+        return envelopesSent.get();
+    }
+
+    public long getRecordsSent() {
+        return recordsSent.get();
+    }
+
+    // Keys with an envelope still open
+    public int getOpenKeys() {
+        return keyBuffers.size();
+    }
+
+    private static final class KeyBuffer {
+        private final String key;
+        private WeatherEnvelope envelope;
+        private boolean removed;
+
+        private KeyBuffer(String key) {
+            this.key = key;
+        }
+    }
+}
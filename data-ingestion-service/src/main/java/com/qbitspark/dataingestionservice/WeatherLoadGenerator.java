@@ -0,0 +1,96 @@
+package com.qbitspark.dataingestionservice;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.LockSupport;
+
+// Load-generation job: publishes synthetic readings for a set of cities at a target rate
+// through the regular send path (wire format, partitioning, in-flight window), and reports
+// the rate actually achieved and the send-to-acknowledgement latency percentiles.
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class WeatherLoadGenerator {
+
+    private static final int PROGRESS_MERGE_INTERVAL = 1000;
+
+    private final WeatherDataProducer weatherDataProducer;
+
+    // Simulated clock: every city gets one reading per step, starting at start
+    public record LoadSpec(List<String> cities, long count, double recordsPerSecond,
+                           LocalDateTime start, Duration step, long seed) {
+    }
+
+    public void run(IngestionJob job, LoadSpec spec) {
+        LatencyHistogram latency = new LatencyHistogram();
+        job.setDetails(() -> loadDetails(job, spec, latency));
+        log.info("Starting load job {}: {} records for {} cities at {} records/sec",
+                job.getId(), spec.count(), spec.cities().size(),
+                spec.recordsPerSecond() > 0 ? spec.recordsPerSecond() : "unlimited");
+
+        SyntheticWeather weather = new SyntheticWeather(spec.seed());
+        long nanosPerRecord = spec.recordsPerSecond() > 0 ? (long) (1_000_000_000L / spec.recordsPerSecond()) : 0;
+        long startNanos = System.nanoTime();
+        long local = 0;
+        LocalDateTime timestamp = spec.start();
+
+        for (long i = 0; i < spec.count() && !job.isCancelRequested(); i++) {
+            int cityIndex = (int) (i % spec.cities().size());
+            if (cityIndex == 0 && i > 0) {
+                timestamp = timestamp.plus(spec.step());
+            }
+
+            // Pace against the schedule rather than the previous send, so short stalls are caught up
+            if (nanosPerRecord > 0) {
+                long wait = startNanos + i * nanosPerRecord - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+            }
+
+            WeatherRecord weatherRecord = weather.next(spec.cities().get(cityIndex), timestamp);
+            long sentAt = System.nanoTime();
+            weatherDataProducer.sendWeatherRecord(weatherRecord).whenComplete((result, ex) -> {
+                if (ex != null) {
+                    job.getSendFailures().increment();
+                } else {
+                    latency.recordNanos(System.nanoTime() - sentAt);
+                }
+            });
+
+            if (++local == PROGRESS_MERGE_INTERVAL) {
+                job.getRecords().addAndGet(local);
+                local = 0;
+            }
+        }
+        job.getRecords().addAndGet(local);
+
+        weatherDataProducer.awaitAcknowledgements();
+        log.info("✅ Load job {} finished: {}", job.getId(), loadDetails(job, spec, latency));
+        job.finish(job.isCancelRequested() ? IngestionJob.Status.CANCELLED : IngestionJob.Status.COMPLETED);
+    }
+
+    private static Map<String, Object> loadDetails(IngestionJob job, LoadSpec spec, LatencyHistogram latency) {
+        Map<String, Object> details = new LinkedHashMap<>();
+        details.put("cities", spec.cities());
+        details.put("targetRecords", spec.count());
+        details.put("targetRecordsPerSecond", spec.recordsPerSecond());
+        details.put("acknowledged", latency.count());
+
+        Map<String, Object> percentiles = new LinkedHashMap<>();
+        percentiles.put("p50", latency.percentileMicros(50));
+        percentiles.put("p90", latency.percentileMicros(90));
+        percentiles.put("p99", latency.percentileMicros(99));
+        percentiles.put("p999", latency.percentileMicros(99.9));
+        percentiles.put("max", latency.percentileMicros(100));
+        details.put("sendLatencyMicros", percentiles);
+        return details;
+    }
+}
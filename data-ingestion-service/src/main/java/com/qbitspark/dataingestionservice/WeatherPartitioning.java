@@ -0,0 +1,167 @@
+package com.qbitspark.dataingestionservice;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.utils.Utils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Holds the configured PartitionKeyStrategy and reports how a file's records would spread
+// over the partitions of weather-data under each strategy.
+@Component
+@Slf4j
+public class WeatherPartitioning {
+
+    static final List<String> STRATEGIES = List.of("city", "city-time-bucket", "weighted");
+
+    // city (default), city-time-bucket or weighted
+    @Value("${app.kafka.partitioning.strategy:city}")
+    private String strategyName;
+
+    @Value("${app.kafka.partitioning.time-bucket:PT1H}")
+    private Duration timeBucket;
+
+    // Hot cities and the number of keys each is spread over, e.g. "Dar es Salaam:8,Mwanza:4"
+    @Value("${app.kafka.partitioning.hot-cities:}")
+    private String hotCities;
+
+    @Value("${app.kafka.partitioning.partitions:12}")
+    private int defaultPartitions;
+
+    private PartitionKeyStrategy strategy;
+
+    @PostConstruct
+    void init() {
+        strategy = strategy(strategyName);
+        log.info("Partitioning weather-data by {}", strategy);
+    }
+
+    public String keyFor(WeatherRecord weatherRecord) {
+        return strategy.keyFor(weatherRecord);
+    }
+
+    public PartitionKeyStrategy getStrategy() {
+        return strategy;
+    }
+
+    public PartitionKeyStrategy strategy(String name) {
+        return switch (name.toLowerCase()) {
+            case "city" -> new PartitionKeyStrategy.City();
+            case "city-time-bucket" -> new PartitionKeyStrategy.CityTimeBucket(timeBucket.toMillis());
+            case "weighted" -> new PartitionKeyStrategy.WeightedCity(timeBucket.toMillis(), parseHotCities(hotCities));
+            default -> throw new IllegalArgumentException("Unknown partitioning strategy: " + name + ", expected one of " + STRATEGIES);
+        };
+    }
+
+    // Same partition the producer's default partitioner picks for a non-null key
+    public static int partitionFor(String key, int partitions) {
+        return Utils.toPositive(Utils.murmur2(key.getBytes(StandardCharsets.UTF_8))) % partitions;
+    }
+
+    // Per-partition record counts of the file under the given strategies (all when null)
+    public Map<String, Object> report(Path file, String onlyStrategy, Integer partitions) throws IOException {
+        int partitionCount = partitions != null ? partitions : defaultPartitions;
+        List<PartitionKeyStrategy> strategies = new ArrayList<>();
+        for (String name : onlyStrategy != null ? List.of(onlyStrategy) : STRATEGIES) {
+            strategies.add(strategy(name));
+        }
+
+        long[][] counts = new long[strategies.size()][partitionCount];
+        List<Map<String, Integer>> keyPartitions = new ArrayList<>();
+        strategies.forEach(s -> keyPartitions.add(new HashMap<>()));
+        Map<String, Long> cityCounts = new HashMap<>();
+        Map<RejectReason, Long> rejects = new EnumMap<>(RejectReason.class);
+
+        WeatherCsvParser parser = new WeatherCsvParser();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            for (CsvChunkReader.Chunk chunk : CsvChunkReader.split(channel, 1, true)) {
+                CsvChunkReader.readLines(channel, chunk, (buffer, start, end, next) -> {
+                    WeatherRecord weatherRecord = parser.tryParse(buffer, start, end);
+                    if (weatherRecord == null) {
+                        rejects.merge(parser.rejectReason(), 1L, Long::sum);
+                        return;
+                    }
+                    cityCounts.merge(weatherRecord.getCity(), 1L, Long::sum);
+                    for (int i = 0; i < strategies.size(); i++) {
+                        // Hashing once per distinct key keeps the report cheap on large files
+                        int partition = keyPartitions.get(i).computeIfAbsent(strategies.get(i).keyFor(weatherRecord),
+                                key -> partitionFor(key, partitionCount));
+                        counts[i][partition]++;
+                    }
+                });
+            }
+        }
+
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("file", file.toString());
+        report.put("partitions", partitionCount);
+        report.put("records", cityCounts.values().stream().mapToLong(Long::longValue).sum());
+        report.put("errors", rejects.values().stream().mapToLong(Long::longValue).sum());
+        Map<String, Long> rejectsByReason = new LinkedHashMap<>();
+        rejects.forEach((reason, count) -> rejectsByReason.put(reason.name(), count));
+        report.put("rejectsByReason", rejectsByReason);
+        report.put("cities", cityCounts);
+        report.put("configuredStrategy", strategy.name());
+
+        Map<String, Object> byStrategy = new LinkedHashMap<>();
+        for (int i = 0; i < strategies.size(); i++) {
+            byStrategy.put(strategies.get(i).name(), distribution(counts[i], keyPartitions.get(i).size()));
+        }
+        report.put("strategies", byStrategy);
+        return report;
+    }
+
+    private static Map<String, Object> distribution(long[] counts, int distinctKeys) {
+        long total = 0;
+        long max = 0;
+        long min = Long.MAX_VALUE;
+        int empty = 0;
+        for (long count : counts) {
+            total += count;
+            max = Math.max(max, count);
+            min = Math.min(min, count);
+            if (count == 0) {
+                empty++;
+            }
+        }
+        double mean = (double) total / counts.length;
+
+        Map<String, Object> distribution = new LinkedHashMap<>();
+        distribution.put("distinctKeys", distinctKeys);
+        distribution.put("recordsPerPartition", counts);
+        distribution.put("min", min);
+        distribution.put("max", max);
+        distribution.put("emptyPartitions", empty);
+        // 1.0 is a perfect spread; N means the busiest partition carries N times its fair share
+        distribution.put("maxToMeanRatio", mean == 0 ? 0 : Math.round(max / mean * 100) / 100.0);
+        return distribution;
+    }
+
+    static Map<String, Integer> parseHotCities(String spec) {
+        Map<String, Integer> cities = new HashMap<>();
+        if (spec == null || spec.isBlank()) {
+            return cities;
+        }
+        for (String entry : spec.split(",")) {
+            int colon = entry.lastIndexOf(':');
+            if (colon < 0) {
+                throw new IllegalArgumentException("Hot city entry must be <city>:<spread>, got: " + entry);
+            }
+            cities.put(entry.substring(0, colon).trim(), Integer.parseInt(entry.substring(colon + 1).trim()));
+        }
+        return cities;
+    }
+}
@@ -19,32 +19,9 @@ public class WeatherRecord {
     private Double windSpeed;
     private Double pressure;
 
-    // Constructor from CSV line
+    // Constructor from CSV line (European decimal commas are handled by the parser)
     public static WeatherRecord fromCsvLine(String csvLine) {
-        // Handle European decimal format - only replace commas between digits when followed by 1-2 digits
-        // This preserves field separators while fixing decimal separators
-        csvLine = csvLine.replaceAll("(\\d),(\\d{1,2})(?=,|$)", "$1.$2");
-
-        String[] fields = csvLine.split(",");
-
-        if (fields.length != 7) {
-            throw new IllegalArgumentException("Invalid CSV line (expected 7 fields, got " + fields.length + "): " + csvLine);
-        }
-
-        try {
-            return new WeatherRecord(
-                    LocalDateTime.parse(fields[0].trim(),
-                            java.time.format.DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")),
-                    fields[1].trim(),
-                    Double.parseDouble(fields[2].trim()),
-                    Double.parseDouble(fields[3].trim()),
-                    Double.parseDouble(fields[4].trim()),
-                    Double.parseDouble(fields[5].trim()),
-                    Double.parseDouble(fields[6].trim())
-            );
-        } catch (Exception e) {
-            throw new IllegalArgumentException("Error parsing CSV line: " + csvLine, e);
-        }
+        return WeatherCsvParser.forCurrentThread().parse(csvLine);
     }
 
     // Convert to JSON string for Kafka
@@ -0,0 +1,86 @@
+package com.qbitspark.dataingestionservice;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+// Versioned binary encoding of a weather record. Must stay in sync with
+// WeatherRecordCodec in data-storage-service.
+//
+// Layout (big-endian), version 1:
+//   byte   version
+//   long   timestamp, epoch milliseconds (UTC)
+//   short  city length, followed by the UTF-8 city bytes
+//   int    temperature x10, humidity x10, rainfall x100, wind speed x10, pressure x10
+//
+// The scales keep the same precision as the JSON format (%.1f / %.2f).
+public final class WeatherRecordCodec {
+
+    // Kafka header naming the value format; absent means JSON
+    public static final String FORMAT_HEADER = "weather-format";
+    public static final String FORMAT_JSON = "json";
+    public static final String FORMAT_BINARY = "wr-bin-v1";
+    // Many records of one city in a columnar envelope, see WeatherEnvelope
+    public static final String FORMAT_ENVELOPE = "wr-batch-v1";
+
+    public static final byte VERSION = 1;
+
+    private static final int FIXED_SIZE = 1 + 8 + 2 + 5 * 4;
+    private static final int MAX_CITY_BYTES = Short.MAX_VALUE;
+
+    private WeatherRecordCodec() {
+    }
+
+    public static byte[] encode(WeatherRecord weatherRecord) {
+        byte[] city = weatherRecord.getCity().getBytes(StandardCharsets.UTF_8);
+        if (city.length > MAX_CITY_BYTES) {
+            throw new IllegalArgumentException("City name too long for binary format: " + city.length + " bytes");
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(FIXED_SIZE + city.length);
+        buffer.put(VERSION);
+        buffer.putLong(weatherRecord.getTimestamp().toInstant(ZoneOffset.UTC).toEpochMilli());
+        buffer.putShort((short) city.length);
+        buffer.put(city);
+        buffer.putInt(scale("temperature", weatherRecord.getTemperature(), 10));
+        buffer.putInt(scale("humidity", weatherRecord.getHumidity(), 10));
+        buffer.putInt(scale("rainfall", weatherRecord.getRainfall(), 100));
+        buffer.putInt(scale("windSpeed", weatherRecord.getWindSpeed(), 10));
+        buffer.putInt(scale("pressure", weatherRecord.getPressure(), 10));
+        return buffer.array();
+    }
+
+    public static WeatherRecord decode(byte[] message) {
+        ByteBuffer buffer = ByteBuffer.wrap(message);
+        byte version = buffer.get();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported weather record version: " + version);
+        }
+
+        LocalDateTime timestamp = LocalDateTime.ofInstant(Instant.ofEpochMilli(buffer.getLong()), ZoneOffset.UTC);
+        int cityLength = buffer.getShort();
+        String city = new String(message, buffer.position(), cityLength, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + cityLength);
+
+        return new WeatherRecord(
+                timestamp,
+                city,
+                buffer.getInt() / 10.0,
+                buffer.getInt() / 10.0,
+                buffer.getInt() / 100.0,
+                buffer.getInt() / 10.0,
+                buffer.getInt() / 10.0
+        );
+    }
+
+    // NaN would round to 0 and out-of-range values overflow, so both are refused the same way
+    static int scale(String field, double value, int factor) {
+        double scaled = value * factor;
+        if (!Double.isFinite(scaled) || scaled < Integer.MIN_VALUE || scaled > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Cannot encode " + field + " " + value + " in the binary format");
+        }
+        return (int) Math.round(scaled);
+    }
+}
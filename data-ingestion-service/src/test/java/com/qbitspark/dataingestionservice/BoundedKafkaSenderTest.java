@@ -0,0 +1,79 @@
+package com.qbitspark.dataingestionservice;
+
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BoundedKafkaSenderTest {
+
+    @SuppressWarnings("unchecked")
+    private final KafkaTemplate<String, byte[]> kafkaTemplate = mock(KafkaTemplate.class);
+    private BoundedKafkaSender sender;
+
+    @BeforeEach
+    void setUp() {
+        sender = new BoundedKafkaSender(kafkaTemplate);
+        ReflectionTestUtils.setField(sender, "maxInFlightRecords", 2);
+        ReflectionTestUtils.setField(sender, "maxInFlightBytes", 100);
+        sender.init();
+    }
+
+    private static ProducerRecord<String, byte[]> record(int bytes) {
+        return new ProducerRecord<>("weather-data", "Mbeya", new byte[bytes]);
+    }
+
+    @Test
+    void releasesPermitsWhenTheSendFails() {
+        CompletableFuture<SendResult<String, byte[]>> pending = new CompletableFuture<>();
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(pending);
+
+        CompletableFuture<SendResult<String, byte[]>> sent = sender.send(record(40));
+        assertThat(sender.getInFlight()).isEqualTo(1);
+        assertThat(sender.getStats()).containsEntry("inFlightBytes", 40);
+
+        pending.completeExceptionally(new TimeoutException("broker unavailable"));
+        assertThat(sent).isCompletedExceptionally();
+        assertThat(sender.getInFlight()).isZero();
+        assertThat(sender.getStats()).containsEntry("inFlightBytes", 0).containsEntry("failed", 1L);
+    }
+
+    @Test
+    void releasesPermitsWhenSendThrows() {
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenThrow(new TimeoutException("no metadata"));
+
+        // More attempts than the window holds; each one must give its permits back
+        for (int i = 0; i < 3; i++) {
+            assertThatThrownBy(() -> sender.send(record(60))).isInstanceOf(TimeoutException.class);
+        }
+        assertThat(sender.getInFlight()).isZero();
+        assertThat(sender.getStats()).containsEntry("inFlightBytes", 0).containsEntry("failed", 3L);
+    }
+
+    @Test
+    void sendsARecordLargerThanTheByteWindowAlone() {
+        CompletableFuture<SendResult<String, byte[]>> pending = new CompletableFuture<>();
+        when(kafkaTemplate.send(any(ProducerRecord.class))).thenReturn(pending);
+
+        // Clamped to the whole window instead of waiting forever for 500 byte permits
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> sender.send(record(500)));
+        assertThat(sender.getStats()).containsEntry("inFlightBytes", 100);
+
+        pending.complete(null);
+        assertThat(sender.getInFlight()).isZero();
+        assertThat(sender.getStats()).containsEntry("inFlightBytes", 0).containsEntry("acknowledged", 1L);
+    }
+}
@@ -0,0 +1,50 @@
+package com.qbitspark.dataingestionservice;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChunkProgressTest {
+
+    @Test
+    void committedOffsetStopsAtOldestUnacknowledgedLine() {
+        ChunkProgress progress = new ChunkProgress(0, 100, 130, 100);
+
+        progress.submitted(100, 110);
+        progress.submitted(110, 120);
+        progress.submitted(120, 130);
+        assertThat(progress.committedOffset()).isEqualTo(100);
+
+        // Out-of-order acknowledgement must not move the offset past line 100
+        progress.acknowledged(110);
+        assertThat(progress.committedOffset()).isEqualTo(100);
+
+        progress.acknowledged(100);
+        assertThat(progress.committedOffset()).isEqualTo(120);
+        assertThat(progress.isComplete()).isFalse();
+
+        progress.acknowledged(120);
+        assertThat(progress.committedOffset()).isEqualTo(130);
+        assertThat(progress.isComplete()).isTrue();
+    }
+
+    @Test
+    void skippedLinesAdvanceTheOffset() {
+        ChunkProgress progress = new ChunkProgress(1, 0, 20, 0);
+
+        progress.skipped(10);
+        assertThat(progress.committedOffset()).isEqualTo(10);
+
+        progress.submitted(10, 20);
+        progress.acknowledged(10);
+        assertThat(progress.isComplete()).isTrue();
+    }
+
+    @Test
+    void resumedRangeStartsAtCheckpoint() {
+        ChunkProgress progress = new ChunkProgress(2, 0, 50, 30);
+
+        assertThat(progress.committedOffset()).isEqualTo(30);
+        assertThat(progress.isComplete()).isFalse();
+    }
+}
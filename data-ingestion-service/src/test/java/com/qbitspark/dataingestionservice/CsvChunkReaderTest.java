@@ -0,0 +1,131 @@
+package com.qbitspark.dataingestionservice;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CsvChunkReaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void chunkedReadMatchesSequentialReaderForAnyParallelism() throws IOException {
+        StringBuilder csv = new StringBuilder("timestamp,city,temperature,humidity,rainfall,windSpeed,pressure\n");
+        for (int i = 0; i < 5000; i++) {
+            csv.append("2023-01-01 00:00:").append(String.format("%02d", i % 60))
+                    .append(i % 7 == 0 ? ",Dar es Salaam," : ",Mbeya,")
+                    .append(18 + i % 10).append(",5,75,0,0,2,12,5,1015,3")
+                    .append(i % 3 == 0 ? "\r\n" : "\n");
+        }
+        csv.append("\n2023-01-02 00:00:00,Arusha,20,1,60,0,0,0,10,0,1012,0");
+        Path file = write(csv.toString());
+
+        List<String> expected = readSequentially(file);
+
+        for (int parallelism : new int[]{1, 2, 3, 7, 16, 64}) {
+            assertThat(readChunked(file, parallelism))
+                    .as("parallelism %d", parallelism)
+                    .containsExactlyElementsOf(expected);
+        }
+    }
+
+    @Test
+    void headerOnlyFileHasNoChunks() throws IOException {
+        Path file = write("timestamp,city,temperature,humidity,rainfall,windSpeed,pressure\n");
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            assertThat(CsvChunkReader.split(channel, 4, true)).isEmpty();
+        }
+    }
+
+    @Test
+    void chunksAreContiguousAndLineAligned() throws IOException {
+        Path file = write("header\na\nbb\nccc\ndddd\neeeee\n");
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            List<CsvChunkReader.Chunk> chunks = CsvChunkReader.split(channel, 3, true);
+
+            assertThat(chunks.get(0).start()).isEqualTo("header\n".length());
+            assertThat(chunks.get(chunks.size() - 1).end()).isEqualTo(channel.size());
+            for (int i = 1; i < chunks.size(); i++) {
+                assertThat(chunks.get(i).start()).isEqualTo(chunks.get(i - 1).end());
+            }
+        }
+    }
+
+    @Test
+    void completeLinesEndIgnoresPartiallyAppendedLine() throws IOException {
+        StringBuilder content = new StringBuilder("header\n");
+        for (int i = 0; i < 3000; i++) {
+            content.append("row-").append(i).append('\n');
+        }
+        long lastComplete = content.length();
+        content.append("partial-row");
+        Path file = write(content.toString());
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            assertThat(CsvChunkReader.completeLinesEnd(channel, 0, channel.size())).isEqualTo(lastComplete);
+            assertThat(CsvChunkReader.completeLinesEnd(channel, lastComplete, channel.size())).isEqualTo(lastComplete);
+            assertThat(CsvChunkReader.completeLinesEnd(channel, 0, "header".length())).isZero();
+        }
+    }
+
+    @Test
+    void lineIndexNumbersLinesFromAnyRangeStart() throws IOException {
+        Path file = write("header\na\nbb\r\nccc\ndddd\n");
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            FileLineIndex lines = new FileLineIndex(file.toString(), channel);
+            List<CsvChunkReader.Chunk> chunks = CsvChunkReader.split(channel, 3, true);
+
+            // Ask out of order: cached answers must not skew later lookups
+            assertThat(lines.lineNumberAt("header\na\nbb\r\nccc\n".length())).isEqualTo(5);
+            assertThat(lines.lineNumberAt(chunks.get(0).start())).isEqualTo(2);
+            assertThat(lines.lineNumberAt("header\na\n".length())).isEqualTo(3);
+        }
+    }
+
+    private Path write(String content) throws IOException {
+        Path file = tempDir.resolve("weather.csv");
+        Files.writeString(file, content, StandardCharsets.UTF_8);
+        return file;
+    }
+
+    private List<String> readSequentially(Path file) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            reader.readLine();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+        return lines;
+    }
+
+    private List<String> readChunked(Path file, int parallelism) throws IOException {
+        List<String> lines = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            for (CsvChunkReader.Chunk chunk : CsvChunkReader.split(channel, parallelism, true)) {
+                CsvChunkReader.readLines(channel, chunk, (buffer, start, end, next) -> {
+                    byte[] bytes = new byte[end - start];
+                    buffer.get(start, bytes);
+                    lines.add(new String(bytes, StandardCharsets.UTF_8));
+                });
+            }
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,69 @@
+package com.qbitspark.dataingestionservice;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CsvFileResolverTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void directoryMatchesCsvAndGzipFilesInNameOrder() throws IOException {
+        Path b = write("2024-01-02.csv");
+        Path a = write("2024-01-01.csv.gz");
+        write("notes.txt");
+        write("nested/2024-01-03.csv");
+
+        assertThat(CsvFileResolver.resolve(tempDir.toString())).containsExactly(a, b);
+    }
+
+    @Test
+    void globMatchesRelativeToItsFixedPrefix() throws IOException {
+        Path january = write("drops/2024-01/day1.csv");
+        write("drops/2024-02/day1.csv");
+        Path nested = write("drops/2024-01/late/day9.csv");
+
+        assertThat(CsvFileResolver.resolve(tempDir + "/drops/2024-01/*.csv")).containsExactly(january);
+        assertThat(CsvFileResolver.resolve(tempDir + "/drops/2024-01/**.csv")).containsExactly(january, nested);
+        assertThat(CsvFileResolver.resolve(tempDir + "/drops/*-01/*.csv")).containsExactly(january);
+    }
+
+    @Test
+    void singleFileAndMissingPath() throws IOException {
+        Path file = write("one.csv");
+
+        assertThat(CsvFileResolver.resolve(file.toString())).containsExactly(file);
+        assertThatThrownBy(() -> CsvFileResolver.resolve(tempDir.resolve("missing").toString()))
+                .isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void gzipIsDetectedFromContent() throws IOException {
+        Path plain = write("plain.csv.gz");
+        Path gzip = tempDir.resolve("renamed.csv");
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(gzip))) {
+            out.write("timestamp,city\n".getBytes(StandardCharsets.UTF_8));
+        }
+
+        assertThat(CsvFileResolver.isGzip(plain)).isFalse();
+        assertThat(CsvFileResolver.isGzip(gzip)).isTrue();
+    }
+
+    private Path write(String name) throws IOException {
+        Path file = tempDir.resolve(name);
+        Files.createDirectories(file.getParent());
+        Files.writeString(file, "timestamp,city\n", StandardCharsets.UTF_8);
+        return file;
+    }
+}
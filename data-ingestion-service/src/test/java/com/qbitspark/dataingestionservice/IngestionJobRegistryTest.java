@@ -0,0 +1,80 @@
+package com.qbitspark.dataingestionservice;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IngestionJobRegistryTest {
+
+    private static IngestionJobRegistry registry(long ttlMs, int maxFinished) {
+        IngestionJobRegistry registry = new IngestionJobRegistry();
+        ReflectionTestUtils.setField(registry, "maxConcurrentJobs", 1);
+        ReflectionTestUtils.setField(registry, "finishedJobTtlMs", ttlMs);
+        ReflectionTestUtils.setField(registry, "maxFinishedJobs", maxFinished);
+        return registry;
+    }
+
+    @Test
+    void keepsOnlyTheNewestFinishedJobs() throws InterruptedException {
+        IngestionJobRegistry registry = registry(3_600_000, 2);
+        IngestionJob first = registry.runInline("upload", "a.csv", 1, job -> { });
+        Thread.sleep(2);
+        registry.runInline("upload", "b.csv", 1, job -> { });
+        Thread.sleep(2);
+        IngestionJob last = registry.runInline("upload", "c.csv", 1, job -> { });
+
+        assertThat(registry.list()).hasSize(2).contains(last);
+        assertThat(registry.get(first.getId())).isEmpty();
+    }
+
+    @Test
+    void evictsExpiredFinishedJobsButNotRunningOnes() throws InterruptedException {
+        IngestionJobRegistry registry = registry(0, 100);
+        CountDownLatch release = new CountDownLatch(1);
+        IngestionJob running = registry.submitDedicated("follow", "d.csv", 1, job -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        IngestionJob finished = registry.runInline("upload", "e.csv", 1, job -> { });
+        Thread.sleep(5);
+
+        assertThat(registry.list()).containsExactly(running);
+        assertThat(registry.get(finished.getId())).isEmpty();
+        release.countDown();
+    }
+
+    @Test
+    void refusesASecondRunningJobOnTheSameFile() throws InterruptedException {
+        IngestionJobRegistry registry = registry(3_600_000, 100);
+        registry.init();
+        CountDownLatch release = new CountDownLatch(1);
+        IngestionJob running = registry.submitExclusive("csv", "data/weather.csv", 1, job -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        assertThatThrownBy(() -> registry.submitExclusive("csv", "data/../data/weather.csv", 1, job -> { }))
+                .isInstanceOfSatisfying(IngestionJobRegistry.JobAlreadyRunningException.class,
+                        e -> assertThat(e.getRunningJob()).isSameAs(running));
+        // Another file, or another job type, still starts
+        registry.submitExclusive("csv", "data/other.csv", 1, job -> { });
+        registry.submitExclusive("batch", "data/weather.csv", 1, job -> { });
+
+        release.countDown();
+        while (!running.isFinished()) {
+            Thread.sleep(5);
+        }
+        assertThat(registry.submitExclusive("csv", "data/weather.csv", 1, job -> { })).isNotSameAs(running);
+        registry.shutdown();
+    }
+}
@@ -0,0 +1,65 @@
+package com.qbitspark.dataingestionservice;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IngestionManifestTest {
+
+    @TempDir
+    Path directory;
+
+    private Path file;
+    private IngestionManifest manifest;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        file = directory.resolve("weather.csv");
+        Files.writeString(file, "timestamp,city\n2023-07-14T06:30:00,Mbeya\n");
+        manifest = newManifest();
+    }
+
+    private IngestionManifest newManifest() throws IOException {
+        IngestionManifest loaded = new IngestionManifest();
+        ReflectionTestUtils.setField(loaded, "manifestFile", directory.resolve("manifest.properties"));
+        loaded.load();
+        return loaded;
+    }
+
+    @Test
+    void skipsARecordedFileAfterARestart() throws IOException {
+        manifest.recordIngested(IngestionManifest.stat(file));
+
+        assertThat(newManifest().isIngested(IngestionManifest.stat(file))).isTrue();
+    }
+
+    @Test
+    void doesNotCountRowsAppendedDuringIngestion() throws IOException {
+        IngestionManifest.FileState started = IngestionManifest.stat(file);
+        Files.writeString(file, "2023-07-14T06:31:00,Mbeya\n", StandardOpenOption.APPEND);
+        manifest.recordIngested(started);
+
+        assertThat(manifest.isIngested(IngestionManifest.stat(file))).isFalse();
+    }
+
+    @Test
+    void comparesChecksumsWhenOnlyTheTimestampChanged() throws IOException {
+        manifest.recordIngested(IngestionManifest.stat(file));
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 60_000));
+        assertThat(manifest.isIngested(IngestionManifest.stat(file))).isTrue();
+
+        // Same size, different content
+        Files.writeString(file, "timestamp,city\n2023-07-14T06:30:00,Mbeyb\n");
+        Files.setLastModifiedTime(file, FileTime.fromMillis(Files.getLastModifiedTime(file).toMillis() + 120_000));
+        assertThat(manifest.isIngested(IngestionManifest.stat(file))).isFalse();
+    }
+}
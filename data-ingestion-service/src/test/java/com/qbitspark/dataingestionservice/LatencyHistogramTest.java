@@ -0,0 +1,33 @@
+package com.qbitspark.dataingestionservice;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class LatencyHistogramTest {
+
+    @Test
+    void percentilesAreWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 100_000; micros++) {
+            histogram.recordNanos(micros * 1000);
+        }
+
+        assertThat(histogram.count()).isEqualTo(100_000);
+        assertThat((double) histogram.percentileMicros(50)).isCloseTo(50_000, within(50_000 * 0.07));
+        assertThat((double) histogram.percentileMicros(99)).isCloseTo(99_000, within(99_000 * 0.07));
+        assertThat(histogram.percentileMicros(100)).isGreaterThanOrEqualTo(100_000);
+    }
+
+    @Test
+    void bucketBoundsContainTheirValues() {
+        for (long micros : new long[]{0, 1, 15, 16, 17, 31, 32, 1000, 123_456_789L, Long.MAX_VALUE / 1000}) {
+            int index = LatencyHistogram.indexOf(micros);
+            assertThat(LatencyHistogram.upperBound(index)).isGreaterThanOrEqualTo(micros);
+            if (index > 0) {
+                assertThat(LatencyHistogram.upperBound(index - 1)).isLessThan(micros);
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.qbitspark.dataingestionservice;
+
+import org.apache.kafka.clients.producer.internals.BuiltInPartitioner;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PartitionKeyStrategyTest {
+
+    private static final long HOUR = 3_600_000L;
+
+    @Test
+    void cityTimeBucketKeepsABucketOnOneKey() {
+        PartitionKeyStrategy strategy = new PartitionKeyStrategy.CityTimeBucket(HOUR);
+
+        assertThat(strategy.keyFor(reading("Mbeya", 10, 0))).isEqualTo(strategy.keyFor(reading("Mbeya", 10, 59)));
+        assertThat(strategy.keyFor(reading("Mbeya", 10, 0))).isNotEqualTo(strategy.keyFor(reading("Mbeya", 11, 0)));
+        assertThat(strategy.keyFor(reading("Mbeya", 10, 0))).isNotEqualTo(strategy.keyFor(reading("Arusha", 10, 0)));
+    }
+
+    @Test
+    void weightedSpreadsOnlyHotCities() {
+        PartitionKeyStrategy strategy = new PartitionKeyStrategy.WeightedCity(HOUR,
+                WeatherPartitioning.parseHotCities("Dar es Salaam:4, Mwanza:1"));
+
+        Set<String> hotKeys = new HashSet<>();
+        Set<String> coldKeys = new HashSet<>();
+        for (int hour = 0; hour < 24; hour++) {
+            hotKeys.add(strategy.keyFor(reading("Dar es Salaam", hour, 0)));
+            coldKeys.add(strategy.keyFor(reading("Mwanza", hour, 0)));
+        }
+
+        assertThat(hotKeys).hasSize(4);
+        assertThat(coldKeys).containsExactly("Mwanza");
+    }
+
+    @Test
+    void partitionMatchesDefaultPartitioner() {
+        Set<Integer> used = new HashSet<>();
+        for (String key : new String[]{"Mbeya", "Arusha", "Dar es Salaam", "Dodoma", "Mwanza",
+                "Mbeya@467520", "Dar es Salaam#3"}) {
+            for (int partitions : new int[]{3, 12, 50}) {
+                // What the producer itself does with a keyed record
+                assertThat(WeatherPartitioning.partitionFor(key, partitions)).as("%s over %d", key, partitions)
+                        .isEqualTo(BuiltInPartitioner.partitionForKey(key.getBytes(StandardCharsets.UTF_8), partitions));
+            }
+            used.add(WeatherPartitioning.partitionFor(key, 12));
+        }
+        // The cities do not all land on one partition
+        assertThat(used).hasSizeGreaterThan(1);
+        assertThat(WeatherPartitioning.parseHotCities("")).isEqualTo(Map.of());
+    }
+
+    private static WeatherRecord reading(String city, int hour, int minute) {
+        return new WeatherRecord(LocalDateTime.of(2023, 1, 1, hour, minute), city, 20.0, 60.0, 0.0, 10.0, 1012.0);
+    }
+}
@@ -0,0 +1,66 @@
+package com.qbitspark.dataingestionservice;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReadingBloomFilterTest {
+
+    private static final long BASE = 1_672_531_200_000L;
+
+    @Test
+    void neverForgetsAndStaysNearTargetFalsePositiveRate() {
+        ReadingBloomFilter filter = ReadingBloomFilter.forCapacity(100_000, 0.01, Long.MAX_VALUE);
+        int reportedPresent = 0;
+        for (int i = 0; i < 100_000; i++) {
+            if (filter.put("Mbeya", BASE + i * 60_000L)) {
+                reportedPresent++;
+            }
+        }
+        // A new key is only reported as present by a false positive
+        assertThat(reportedPresent / 100_000.0).isLessThan(0.01);
+
+        int falsePositives = 0;
+        for (int i = 0; i < 100_000; i++) {
+            assertThat(filter.mightContain("Mbeya", BASE + i * 60_000L)).isTrue();
+            if (filter.mightContain("Arusha", BASE + i * 60_000L)) {
+                falsePositives++;
+            }
+        }
+
+        assertThat(falsePositives / 100_000.0).isLessThan(0.02);
+        assertThat(filter.currentFalsePositiveRate()).isBetween(0.005, 0.02);
+        assertThat((double) filter.approximateCount()).isBetween(95_000.0, 105_000.0);
+    }
+
+    @Test
+    void memoryCapBoundsTheFilter() {
+        ReadingBloomFilter filter = ReadingBloomFilter.forCapacity(1_000_000_000L, 0.0001, 1 << 20);
+        assertThat(filter.memoryBytes()).isEqualTo(1 << 20);
+    }
+
+    @Test
+    void roundTripsThroughItsFileFormat() throws IOException {
+        ReadingBloomFilter filter = ReadingBloomFilter.forCapacity(1000, 0.001, Long.MAX_VALUE);
+        filter.put("Dodoma", BASE);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        filter.writeTo(new DataOutputStream(bytes));
+
+        ReadingBloomFilter loaded = ReadingBloomFilter.readFrom(
+                new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), filter.bitCount(), filter.hashCount());
+        assertThat(loaded).isNotNull();
+        assertThat(loaded.mightContain("Dodoma", BASE)).isTrue();
+        assertThat(loaded.mightContain("Dodoma", BASE + 1)).isFalse();
+
+        ReadingBloomFilter otherShape = ReadingBloomFilter.readFrom(
+                new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), filter.bitCount() * 2, filter.hashCount());
+        assertThat(otherShape).isNull();
+    }
+}
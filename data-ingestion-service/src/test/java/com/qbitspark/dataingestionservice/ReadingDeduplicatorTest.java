@@ -0,0 +1,92 @@
+package com.qbitspark.dataingestionservice;
+
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.errors.TimeoutException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.kafka.support.SendResult;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReadingDeduplicatorTest {
+
+    @TempDir
+    Path directory;
+
+    private final BoundedKafkaSender kafkaSender = mock(BoundedKafkaSender.class);
+    private final List<CompletableFuture<SendResult<String, byte[]>>> sends = new ArrayList<>();
+    private ReadingDeduplicator deduplicator;
+    private WeatherDataProducer producer;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        when(kafkaSender.send(any(ProducerRecord.class))).thenAnswer(invocation -> {
+            CompletableFuture<SendResult<String, byte[]>> pending = new CompletableFuture<>();
+            sends.add(pending);
+            return pending;
+        });
+
+        deduplicator = new ReadingDeduplicator();
+        ReflectionTestUtils.setField(deduplicator, "enabled", true);
+        ReflectionTestUtils.setField(deduplicator, "expectedReadings", 10_000L);
+        ReflectionTestUtils.setField(deduplicator, "falsePositiveRate", 0.0001);
+        ReflectionTestUtils.setField(deduplicator, "maxMemoryBytes", 1L << 20);
+        ReflectionTestUtils.setField(deduplicator, "filterFile", directory.resolve("readings.bloom"));
+        ReflectionTestUtils.setField(deduplicator, "saveIntervalMs", 60_000L);
+        deduplicator.init();
+
+        producer = new WeatherDataProducer(kafkaSender, mock(WeatherEnvelopeBatcher.class),
+                mock(IngestionCheckpointStore.class), mock(IngestionManifest.class), mock(WeatherPartitioning.class),
+                mock(RejectQuarantine.class), deduplicator);
+        ReflectionTestUtils.setField(producer, "wireFormat", "json");
+    }
+
+    @AfterEach
+    void tearDown() {
+        deduplicator.shutdown();
+    }
+
+    private static WeatherRecord reading() {
+        return new WeatherRecord(LocalDateTime.of(2023, 7, 14, 6, 30), "Mbeya", 21.5, 60.0, 0.0, 12.0, 1012.0);
+    }
+
+    @Test
+    void dropsARepeatSentBeforeTheFirstCopyIsAcknowledged() {
+        CompletableFuture<?> first = producer.sendWeatherRecord(reading());
+        CompletableFuture<?> repeat = producer.sendWeatherRecord(reading());
+
+        assertThat(repeat).isDone();
+        verify(kafkaSender, times(1)).send(any(ProducerRecord.class));
+
+        sends.get(0).complete(null);
+        assertThat(first).isDone();
+        assertThat(producer.sendWeatherRecord(reading())).isDone();
+        verify(kafkaSender, times(1)).send(any(ProducerRecord.class));
+        assertThat(deduplicator.getStats()).containsEntry("dropped", 2L).containsEntry("inFlight", 0);
+    }
+
+    @Test
+    void sendsAReadingAgainAfterItsSendFailed() {
+        producer.sendWeatherRecord(reading());
+        sends.get(0).completeExceptionally(new TimeoutException("broker unavailable"));
+
+        CompletableFuture<?> retry = producer.sendWeatherRecord(reading());
+        assertThat(retry).isNotDone();
+        verify(kafkaSender, times(2)).send(any(ProducerRecord.class));
+    }
+}
@@ -0,0 +1,43 @@
+package com.qbitspark.dataingestionservice;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class RejectQuarantineTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void quotesSourceAndRawLine() throws IOException {
+        RejectQuarantine quarantine = new RejectQuarantine(mock(BoundedKafkaSender.class));
+        ReflectionTestUtils.setField(quarantine, "target", "file");
+        ReflectionTestUtils.setField(quarantine, "rejectsDir", directory);
+        ReflectionTestUtils.setField(quarantine, "logFirst", 0);
+        quarantine.init();
+
+        IngestionJob job = new IngestionJob("job-1", "batch", "drops/a,b.csv", 1);
+        quarantine.reject(job, "drops/a,b.csv", 7, 120, RejectReason.FIELD_COUNT,
+                "2023-07-14,\"Dar es Salaam\",oops".getBytes(StandardCharsets.UTF_8));
+        job.runCompletionCallbacks();
+
+        assertThat(Files.readAllLines(quarantine.rejectsFile(job))).containsExactly(
+                "source,line,offset,reason,raw",
+                "\"drops/a,b.csv\",7,120,FIELD_COUNT,\"2023-07-14,\"\"Dar es Salaam\"\",oops\"");
+    }
+
+    @Test
+    void keepsLineBreaksInsideTheQuotes() {
+        assertThat(RejectQuarantine.quote("a\r\nb")).isEqualTo("\"a\r\nb\"");
+        assertThat(RejectQuarantine.quote("")).isEqualTo("\"\"");
+    }
+}
@@ -0,0 +1,59 @@
+package com.qbitspark.dataingestionservice;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SyntheticWeatherTest {
+
+    @Test
+    void followsDiurnalAndSeasonalCycles() {
+        SyntheticWeather weather = new SyntheticWeather(7);
+
+        assertThat(meanTemperature(weather, 1, 15)).isGreaterThan(meanTemperature(weather, 1, 4) + 5);
+        assertThat(meanTemperature(weather, 1, 12)).isGreaterThan(meanTemperature(weather, 7, 12) + 3);
+    }
+
+    @Test
+    void rainArrivesInBursts() {
+        SyntheticWeather weather = new SyntheticWeather(11);
+        LocalDateTime timestamp = LocalDateTime.of(2023, 1, 1, 0, 0);
+
+        int rainyReadings = 0;
+        int rainyAfterRainy = 0;
+        boolean previousRainy = false;
+        for (int i = 0; i < 20000; i++) {
+            WeatherRecord reading = weather.next("Dar es Salaam", timestamp.plusHours(i));
+            boolean rainy = reading.getRainfall() > 0;
+            if (rainy) {
+                rainyReadings++;
+                if (previousRainy) {
+                    rainyAfterRainy++;
+                }
+            }
+            previousRainy = rainy;
+        }
+
+        double rainShare = rainyReadings / 20000.0;
+        // Rain is the exception, but a rainy hour is usually followed by another
+        assertThat(rainShare).isBetween(0.03, 0.4);
+        assertThat((double) rainyAfterRainy / rainyReadings).isGreaterThan(rainShare * 2);
+    }
+
+    @Test
+    void sameSeedGivesSameReadings() {
+        LocalDateTime timestamp = LocalDateTime.of(2023, 3, 1, 9, 0);
+        assertThat(new SyntheticWeather(3).next("Mbeya", timestamp))
+                .isEqualTo(new SyntheticWeather(3).next("Mbeya", timestamp));
+    }
+
+    private static double meanTemperature(SyntheticWeather weather, int month, int hour) {
+        double sum = 0;
+        for (int day = 1; day <= 28; day++) {
+            sum += weather.next("Dodoma", LocalDateTime.of(2023, month, day, hour, 0)).getTemperature();
+        }
+        return sum / 28;
+    }
+}
@@ -0,0 +1,150 @@
+package com.qbitspark.dataingestionservice;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Differential test: the byte parser must agree with the original regex-based fromCsvLine
+class WeatherCsvParserTest {
+
+    private static final String[] CITIES = {"Mbeya", "Dar es Salaam", "Arusha", " Dodoma ", "Zanzíbar", ""};
+    private static final String[] NUMBERS = {
+            "18", "18,5", "18,55", "18,555", "18.5", "-3,2", "+4", ".5", "5.", "0", "-0", "1015,3",
+            "1e3", "NaN", "abc", "", " 12,5 ", "12,5x", "1.2,5", "123456789012345678901", "0,05", "7,0"
+    };
+    private static final String[] TIMESTAMPS = {
+            "2023-01-15 06:30:00", "2024-02-29 23:59:59", "2023-02-29 10:00:00", "2023-02-30 10:00:00",
+            "2023-04-31 00:00:00", "2023-13-01 00:00:00", "2023-01-01 24:00:00", " 2023-06-01 12:00:00 ",
+            "2023-6-1 12:00:00", "0000-01-01 00:00:00", "2023-01-01T00:00:00", "12023-01-01 00:00:00", "garbage"
+    };
+
+    @Test
+    void matchesLegacyParserOnRealisticLines() {
+        Random random = new Random(42);
+        for (int i = 0; i < 20000; i++) {
+            String line = String.format("2023-%02d-%02d %02d:%02d:%02d,%s,%d,%d,%d,%d,%d,%d,%d,%d,%d,%d",
+                    1 + random.nextInt(12), 1 + random.nextInt(28), random.nextInt(24), random.nextInt(60),
+                    random.nextInt(60), CITIES[random.nextInt(3)],
+                    random.nextInt(40), random.nextInt(100), random.nextInt(100), random.nextInt(10),
+                    random.nextInt(5), random.nextInt(100), random.nextInt(30), random.nextInt(10),
+                    990 + random.nextInt(40), random.nextInt(10));
+            assertSameResult(line);
+        }
+    }
+
+    @Test
+    void matchesLegacyParserOnMalformedAndEdgeCaseLines() {
+        Random random = new Random(7);
+        List<String> lines = new ArrayList<>(List.of(
+                "", ",", ",,,,,,", "a,b,c,d,e,f,g", "2023-01-01 00:00:00,Mbeya,1,2,3,4,5,",
+                "2023-01-01 00:00:00,Mbeya,1,2,3,4,5,,,", ",2023-01-01 00:00:00,Mbeya,1,2,3,4,5",
+                "2023-01-01 00:00:00,Mbeya,18,5,75,0,0,2,12,5,1015,3",
+                "2023-01-01 00:00:00,Mbeya,18,5,75,0,0,2,12,5,1015,3,4",
+                "2023-01-01 00:00:00,Mbeya,1,2,3,4,5,6", "2023-01-01 00:00:00,A1,2,3,4,5,6,7"
+        ));
+        for (int i = 0; i < 20000; i++) {
+            StringBuilder line = new StringBuilder(TIMESTAMPS[random.nextInt(TIMESTAMPS.length)])
+                    .append(',').append(CITIES[random.nextInt(CITIES.length)]);
+            int numberFields = 3 + random.nextInt(4);
+            for (int f = 0; f < numberFields; f++) {
+                line.append(',').append(NUMBERS[random.nextInt(NUMBERS.length)]);
+            }
+            lines.add(line.toString());
+        }
+
+        lines.forEach(this::assertSameResult);
+    }
+
+    @Test
+    void byteRangeAndBufferEntryPointsAgreeWithCharSequence() {
+        WeatherCsvParser parser = new WeatherCsvParser();
+        String line = "2023-03-10 14:00:00,Zanzíbar,28,4,81,0,3,25,14,2,1009,8";
+        byte[] bytes = ("xx" + line + "yy").getBytes(StandardCharsets.UTF_8);
+        int to = bytes.length - 2;
+
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length).put(bytes);
+
+        WeatherRecord expected = parser.parse(line);
+        assertThat(parser.parse(bytes, 2, to)).isEqualTo(expected);
+        assertThat(parser.parse(ByteBuffer.wrap(bytes), 2, to)).isEqualTo(expected);
+        assertThat(parser.parse(direct, 2, to)).isEqualTo(expected);
+        assertThat(expected.getCity()).isEqualTo("Zanzíbar");
+        assertThat(expected.getTemperature()).isEqualTo(28.4);
+        assertThat(expected.getPressure()).isEqualTo(1009.8);
+    }
+
+    @Test
+    void tryParseReportsReasonsWithoutThrowing() {
+        WeatherCsvParser parser = new WeatherCsvParser();
+
+        assertThat(parser.tryParse("   ")).isNull();
+        assertThat(parser.rejectReason()).isEqualTo(RejectReason.EMPTY_LINE);
+        assertThat(parser.tryParse("2023-01-01 00:00:00,Mbeya,1,2,3")).isNull();
+        assertThat(parser.rejectReason()).isEqualTo(RejectReason.FIELD_COUNT);
+        assertThat(parser.tryParse("01/01/2023 00:00,Mbeya,100,200,300,400,500")).isNull();
+        assertThat(parser.rejectReason()).isEqualTo(RejectReason.BAD_TIMESTAMP);
+        assertThat(parser.tryParse("2023-01-01 00:00:00,Mbeya,100,N/A,300,400,500")).isNull();
+        assertThat(parser.rejectReason()).isEqualTo(RejectReason.BAD_HUMIDITY);
+        assertThat(parser.tryParse("2023-01-01 00:00:00,Mbeya,100,200,300,400,.")).isNull();
+        assertThat(parser.rejectReason()).isEqualTo(RejectReason.BAD_PRESSURE);
+
+        assertThat(parser.tryParse("2023-01-01 00:00:00,Mbeya,18,5,75,0,0,2,12,5,1015,3")).isNotNull();
+        assertThat(parser.rejectReason()).isNull();
+    }
+
+    private void assertSameResult(String line) {
+        Object expected = outcome(() -> legacyFromCsvLine(line));
+        Object actual = outcome(() -> WeatherRecord.fromCsvLine(line));
+        assertThat(actual).as("line [%s]", line).isEqualTo(expected);
+
+        // The non-throwing variant accepts exactly the same lines
+        WeatherRecord tried = WeatherCsvParser.forCurrentThread().tryParse(line);
+        if (expected instanceof WeatherRecord) {
+            assertThat(tried).as("tryParse [%s]", line).isEqualTo(expected);
+        } else {
+            assertThat(tried).as("tryParse [%s]", line).isNull();
+        }
+    }
+
+    private static Object outcome(java.util.function.Supplier<WeatherRecord> parse) {
+        try {
+            return parse.get();
+        } catch (IllegalArgumentException e) {
+            return e.getMessage();
+        }
+    }
+
+    // The regex + split implementation WeatherCsvParser replaced, kept verbatim as the reference
+    private static WeatherRecord legacyFromCsvLine(String csvLine) {
+        csvLine = csvLine.replaceAll("(\\d),(\\d{1,2})(?=,|$)", "$1.$2");
+
+        String[] fields = csvLine.split(",");
+
+        if (fields.length != 7) {
+            throw new IllegalArgumentException("Invalid CSV line (expected 7 fields, got " + fields.length + "): " + csvLine);
+        }
+
+        try {
+            return new WeatherRecord(
+                    LocalDateTime.parse(fields[0].trim(),
+                            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss")),
+                    fields[1].trim(),
+                    Double.parseDouble(fields[2].trim()),
+                    Double.parseDouble(fields[3].trim()),
+                    Double.parseDouble(fields[4].trim()),
+                    Double.parseDouble(fields[5].trim()),
+                    Double.parseDouble(fields[6].trim())
+            );
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Error parsing CSV line: " + csvLine, e);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.qbitspark.dataingestionservice;
+
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class WeatherEnvelopeBatcherTest {
+
+    private final BoundedKafkaSender kafkaSender = mock(BoundedKafkaSender.class);
+    private final PartitionKeyStrategy strategy = new PartitionKeyStrategy.CityTimeBucket(3_600_000L);
+    private WeatherEnvelopeBatcher batcher;
+
+    @BeforeEach
+    void setUp() {
+        when(kafkaSender.send(any(ProducerRecord.class))).thenReturn(CompletableFuture.completedFuture(null));
+        batcher = new WeatherEnvelopeBatcher(kafkaSender);
+        ReflectionTestUtils.setField(batcher, "maxRecords", 4);
+        ReflectionTestUtils.setField(batcher, "maxAgeMs", 0L);
+    }
+
+    private static WeatherRecord reading(LocalDateTime timestamp) {
+        return new WeatherRecord(timestamp, "Mbeya", 21.5, 60.0, 0.0, 12.0, 1012.0);
+    }
+
+    @Test
+    void dropsTheBufferOfEachBucketOnceItsEnvelopeIsSent() {
+        LocalDateTime start = LocalDateTime.of(2021, 1, 1, 0, 0);
+        // Three years of quarter-hourly readings, one bucket key per hour
+        for (int i = 0; i < 3 * 365 * 24 * 4; i++) {
+            WeatherRecord weatherRecord = reading(start.plusMinutes(15L * i));
+            batcher.add(strategy.keyFor(weatherRecord), weatherRecord);
+            assertThat(batcher.getOpenKeys()).isLessThanOrEqualTo(1);
+        }
+
+        assertThat(batcher.getOpenKeys()).isZero();
+        assertThat(batcher.getEnvelopesSent()).isEqualTo(3 * 365 * 24);
+    }
+
+    @Test
+    void dropsExpiredPartialEnvelopes() {
+        LocalDateTime start = LocalDateTime.of(2021, 1, 1, 0, 0);
+        for (int hour = 0; hour < 1000; hour++) {
+            WeatherRecord weatherRecord = reading(start.plusHours(hour));
+            batcher.add(strategy.keyFor(weatherRecord), weatherRecord);
+        }
+        assertThat(batcher.getOpenKeys()).isEqualTo(1000);
+
+        ReflectionTestUtils.invokeMethod(batcher, "flushExpired");
+        assertThat(batcher.getOpenKeys()).isZero();
+        assertThat(batcher.getRecordsSent()).isEqualTo(1000);
+
+        // A key seen again after its buffer was dropped starts a new one
+        WeatherRecord again = reading(start);
+        assertThat(batcher.add(strategy.keyFor(again), again)).isNotDone();
+        assertThat(batcher.getOpenKeys()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,54 @@
+package com.qbitspark.dataingestionservice;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+// JSON vs binary encoding cost on the producer side; run main() with the test classpath
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WeatherRecordCodecBenchmark {
+
+    private final WeatherRecord weatherRecord = new WeatherRecord(
+            LocalDateTime.of(2023, 7, 14, 6, 30, 0), "Dar es Salaam", 24.5, 81.0, 0.25, 12.3, 1012.7);
+
+    private final byte[] binary = WeatherRecordCodec.encode(weatherRecord);
+
+    @Benchmark
+    public byte[] encodeJson() {
+        return weatherRecord.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public byte[] encodeBinary() {
+        return WeatherRecordCodec.encode(weatherRecord);
+    }
+
+    @Benchmark
+    public WeatherRecord decodeBinary() {
+        return WeatherRecordCodec.decode(binary);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(WeatherRecordCodecBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
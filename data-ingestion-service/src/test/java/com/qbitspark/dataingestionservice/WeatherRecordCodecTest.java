@@ -0,0 +1,85 @@
+package com.qbitspark.dataingestionservice;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class WeatherRecordCodecTest {
+
+    @Test
+    void binaryRoundTripKeepsJsonPrecision() {
+        WeatherRecord weatherRecord = new WeatherRecord(
+                LocalDateTime.of(2023, 7, 14, 6, 30, 0), "Dar es Salaam", 24.5, 81.0, 0.25, 12.3, 1012.7);
+
+        WeatherRecord decoded = WeatherRecordCodec.decode(WeatherRecordCodec.encode(weatherRecord));
+
+        assertThat(decoded).isEqualTo(weatherRecord);
+    }
+
+    @Test
+    void roundsToTheScaleOfEachField() {
+        WeatherRecord weatherRecord = new WeatherRecord(
+                LocalDateTime.of(2023, 1, 1, 0, 0, 0), "Mbeya", -3.14159, 75.06, 0.126, 9.99, 1015.34);
+
+        WeatherRecord decoded = WeatherRecordCodec.decode(WeatherRecordCodec.encode(weatherRecord));
+
+        assertThat(decoded.getTemperature()).isEqualTo(-3.1);
+        assertThat(decoded.getHumidity()).isEqualTo(75.1);
+        assertThat(decoded.getRainfall()).isEqualTo(0.13);
+        assertThat(decoded.getWindSpeed()).isEqualTo(10.0);
+        assertThat(decoded.getPressure()).isEqualTo(1015.3);
+    }
+
+    @Test
+    void refusesNonFiniteValues() {
+        WeatherRecord nan = new WeatherRecord(
+                LocalDateTime.of(2023, 1, 1, 0, 0, 0), "Mbeya", Double.NaN, 75.0, 0.2, 12.5, 1015.3);
+        WeatherRecord infinite = new WeatherRecord(
+                LocalDateTime.of(2023, 1, 1, 0, 0, 0), "Mbeya", 18.5, 75.0, Double.POSITIVE_INFINITY, 12.5, 1015.3);
+
+        assertThatThrownBy(() -> WeatherRecordCodec.encode(nan))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("temperature");
+        assertThatThrownBy(() -> WeatherRecordCodec.encode(infinite))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("rainfall");
+    }
+
+    @Test
+    void binaryIsSmallerThanJson() {
+        WeatherRecord weatherRecord = new WeatherRecord(
+                LocalDateTime.of(2023, 7, 14, 6, 30, 0), "Mbeya", 18.5, 75.0, 0.2, 12.5, 1015.3);
+
+        int binarySize = WeatherRecordCodec.encode(weatherRecord).length;
+        int jsonSize = weatherRecord.toString().getBytes(StandardCharsets.UTF_8).length;
+
+        assertThat(binarySize).isEqualTo(36);
+        assertThat(binarySize * 3).isLessThan(jsonSize);
+    }
+
+    @Test
+    void envelopeRoundTripPreservesOrder() {
+        List<WeatherRecord> records = new ArrayList<>();
+        WeatherEnvelope envelope = new WeatherEnvelope("Arusha", 100);
+        for (int i = 0; i < 100; i++) {
+            // Out-of-order timestamps exercise negative deltas
+            WeatherRecord weatherRecord = new WeatherRecord(LocalDateTime.of(2023, 1, 1, 0, 0).plusHours(i % 7 == 0 ? -i : i),
+                    "Arusha", 20.0 + i / 10.0, 60.5, i / 100.0, 5.5, 1010.0 + i);
+            records.add(weatherRecord);
+            envelope.add(weatherRecord);
+        }
+
+        byte[] encoded = envelope.encode();
+
+        assertThat(envelope.isFull()).isTrue();
+        assertThat(WeatherEnvelope.decode(encoded)).containsExactlyElementsOf(records);
+        // Columnar envelope costs far less per record than individual binary messages
+        assertThat(encoded.length).isLessThan(100 * WeatherRecordCodec.encode(records.get(0)).length);
+    }
+}
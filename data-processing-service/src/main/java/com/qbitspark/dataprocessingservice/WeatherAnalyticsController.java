@@ -2,9 +2,11 @@ package com.qbitspark.dataprocessingservice;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
@@ -39,9 +41,13 @@ public class WeatherAnalyticsController {
         return ResponseEntity.ok(response);
     }
 
+    // Optional from/to (yyyy-MM-dd, both inclusive) limit the report to that period; either way the
+    // report reads the daily rollups in weather_rollup_daily, not the raw weather_data rows
     @PostMapping("/quarterly")
-    public ResponseEntity<Map<String, Object>> generateQuarterlyReport() {
-        log.info("🚀 Received request to generate quarterly analytics report");
+    public ResponseEntity<Map<String, Object>> generateQuarterlyReport(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        log.info("🚀 Received request to generate quarterly analytics report (from={}, to={})", from, to);
 
         Map<String, Object> response = new HashMap<>();
 
@@ -52,13 +58,23 @@ public class WeatherAnalyticsController {
             return ResponseEntity.status(409).body(response); // Conflict
         }
 
+        if ((from == null) != (to == null) || (from != null && to.isBefore(from))) {
+            response.put("status", "ERROR");
+            response.put("message", "Give both 'from' and 'to' (to not before from), or neither");
+            response.put("timestamp", LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+            return ResponseEntity.badRequest().body(response);
+        }
+
         try {
             // Run analytics generation asynchronously
             CompletableFuture.runAsync(() -> {
                 isProcessing = true;
                 try {
                     log.info("🔥 Starting quarterly analytics generation...");
-                    Map<String, Object> report = weatherAnalyticsService.generateQuarterlyReport();
+                    Map<String, Object> report = from == null
+                            ? weatherAnalyticsService.generateQuarterlyReport()
+                            : weatherAnalyticsService.generatePeriodReport(
+                                    from.atStartOfDay(), to.plusDays(1).atStartOfDay());
 
                     // Store the report
                     lastReport = report;
@@ -75,7 +91,6 @@ public class WeatherAnalyticsController {
 
             response.put("status", "STARTED");
             response.put("message", "Quarterly analytics generation started successfully");
-            response.put("estimatedTime", "5-10 minutes for 2.3M records");
             response.put("timestamp", LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
             response.put("checkStatusUrl", "/api/analytics/status");
 
@@ -14,7 +14,7 @@ import java.util.Map;
 public class WeatherAnalyticsService {
 
     @Autowired
-    private WeatherDataRepository weatherDataRepository;
+    private WeatherRollupRepository weatherRollupRepository;
 
     public Map<String, Object> generateQuarterlyReport() {
         log.info("🚀 Starting quarterly weather analytics report generation...");
@@ -22,39 +22,50 @@ public class WeatherAnalyticsService {
         Map<String, Object> report = new HashMap<>();
 
         try {
-            // Basic stats
-            long totalRecords = weatherDataRepository.count();
-            report.put("totalRecords", totalRecords);
+            // Daily per-city rollups kept by the storage service; a few rows per city and day
+            // instead of every reading
+            List<WeatherRollupRepository.CitySummary> summaries = weatherRollupRepository.summarizeByCity();
+            long totalRecords = putSummaries(report, summaries);
             log.info("📊 Total records: {}", totalRecords);
 
-            // Calculate global stats using Spring Data methods
-            List<WeatherDataEntity> allData = weatherDataRepository.findAll();
-            Map<String, Object> globalStats = calculateGlobalStats(allData);
-            report.put("globalStats", globalStats);
+            report.put("status", "SUCCESS");
+            report.put("generatedAt", LocalDateTime.now());
+
+            log.info("✅ Generated quarterly report with {} total records", totalRecords);
+            return report;
+
+        } catch (Exception e) {
+            log.error("❌ Error in quarterly report generation", e);
+
+            Map<String, Object> errorReport = new HashMap<>();
+            errorReport.put("status", "ERROR");
+            errorReport.put("message", e.getMessage());
+            errorReport.put("timestamp", LocalDateTime.now());
+
+            return errorReport;
+        }
+    }
 
-            // City analytics - calculate manually
-            Map<String, Object> cityAnalytics = calculateCityAnalytics();
-            report.put("cityAnalytics", cityAnalytics);
+    // Same report for [from, until), both at midnight, from the daily rollups of those days
+    public Map<String, Object> generatePeriodReport(LocalDateTime from, LocalDateTime until) {
+        log.info("🚀 Starting weather analytics report for {} to {}...", from, until);
 
-            // Extreme weather events (no @Query needed!)
-            List<WeatherDataEntity> extremeEvents = weatherDataRepository
-                    .findByTemperatureGreaterThanOrRainfallGreaterThanOrWindSpeedGreaterThan(35.0, 10.0, 25.0);
-            report.put("extremeWeatherCount", extremeEvents.size());
-            log.info("⚡ Found {} extreme weather events", extremeEvents.size());
+        Map<String, Object> report = new HashMap<>();
 
-            // Additional analytics
-            report.put("hotDaysCount", weatherDataRepository.countByTemperatureGreaterThan(30.0));
-            report.put("rainyDaysCount", weatherDataRepository.countByRainfallGreaterThan(0.1));
-            report.put("windyDaysCount", weatherDataRepository.countByWindSpeedGreaterThan(20.0));
+        try {
+            List<WeatherRollupRepository.CitySummary> summaries = weatherRollupRepository.summarizeByCity(from, until);
+            report.put("periodStart", from);
+            report.put("periodEnd", until);
+            long totalRecords = putSummaries(report, summaries);
 
             report.put("status", "SUCCESS");
             report.put("generatedAt", LocalDateTime.now());
 
-            log.info("✅ Generated quarterly report with {} total records", totalRecords);
+            log.info("✅ Generated period report with {} records", totalRecords);
             return report;
 
         } catch (Exception e) {
-            log.error("❌ Error in quarterly report generation", e);
+            log.error("❌ Error in period report generation", e);
 
             Map<String, Object> errorReport = new HashMap<>();
             errorReport.put("status", "ERROR");
@@ -65,19 +76,49 @@ public class WeatherAnalyticsService {
         }
     }
 
-    private Map<String, Object> calculateGlobalStats(List<WeatherDataEntity> data) {
+    // Record count, global and per-city stats and threshold counts; returns the record count
+    private long putSummaries(Map<String, Object> report, List<WeatherRollupRepository.CitySummary> summaries) {
+        long totalRecords = summaries.stream().mapToLong(WeatherRollupRepository.CitySummary::getReadings).sum();
+        report.put("totalRecords", totalRecords);
+        report.put("globalStats", calculateGlobalStats(summaries, totalRecords));
+
+        Map<String, Object> cityAnalytics = new HashMap<>();
+        for (WeatherRollupRepository.CitySummary summary : summaries) {
+            cityAnalytics.put(summary.getCity(), calculateCityStats(summary));
+        }
+        report.put("cityAnalytics", cityAnalytics);
+
+        long extremeWeatherCount = summaries.stream()
+                .mapToLong(WeatherRollupRepository.CitySummary::getExtremeReadings).sum();
+        report.put("extremeWeatherCount", extremeWeatherCount);
+        log.info("⚡ Found {} extreme weather events", extremeWeatherCount);
+        report.put("hotDaysCount", summaries.stream()
+                .mapToLong(WeatherRollupRepository.CitySummary::getHotReadings).sum());
+        report.put("rainyDaysCount", summaries.stream()
+                .mapToLong(WeatherRollupRepository.CitySummary::getRainyReadings).sum());
+        report.put("windyDaysCount", summaries.stream()
+                .mapToLong(WeatherRollupRepository.CitySummary::getWindyReadings).sum());
+        return totalRecords;
+    }
+
+    private Map<String, Object> calculateGlobalStats(List<WeatherRollupRepository.CitySummary> summaries,
+                                                     long totalRecords) {
         Map<String, Object> stats = new HashMap<>();
 
-        if (data.isEmpty()) {
+        if (totalRecords == 0) {
             stats.put("error", "No data available");
             return stats;
         }
 
-        double avgTemp = data.stream().mapToDouble(WeatherDataEntity::getTemperature).average().orElse(0.0);
-        double minTemp = data.stream().mapToDouble(WeatherDataEntity::getTemperature).min().orElse(0.0);
-        double maxTemp = data.stream().mapToDouble(WeatherDataEntity::getTemperature).max().orElse(0.0);
-        double avgHumidity = data.stream().mapToDouble(WeatherDataEntity::getHumidity).average().orElse(0.0);
-        double totalRainfall = data.stream().mapToDouble(WeatherDataEntity::getRainfall).sum();
+        double avgTemp = summaries.stream().mapToDouble(WeatherRollupRepository.CitySummary::getTemperatureSum).sum()
+                / totalRecords;
+        double minTemp = summaries.stream().mapToDouble(WeatherRollupRepository.CitySummary::getTemperatureMin).min()
+                .orElse(0.0);
+        double maxTemp = summaries.stream().mapToDouble(WeatherRollupRepository.CitySummary::getTemperatureMax).max()
+                .orElse(0.0);
+        double avgHumidity = summaries.stream().mapToDouble(WeatherRollupRepository.CitySummary::getHumiditySum).sum()
+                / totalRecords;
+        double totalRainfall = summaries.stream().mapToDouble(WeatherRollupRepository.CitySummary::getRainfallSum).sum();
 
         stats.put("avgTemperature", Math.round(avgTemp * 100.0) / 100.0);
         stats.put("minTemperature", Math.round(minTemp * 100.0) / 100.0);
@@ -88,34 +129,14 @@ public class WeatherAnalyticsService {
         return stats;
     }
 
-    private Map<String, Object> calculateCityAnalytics() {
-        Map<String, Object> cityAnalytics = new HashMap<>();
-
-        // Get distinct cities using a simple approach
-        List<WeatherDataEntity> sample = weatherDataRepository.findAll();
-        List<String> cities = sample.stream()
-                .map(WeatherDataEntity::getCity)
-                .distinct()
-                .toList();
-
-        for (String city : cities) {
-            List<WeatherDataEntity> cityData = weatherDataRepository.findByCity(city);
-
-            if (!cityData.isEmpty()) {
-                Map<String, Object> cityStats = new HashMap<>();
-                cityStats.put("recordCount", cityData.size());
-                cityStats.put("avgTemperature",
-                        Math.round(cityData.stream().mapToDouble(WeatherDataEntity::getTemperature).average().orElse(0.0) * 100.0) / 100.0);
-                cityStats.put("totalRainfall",
-                        Math.round(cityData.stream().mapToDouble(WeatherDataEntity::getRainfall).sum() * 100.0) / 100.0);
-                cityStats.put("avgHumidity",
-                        Math.round(cityData.stream().mapToDouble(WeatherDataEntity::getHumidity).average().orElse(0.0) * 100.0) / 100.0);
-
-                cityAnalytics.put(city, cityStats);
-            }
-        }
-
-        return cityAnalytics;
+    private Map<String, Object> calculateCityStats(WeatherRollupRepository.CitySummary summary) {
+        Map<String, Object> cityStats = new HashMap<>();
+        long readings = summary.getReadings();
+        cityStats.put("recordCount", readings);
+        cityStats.put("avgTemperature", Math.round(summary.getTemperatureSum() / readings * 100.0) / 100.0);
+        cityStats.put("totalRainfall", Math.round(summary.getRainfallSum() * 100.0) / 100.0);
+        cityStats.put("avgHumidity", Math.round(summary.getHumiditySum() / readings * 100.0) / 100.0);
+        return cityStats;
     }
 
     public Map<String, Object> processUnprocessedRecords() {
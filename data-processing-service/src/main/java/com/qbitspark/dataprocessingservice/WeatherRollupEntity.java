@@ -0,0 +1,69 @@
+package com.qbitspark.dataprocessingservice;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Immutable;
+
+import java.io.Serializable;
+import java.time.LocalDateTime;
+
+// One city and day of weather_data, maintained by the storage service as readings are stored.
+// Read-only here; only the columns the reports use are mapped.
+@Entity
+@Immutable
+@Table(name = "weather_rollup_daily")
+@IdClass(WeatherRollupEntity.Key.class)
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class WeatherRollupEntity {
+
+    @Id
+    @Column(nullable = false, length = 50)
+    private String city;
+
+    // Start of the day
+    @Id
+    @Column(nullable = false)
+    private LocalDateTime bucket;
+
+    @Column(nullable = false)
+    private Long readings;
+
+    @Column(name = "temperature_sum", nullable = false)
+    private Double temperatureSum;
+
+    @Column(name = "temperature_min", nullable = false)
+    private Double temperatureMin;
+
+    @Column(name = "temperature_max", nullable = false)
+    private Double temperatureMax;
+
+    @Column(name = "humidity_sum", nullable = false)
+    private Double humiditySum;
+
+    @Column(name = "rainfall_sum", nullable = false)
+    private Double rainfallSum;
+
+    @Column(name = "hot_readings", nullable = false)
+    private Long hotReadings;
+
+    @Column(name = "rainy_readings", nullable = false)
+    private Long rainyReadings;
+
+    @Column(name = "windy_readings", nullable = false)
+    private Long windyReadings;
+
+    @Column(name = "extreme_readings", nullable = false)
+    private Long extremeReadings;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Key implements Serializable {
+        private String city;
+        private LocalDateTime bucket;
+    }
+}
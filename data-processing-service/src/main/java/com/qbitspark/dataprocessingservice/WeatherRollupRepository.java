@@ -0,0 +1,46 @@
+package com.qbitspark.dataprocessingservice;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface WeatherRollupRepository extends JpaRepository<WeatherRollupEntity, WeatherRollupEntity.Key> {
+
+    // Totals of one city over a range of daily rollups
+    interface CitySummary {
+        String getCity();
+        Long getReadings();
+        Double getTemperatureSum();
+        Double getTemperatureMin();
+        Double getTemperatureMax();
+        Double getHumiditySum();
+        Double getRainfallSum();
+        Long getHotReadings();
+        Long getRainyReadings();
+        Long getWindyReadings();
+        Long getExtremeReadings();
+    }
+
+    @Query("SELECT r.city AS city, SUM(r.readings) AS readings, SUM(r.temperatureSum) AS temperatureSum, "
+            + "MIN(r.temperatureMin) AS temperatureMin, MAX(r.temperatureMax) AS temperatureMax, "
+            + "SUM(r.humiditySum) AS humiditySum, SUM(r.rainfallSum) AS rainfallSum, "
+            + "SUM(r.hotReadings) AS hotReadings, SUM(r.rainyReadings) AS rainyReadings, "
+            + "SUM(r.windyReadings) AS windyReadings, SUM(r.extremeReadings) AS extremeReadings "
+            + "FROM WeatherRollupEntity r GROUP BY r.city ORDER BY r.city")
+    List<CitySummary> summarizeByCity();
+
+    // Days in [start, end); both are expected at midnight
+    @Query("SELECT r.city AS city, SUM(r.readings) AS readings, SUM(r.temperatureSum) AS temperatureSum, "
+            + "MIN(r.temperatureMin) AS temperatureMin, MAX(r.temperatureMax) AS temperatureMax, "
+            + "SUM(r.humiditySum) AS humiditySum, SUM(r.rainfallSum) AS rainfallSum, "
+            + "SUM(r.hotReadings) AS hotReadings, SUM(r.rainyReadings) AS rainyReadings, "
+            + "SUM(r.windyReadings) AS windyReadings, SUM(r.extremeReadings) AS extremeReadings "
+            + "FROM WeatherRollupEntity r WHERE r.bucket >= :start AND r.bucket < :end "
+            + "GROUP BY r.city ORDER BY r.city")
+    List<CitySummary> summarizeByCity(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+}
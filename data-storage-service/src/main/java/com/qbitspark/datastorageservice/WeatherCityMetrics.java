@@ -0,0 +1,112 @@
+package com.qbitspark.datastorageservice;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Per-city consumption metrics, recorded by the storage listener itself. Counters are LongAdders and
+// the timestamps LongAccumulators (max), so concurrent listener threads never contend on a lock.
+// Each city's meters are registered with Micrometer the first time it is seen:
+//   weather.storage.readings        readings stored            (counter, tag city)
+//   weather.storage.errors          messages that failed       (counter, tag city from the Kafka key,
+//                                   "unknown" for cities never stored)
+//   weather.storage.last.seen       when the city was last stored, epoch seconds   (gauge, tag city)
+//   weather.storage.latest.reading  newest reading timestamp stored, epoch seconds (gauge, tag city)
+// Browse them under /actuator/metrics/weather.storage.readings?tag=city:Mbeya and so on.
+@Component
+@RequiredArgsConstructor
+public class WeatherCityMetrics {
+
+    public static final String UNKNOWN_CITY = "unknown";
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, CityStats> cities = new ConcurrentHashMap<>();
+
+    static final class CityStats {
+        final LongAdder readings = new LongAdder();
+        final LongAdder errors = new LongAdder();
+        final LongAccumulator lastSeenMillis = new LongAccumulator(Math::max, 0);
+        final LongAccumulator latestReadingMillis = new LongAccumulator(Math::max, Long.MIN_VALUE);
+    }
+
+    // Readings of one batch after it was committed. Envelopes carry one city each, so runs of the
+    // same city are counted with a single add.
+    public void recordStored(List<WeatherReading> readings) {
+        long now = System.currentTimeMillis();
+        int i = 0;
+        while (i < readings.size()) {
+            String city = readings.get(i).city();
+            CityStats stats = statsFor(city);
+            long latest = Long.MIN_VALUE;
+            int runStart = i;
+            while (i < readings.size() && readings.get(i).city().equals(city)) {
+                latest = Math.max(latest, readings.get(i).timestamp().toInstant(ZoneOffset.UTC).toEpochMilli());
+                i++;
+            }
+            stats.readings.add(i - runStart);
+            stats.latestReadingMillis.accumulate(latest);
+            stats.lastSeenMillis.accumulate(now);
+        }
+    }
+
+    // A message that could not be decoded; its city comes from the Kafka key. Keys of undecodable
+    // messages can be anything, so only cities already stored get their own tag.
+    public void recordError(String key) {
+        CityStats stats = cities.get(cityOfKey(key));
+        (stats != null ? stats : statsFor(UNKNOWN_CITY)).errors.increment();
+    }
+
+    // Ingestion keys are the city, optionally followed by "@bucket" or "#sub-key"
+    static String cityOfKey(String key) {
+        if (key == null || key.isEmpty()) {
+            return UNKNOWN_CITY;
+        }
+        int end = key.length();
+        int at = key.indexOf('@');
+        int hash = key.indexOf('#');
+        if (at > 0) {
+            end = at;
+        }
+        if (hash > 0 && hash < end) {
+            end = hash;
+        }
+        return key.substring(0, end);
+    }
+
+    private CityStats statsFor(String city) {
+        CityStats stats = cities.get(city);
+        return stats != null ? stats : cities.computeIfAbsent(city, this::register);
+    }
+
+    private CityStats register(String city) {
+        CityStats stats = new CityStats();
+        FunctionCounter.builder("weather.storage.readings", stats.readings, LongAdder::sum)
+                .description("Weather readings stored")
+                .tag("city", city)
+                .register(meterRegistry);
+        FunctionCounter.builder("weather.storage.errors", stats.errors, LongAdder::sum)
+                .description("Weather messages that could not be stored")
+                .tag("city", city)
+                .register(meterRegistry);
+        Gauge.builder("weather.storage.last.seen", stats.lastSeenMillis, millis -> millis.get() / 1000.0)
+                .description("When readings for the city were last stored, epoch seconds")
+                .tag("city", city)
+                .register(meterRegistry);
+        Gauge.builder("weather.storage.latest.reading", stats.latestReadingMillis,
+                        millis -> millis.get() == Long.MIN_VALUE ? Double.NaN : millis.get() / 1000.0)
+                .description("Timestamp of the newest stored reading for the city, epoch seconds")
+                .tag("city", city)
+                .register(meterRegistry);
+        return stats;
+    }
+}
@@ -0,0 +1,123 @@
+package com.qbitspark.datastorageservice;
+
+import java.io.BufferedWriter;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+// Encodes readings as the body of a COPY <table> (COLUMNS) FROM STDIN, in PostgreSQL's
+// binary or CSV format. Column types must match weather_data (see WeatherDataPartitions):
+// bigint, timestamp, varchar, five double precision, timestamp, boolean.
+//
+// Binary format (all big-endian):
+//   11 bytes  signature "PGCOPY\n\377\r\n\0", int flags 0, int header extension length 0
+//   per row   short field count, then per field int byte length and the value
+//   trailer   short -1
+// timestamp values are microseconds since 2000-01-01 00:00:00, doubles are IEEE 754.
+public final class WeatherCopyEncoder {
+
+    public static final String COLUMNS =
+            "id, timestamp, city, temperature, humidity, rainfall, wind_speed, pressure, created_at, processed";
+
+    private static final byte[] BINARY_SIGNATURE = {'P', 'G', 'C', 'O', 'P', 'Y', '\n', (byte) 0xFF, '\r', '\n', 0};
+    private static final short FIELD_COUNT = 10;
+    private static final long POSTGRES_EPOCH_SECONDS = LocalDateTime.of(2000, 1, 1, 0, 0).toEpochSecond(ZoneOffset.UTC);
+
+    private WeatherCopyEncoder() {
+    }
+
+    public static String copySql(String table, String format) {
+        return "COPY " + table + " (" + COLUMNS + ") FROM STDIN WITH (FORMAT " + format + ")";
+    }
+
+    public static void writeBinary(List<WeatherReading> readings, LongSupplier ids, LocalDateTime createdAt,
+                                   OutputStream target) throws IOException {
+        DataOutputStream out = new DataOutputStream(target);
+        out.write(BINARY_SIGNATURE);
+        out.writeInt(0);
+        out.writeInt(0);
+
+        long createdAtMicros = postgresMicros(createdAt);
+        for (WeatherReading reading : readings) {
+            byte[] city = reading.city().getBytes(StandardCharsets.UTF_8);
+            out.writeShort(FIELD_COUNT);
+            writeLong(out, ids.getAsLong());
+            writeLong(out, postgresMicros(reading.timestamp()));
+            out.writeInt(city.length);
+            out.write(city);
+            writeDouble(out, reading.temperature());
+            writeDouble(out, reading.humidity());
+            writeDouble(out, reading.rainfall());
+            writeDouble(out, reading.windSpeed());
+            writeDouble(out, reading.pressure());
+            writeLong(out, createdAtMicros);
+            out.writeInt(1);
+            out.writeByte(0);
+        }
+
+        out.writeShort(-1);
+        out.flush();
+    }
+
+    public static void writeCsv(List<WeatherReading> readings, LongSupplier ids, LocalDateTime createdAt,
+                                OutputStream target) throws IOException {
+        Writer out = new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8));
+        String createdAtText = createdAt.toString();
+
+        for (WeatherReading reading : readings) {
+            out.write(Long.toString(ids.getAsLong()));
+            out.write(',');
+            out.write(reading.timestamp().toString());
+            out.write(',');
+            writeQuoted(out, reading.city());
+            out.write(',');
+            out.write(Double.toString(reading.temperature()));
+            out.write(',');
+            out.write(Double.toString(reading.humidity()));
+            out.write(',');
+            out.write(Double.toString(reading.rainfall()));
+            out.write(',');
+            out.write(Double.toString(reading.windSpeed()));
+            out.write(',');
+            out.write(Double.toString(reading.pressure()));
+            out.write(',');
+            out.write(createdAtText);
+            out.write(",f\n");
+        }
+        out.flush();
+    }
+
+    static long postgresMicros(LocalDateTime timestamp) {
+        long seconds = timestamp.toEpochSecond(ZoneOffset.UTC) - POSTGRES_EPOCH_SECONDS;
+        // Binary COPY takes whole microseconds; sub-microsecond digits are dropped
+        return seconds * 1_000_000L + timestamp.getNano() / 1_000L;
+    }
+
+    private static void writeLong(DataOutputStream out, long value) throws IOException {
+        out.writeInt(8);
+        out.writeLong(value);
+    }
+
+    private static void writeDouble(DataOutputStream out, double value) throws IOException {
+        out.writeInt(8);
+        out.writeDouble(value);
+    }
+
+    // CSV quoting: always quoted, embedded quotes doubled, so commas and newlines in names are safe
+    private static void writeQuoted(Writer out, String value) throws IOException {
+        out.write('"');
+        if (value.indexOf('"') < 0) {
+            out.write(value);
+        } else {
+            out.write(value.replace("\"", "\"\""));
+        }
+        out.write('"');
+    }
+}
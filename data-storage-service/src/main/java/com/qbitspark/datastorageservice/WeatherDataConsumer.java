@@ -2,115 +2,181 @@ package com.qbitspark.datastorageservice;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.log.LogAccessor;
 import org.springframework.kafka.annotation.KafkaListener;
-import org.springframework.kafka.support.KafkaHeaders;
-import org.springframework.messaging.handler.annotation.Header;
-import org.springframework.messaging.handler.annotation.Payload;
+import org.springframework.kafka.listener.AbstractConsumerSeekAware;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.support.serializer.DeserializationException;
+import org.springframework.kafka.support.serializer.SerializationUtils;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicLong;
 
 @Service
 @Slf4j
 @RequiredArgsConstructor
-public class WeatherDataConsumer {
+public class WeatherDataConsumer extends AbstractConsumerSeekAware {
 
 
-    private final WeatherDataRepository weatherDataRepository;
+    private final WeatherWriteBuffer weatherWriteBuffer;
+    private final WeatherDataCounts weatherDataCounts;
+    private final WeatherCityMetrics weatherCityMetrics;
+    private final WeatherDeadLetters weatherDeadLetters;
+
+    private static final LogAccessor DESERIALIZATION_LOG = new LogAccessor(WeatherDataConsumer.class);
 
     private final AtomicLong processedCount = new AtomicLong(0);
     private final AtomicLong errorCount = new AtomicLong(0);
+    private final AtomicLong duplicateCount = new AtomicLong(0);
+
+    // Receives a whole poll (up to max-poll-records) per listener thread; app.storage.listener-concurrency
+    // threads share the topic's partitions. The decoded readings go to WeatherWriteBuffer and the
+    // listener returns to polling right away; the buffer pauses partitions when the database falls
+    // behind. WeatherShardedWriter stores each city on a fixed writer thread and connection,
+    // spooling to local disk during database outages (WeatherSpool); readings it gives up on, and
+    // messages that do not decode, are handed to the retry topics and the DLT (WeatherDeadLetters).
+    // Only then are the offsets acknowledged (ack-mode: manual_immediate, the commit itself happens
+    // on the consumer thread), in poll order; a poll that cannot be finished is sought back instead.
+    // Readings that were already stored are skipped on (city, timestamp), so a redelivery after a
+    // crash or rebalance is cheap.
+    // Per-city throughput, last-seen time and errors are recorded here too (WeatherCityMetrics),
+    // so no second consumer group has to read the topic for monitoring.
+    @KafkaListener(id = WeatherWriteBuffer.LISTENER_ID, topics = "weather-data", groupId = "weather-storage-group",
+            batch = "true", concurrency = "${app.storage.listener-concurrency:1}")
+    public void consumeWeatherData(List<ConsumerRecord<String, List<WeatherReading>>> messages,
+                                   Acknowledgment acknowledgment) {
+
+        List<WeatherReading> readings = new ArrayList<>(messages.size());
+        List<CompletableFuture<?>> deadLetters = new ArrayList<>();
+        for (ConsumerRecord<String, List<WeatherReading>> message : messages) {
+            log.debug("Received weather data - Key: {}, Partition: {}, Offset: {}",
+                    message.key(), message.partition(), message.offset());
+
+            // Decoded by WeatherReadingsDeserializer, whatever the weather-format header says
+            if (message.value() != null) {
+                readings.addAll(message.value());
+                continue;
+            }
 
-    @KafkaListener(topics = "weather-data", groupId = "weather-storage-group")
-    @Transactional
-    public void consumeWeatherData(@Payload String message,
-                                   @Header(KafkaHeaders.RECEIVED_KEY) String key,
-                                   @Header(KafkaHeaders.RECEIVED_PARTITION) int partition,
-                                   @Header(KafkaHeaders.OFFSET) long offset) {
-
-        try {
-            log.debug("Received weather data - Key: {}, Partition: {}, Offset: {}", key, partition, offset);
-
-
-            WeatherDataEntity weatherEntity = WeatherDataEntity.fromKafkaMessage(message);
-
-
-            WeatherDataEntity savedEntity = weatherDataRepository.save(weatherEntity);
-
-            // Update counters
-            long count = processedCount.incrementAndGet();
+            // A poison message: ErrorHandlingDeserializer left the failure in a header. It would fail
+            // the same way on redelivery, so it goes straight to the DLT and the rest of the batch carries on
+            DeserializationException failure = SerializationUtils.getExceptionFromHeader(
+                    message, SerializationUtils.VALUE_DESERIALIZER_EXCEPTION_HEADER, DESERIALIZATION_LOG);
+            long errors = errorCount.incrementAndGet();
+            weatherCityMetrics.recordError(message.key());
+            Throwable cause = failure == null ? null : failure.getCause() != null ? failure.getCause() : failure;
+            log.error("❌ Error processing weather data message [Error #{}]: partition {}, offset {}: {}",
+                    errors, message.partition(), message.offset(), cause == null ? "empty value" : cause.getMessage());
+            deadLetters.add(weatherDeadLetters.deadLetter(message, failure == null ? null : failure.getData(), cause));
+        }
 
+        // Where each partition of the poll starts, should it have to be delivered again
+        Map<TopicPartition, Long> firstOffsets = new HashMap<>();
+        for (ConsumerRecord<String, List<WeatherReading>> message : messages) {
+            firstOffsets.putIfAbsent(new TopicPartition(message.topic(), message.partition()), message.offset());
+        }
 
-            if (count % 1000 == 0) {
-                log.info("✅ Stored {} weather records in database. Latest: {} - {}",
-                        count, savedEntity.getCity(), savedEntity.getTimestamp());
+        // Counters move once the rows are durable (in the database or the spool), offsets once the
+        // rest has been handed to a retry topic or the DLT as well; the sends are composed into the
+        // buffer's chain rather than waited on. A poll without readings goes through the buffer as
+        // well, so its offsets are not committed ahead of earlier polls.
+        weatherWriteBuffer.submit(readings, firstOffsets, acknowledgment, result -> {
+            if (!readings.isEmpty()) {
+                onBatchCommitted(result.inserted(),
+                        readings.size() - result.inserted() - result.spooled() - result.failed().size(),
+                        messages.size(), readings.get(readings.size() - 1));
+                weatherCityMetrics.recordStored(result.isStored() ? readings : stored(readings, result.failed()));
             }
-
-            // Log city-specific progress every 10000 records
-            if (count % 10000 == 0) {
-                long totalRecords = weatherDataRepository.count();
-                long unprocessedRecords = weatherDataRepository.countByProcessedFalse();
-
-                log.info("📊 Database Status - Total: {}, Unprocessed: {}, Error Count: {}",
-                        totalRecords, unprocessedRecords, errorCount.get());
+            List<CompletableFuture<?>> handOffs = new ArrayList<>(deadLetters);
+            if (!result.isStored()) {
+                handOffs.add(onBatchFailed(result));
             }
+            return CompletableFuture.allOf(handOffs.toArray(CompletableFuture[]::new));
+        }, this::rewind);
+    }
 
-        } catch (Exception e) {
-            long errors = errorCount.incrementAndGet();
-            log.error("❌ Error processing weather data message [Error #{}]: {}", errors, message, e);
-
-            // Continue processing other messages even if one fails
-            // In production, you might want to send to a dead letter queue
+    // Queued on the consumer thread; partitions no longer assigned to this listener are left alone
+    private boolean rewind(TopicPartition partition, long offset) {
+        List<ConsumerSeekCallback> callbacks = getSeekCallbacksFor(partition);
+        if (callbacks == null || callbacks.isEmpty()) {
+            return false;
         }
+        callbacks.forEach(callback -> callback.seek(partition.topic(), partition.partition(), offset));
+        return true;
     }
 
-    @KafkaListener(topics = "weather-data", groupId = "weather-storage-monitoring-group")
-    public void monitorWeatherData(@Payload String message,
-                                   @Header(KafkaHeaders.RECEIVED_KEY) String key) {
+    @Override
+    public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+        super.onPartitionsRevoked(partitions);
+        weatherWriteBuffer.onPartitionsRevoked(partitions);
+    }
 
-        // This is a separate consumer group for monitoring only
-        // Doesn't interfere with the main storage consumer
+    // Readings the writers gave up on go to the retry topics instead of holding up the partition
+    private CompletableFuture<Void> onBatchFailed(WeatherShardedWriter.Result result) {
+        long errors = errorCount.addAndGet(result.failed().size());
+        for (WeatherReading reading : result.failed()) {
+            weatherCityMetrics.recordError(reading.city());
+        }
+        log.error("❌ Could not store {} weather readings [Error #{}], sending them to {}: {}",
+                result.failed().size(), errors, weatherDeadLetters.getRetryTopics().get(0),
+                result.failure().getMessage());
+        return weatherDeadLetters.retry(result.failed(), result.failure());
+    }
 
-        try {
-            // Extract city from a message for monitoring
-            String city = extractCityFromMessage(message);
+    private static List<WeatherReading> stored(List<WeatherReading> readings, List<WeatherReading> failed) {
+        Set<WeatherReading> notStored = Collections.newSetFromMap(new IdentityHashMap<>());
+        notStored.addAll(failed);
+        List<WeatherReading> stored = new ArrayList<>(readings.size());
+        for (WeatherReading reading : readings) {
+            if (!notStored.contains(reading)) {
+                stored.add(reading);
+            }
+        }
+        return stored;
+    }
 
-            // Log city-specific activity (useful for debugging)
-            log.debug("🌦️  Weather data received for city: {}", city);
+    private void onBatchCommitted(int saved, int duplicates, int messageCount, WeatherReading latest) {
+        weatherDataCounts.recordStored(saved);
+        if (duplicates > 0) {
+            long skipped = duplicateCount.addAndGet(duplicates);
+            log.debug("Skipped {} already stored readings ({} in total)", duplicates, skipped);
+        }
+        long before = processedCount.getAndAdd(saved);
+        long count = before + saved;
 
-        } catch (Exception e) {
-            log.warn("⚠️  Could not extract city from message for monitoring: {}", message);
+        if (count / 1000 > before / 1000) {
+            log.info("✅ Stored {} weather records in database ({} messages in last batch). Latest: {} - {}",
+                    count, messageCount, latest.city(), latest.timestamp());
         }
-    }
 
-    private String extractCityFromMessage(String jsonMessage) {
-        try {
-            // Simple extraction - look for "city":"value"
-            String cityPattern = "\"city\":\"";
-            int startIndex = jsonMessage.indexOf(cityPattern);
-            if (startIndex != -1) {
-                startIndex += cityPattern.length();
-                int endIndex = jsonMessage.indexOf("\"", startIndex);
-                if (endIndex != -1) {
-                    return jsonMessage.substring(startIndex, endIndex);
-                }
-            }
-            return "Unknown";
-        } catch (Exception e) {
-            return "Unknown";
+        // Table-wide numbers every 10000 records, from WeatherDataCounts rather than COUNT(*) on this thread
+        if (count / 10000 > before / 10000) {
+            log.info("📊 Database Status - Total: ~{}, Unprocessed: ~{}, Error Count: {}",
+                    weatherDataCounts.getTotal(), weatherDataCounts.getUnprocessed(), errorCount.get());
         }
     }
 
-    // Method to get consumer statistics
+    // Method to get consumer statistics; table counts are maintained by WeatherDataCounts
     public ConsumerStats getConsumerStats() {
-        long totalRecords = weatherDataRepository.count();
-        long unprocessedRecords = weatherDataRepository.countByProcessedFalse();
+        long totalRecords = weatherDataCounts.getTotal();
+        long unprocessedRecords = weatherDataCounts.getUnprocessed();
 
         return new ConsumerStats(
                 processedCount.get(),
                 errorCount.get(),
+                duplicateCount.get(),
                 totalRecords,
                 unprocessedRecords
         );
@@ -120,6 +186,7 @@ public class WeatherDataConsumer {
     public void resetCounters() {
         processedCount.set(0);
         errorCount.set(0);
+        duplicateCount.set(0);
         log.info("🔄 Consumer counters reset");
     }
 
@@ -127,20 +194,23 @@ public class WeatherDataConsumer {
     public static class ConsumerStats {
         public final long messagesProcessed;
         public final long errors;
+        public final long duplicatesSkipped;
         public final long totalDatabaseRecords;
         public final long unprocessedRecords;
 
-        public ConsumerStats(long messagesProcessed, long errors, long totalDatabaseRecords, long unprocessedRecords) {
+        public ConsumerStats(long messagesProcessed, long errors, long duplicatesSkipped,
+                             long totalDatabaseRecords, long unprocessedRecords) {
             this.messagesProcessed = messagesProcessed;
             this.errors = errors;
+            this.duplicatesSkipped = duplicatesSkipped;
             this.totalDatabaseRecords = totalDatabaseRecords;
             this.unprocessedRecords = unprocessedRecords;
         }
 
         @Override
         public String toString() {
-            return String.format("ConsumerStats{processed=%d, errors=%d, totalDB=%d, unprocessed=%d}",
-                    messagesProcessed, errors, totalDatabaseRecords, unprocessedRecords);
+            return String.format("ConsumerStats{processed=%d, errors=%d, duplicates=%d, totalDB=%d, unprocessed=%d}",
+                    messagesProcessed, errors, duplicatesSkipped, totalDatabaseRecords, unprocessedRecords);
         }
     }
 }
\ No newline at end of file
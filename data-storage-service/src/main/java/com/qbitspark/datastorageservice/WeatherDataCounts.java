@@ -0,0 +1,129 @@
+package com.qbitspark.datastorageservice;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Row counts of weather_data without COUNT(*) on the consumer thread. A background thread takes
+// exact counts every exact-count-interval-ms and reads the planner's estimate (pg_class.reltuples,
+// summed over partitions) more often. Between exact refreshes the rows committed by this instance
+// are added on top, so the numbers stay current; writes by other instances show up at the next refresh.
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class WeatherDataCounts {
+
+    private static final String RELTUPLES_SQL = """
+            SELECT COALESCE(SUM(GREATEST(c.reltuples, 0)), 0)::bigint
+            FROM pg_class c
+            WHERE c.oid = 'weather_data'::regclass
+               OR c.oid IN (SELECT inhrelid FROM pg_inherits WHERE inhparent = 'weather_data'::regclass)
+            """;
+
+    private final WeatherDataRepository weatherDataRepository;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Value("${app.monitoring.exact-count-interval-ms:300000}")
+    private long exactCountIntervalMs;
+
+    @Value("${app.monitoring.estimate-interval-ms:10000}")
+    private long estimateIntervalMs;
+
+    private record Snapshot(long total, long unprocessed, Instant takenAt) {
+    }
+
+    private volatile Snapshot exact;
+    private volatile long plannerEstimate = -1;
+
+    // Rows this instance committed since the last exact snapshot
+    private final LongAdder storedSinceExact = new LongAdder();
+
+    private ScheduledExecutorService refresher;
+
+    @PostConstruct
+    void start() {
+        refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "weather-data-counts");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refresher.scheduleWithFixedDelay(this::refreshEstimate, 0, estimateIntervalMs, TimeUnit.MILLISECONDS);
+        refresher.scheduleWithFixedDelay(this::refreshExact, 0, exactCountIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        refresher.shutdownNow();
+    }
+
+    // Call once the rows are committed
+    public void recordStored(long rows) {
+        storedSinceExact.add(rows);
+    }
+
+    public long getTotal() {
+        Snapshot snapshot = exact;
+        if (snapshot == null) {
+            return Math.max(plannerEstimate, 0) + storedSinceExact.sum();
+        }
+        return snapshot.total() + storedSinceExact.sum();
+    }
+
+    // New rows are stored with processed = false
+    public long getUnprocessed() {
+        Snapshot snapshot = exact;
+        return snapshot == null ? -1 : snapshot.unprocessed() + storedSinceExact.sum();
+    }
+
+    public Map<String, Object> getStats() {
+        Snapshot snapshot = exact;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("total", getTotal());
+        stats.put("unprocessed", getUnprocessed());
+        stats.put("storedSinceExactCount", storedSinceExact.sum());
+        stats.put("plannerEstimate", plannerEstimate);
+        stats.put("exactTotal", snapshot == null ? null : snapshot.total());
+        stats.put("exactUnprocessed", snapshot == null ? null : snapshot.unprocessed());
+        stats.put("exactCountAt", snapshot == null ? null : snapshot.takenAt().toString());
+        return stats;
+    }
+
+    void refreshEstimate() {
+        try {
+            Long estimate = jdbcTemplate.queryForObject(RELTUPLES_SQL, Long.class);
+            plannerEstimate = estimate == null ? -1 : estimate;
+        } catch (Exception e) {
+            log.warn("⚠️  Could not read weather_data row estimate: {}", e.getMessage());
+        }
+    }
+
+    void refreshExact() {
+        try {
+            // Rows committed while the counts run may be counted twice until the next refresh
+            long pending = storedSinceExact.sum();
+            long startedAt = System.nanoTime();
+            long total = weatherDataRepository.count();
+            long unprocessed = weatherDataRepository.countByProcessedFalse();
+
+            exact = new Snapshot(total, unprocessed, Instant.now());
+            storedSinceExact.add(-pending);
+
+            log.info("📊 Database Status - Total: {}, Unprocessed: {} (counted in {} ms)",
+                    total, unprocessed, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+        } catch (Exception e) {
+            log.warn("⚠️  Could not count weather_data rows: {}", e.getMessage());
+        }
+    }
+}
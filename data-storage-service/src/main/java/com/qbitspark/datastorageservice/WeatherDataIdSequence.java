@@ -0,0 +1,46 @@
+package com.qbitspark.datastorageservice;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+// weather_data ids used to come from the IDENTITY column's own sequence; they now come from
+// weather_data_seq (pooled, see WeatherDataEntity). WeatherDataPartitions creates that sequence
+// starting at 1, so on a database that already holds rows it would hand out ids that are taken. Before any
+// listener starts, move the sequence past the highest existing id if it is behind.
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class WeatherDataIdSequence {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Creates the table and the sequence first
+    private final WeatherDataPartitions weatherDataPartitions;
+
+    @PostConstruct
+    void alignWithExistingRows() {
+        Long maxId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM weather_data", Long.class);
+        if (maxId == null) {
+            return;
+        }
+
+        // With the pooled optimizer every id handed out so far is <= last_value. A sequence that
+        // was never called would still start at 1.
+        boolean inUse = Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT is_called AND last_value >= ? FROM " + WeatherDataEntity.ID_SEQUENCE,
+                Boolean.class, maxId));
+        if (inUse) {
+            return;
+        }
+
+        // The next block then covers (maxId, maxId + allocation size]
+        long next = maxId + WeatherDataEntity.ID_ALLOCATION_SIZE;
+        jdbcTemplate.queryForObject("SELECT setval(?::regclass, ?, false)", Long.class,
+                WeatherDataEntity.ID_SEQUENCE, next);
+        log.info("🔢 Moved {} past existing weather_data ids (max id {}, next value {})",
+                WeatherDataEntity.ID_SEQUENCE, maxId, next);
+    }
+}
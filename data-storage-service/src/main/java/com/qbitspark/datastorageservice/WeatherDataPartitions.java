@@ -0,0 +1,357 @@
+package com.qbitspark.datastorageservice;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Owns the weather_data schema: a table range-partitioned by month on timestamp, so date-range
+// queries only touch the months they ask for and retention drops whole partitions.
+//
+// - On startup the partitioned table is created, unique on (city, timestamp) so that replayed
+//   readings are skipped (see WeatherDataWriter). A plain weather_data table from before is renamed
+//   to weather_data_legacy and attached as one partition covering its months, without copying rows.
+// - Partitions are created months-ahead in advance, and on demand for any month a batch writes to
+//   (historical CSV loads), before the batch's own transaction touches the table.
+// - Every maintenance interval, partitions entirely older than retention-months are detached
+//   (kept as standalone tables for archiving) or dropped. Readings for those months are refused
+//   (see isExpired) and end up on the retry topics and the DLT rather than recreating the month.
+@Component
+@Slf4j
+public class WeatherDataPartitions {
+
+    private static final String TABLE = "weather_data";
+    private static final String LEGACY_TABLE = "weather_data_legacy";
+
+    private static final Pattern RANGE_BOUND = Pattern.compile("FROM \\('([^']+)'\\) TO \\('([^']+)'\\)");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    // Partition DDL commits on its own, independent of the batch that needed it
+    private final TransactionTemplate newTransaction;
+
+    @Value("${app.storage.partitions.months-ahead:3}")
+    private int monthsAhead;
+
+    // 0 keeps everything
+    @Value("${app.storage.partitions.retention-months:0}")
+    private int retentionMonths;
+
+    // detach or drop
+    @Value("${app.storage.partitions.retention-action:detach}")
+    private String retentionAction;
+
+    @Value("${app.storage.partitions.maintenance-interval-ms:3600000}")
+    private long maintenanceIntervalMs;
+
+    public record Partition(String name, LocalDateTime from, LocalDateTime to) {
+        boolean covers(YearMonth month) {
+            LocalDateTime start = month.atDay(1).atStartOfDay();
+            return !start.isBefore(from) && start.isBefore(to);
+        }
+    }
+
+    // Sorted by lower bound; replaced as a whole on every change
+    private volatile List<Partition> partitions = List.of();
+
+    private ScheduledExecutorService maintenance;
+
+    public WeatherDataPartitions(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.newTransaction = new TransactionTemplate(transactionManager);
+        this.newTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @PostConstruct
+    void init() {
+        if (!"detach".equals(retentionAction) && !"drop".equals(retentionAction)) {
+            throw new IllegalArgumentException("Unknown app.storage.partitions.retention-action: " + retentionAction);
+        }
+
+        transactionTemplate.executeWithoutResult(status -> createSchema());
+        partitions = loadPartitions();
+        ensureUpcoming();
+
+        maintenance = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "weather-data-partitions");
+            thread.setDaemon(true);
+            return thread;
+        });
+        maintenance.scheduleWithFixedDelay(this::runMaintenance, maintenanceIntervalMs, maintenanceIntervalMs,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        maintenance.shutdownNow();
+    }
+
+    // Makes sure every month in the batch has a partition to route to
+    public void ensureFor(List<WeatherReading> readings) {
+        YearMonth previous = null;
+        for (WeatherReading reading : readings) {
+            YearMonth month = YearMonth.from(reading.timestamp());
+            // Batches are mostly one month; skip the lookup while it does not change
+            if (!month.equals(previous)) {
+                ensureMonth(month);
+                previous = month;
+            }
+        }
+    }
+
+    public List<Partition> getPartitions() {
+        return partitions;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        List<Partition> current = partitions;
+        stats.put("partitions", current.size());
+        stats.put("from", current.isEmpty() ? null : current.get(0).from().toString());
+        stats.put("to", current.isEmpty() ? null : current.get(current.size() - 1).to().toString());
+        stats.put("monthsAhead", monthsAhead);
+        stats.put("retentionMonths", retentionMonths);
+        stats.put("retentionAction", retentionAction);
+        return stats;
+    }
+
+    // Readings for months retention has removed; their partition tables may still exist detached,
+    // so they are refused instead of being routed nowhere
+    public boolean isExpired(LocalDateTime timestamp) {
+        YearMonth cutoff = retentionCutoff();
+        return cutoff != null && YearMonth.from(timestamp).isBefore(cutoff);
+    }
+
+    // First month retention keeps; null if everything is kept
+    YearMonth retentionCutoff() {
+        return retentionMonths <= 0 ? null : YearMonth.now().minusMonths(retentionMonths);
+    }
+
+    void ensureMonth(YearMonth month) {
+        if (isCovered(month)) {
+            return;
+        }
+        YearMonth cutoff = retentionCutoff();
+        if (cutoff != null && month.isBefore(cutoff)) {
+            throw new IllegalStateException("Month " + month + " of weather_data is past retention ("
+                    + retentionMonths + " months, keeping " + cutoff + " onwards)");
+        }
+        synchronized (this) {
+            if (isCovered(month)) {
+                return;
+            }
+            String name = partitionName(month);
+            boolean existed = Boolean.TRUE.equals(newTransaction.execute(status -> {
+                boolean found = jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, name);
+                jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + name + " PARTITION OF " + TABLE
+                        + " FOR VALUES FROM ('" + month.atDay(1).atStartOfDay() + "')"
+                        + " TO ('" + month.plusMonths(1).atDay(1).atStartOfDay() + "')");
+                return found;
+            }));
+            partitions = loadPartitions();
+            if (!isCovered(month)) {
+                // A table of that name that is not a partition, e.g. one detached by an earlier retention run
+                throw new IllegalStateException("Table " + name + " exists but is not a partition of " + TABLE
+                        + "; attach or rename it to store readings for " + month);
+            }
+            if (existed) {
+                log.info("🗂️  Partition {} for {} was created elsewhere", name, month);
+            } else {
+                log.info("🗂️  Created partition {} for {}", name, month);
+            }
+        }
+    }
+
+    void runMaintenance() {
+        try {
+            partitions = loadPartitions();
+            ensureUpcoming();
+            applyRetention();
+        } catch (Exception e) {
+            log.error("❌ weather_data partition maintenance failed", e);
+        }
+    }
+
+    private void ensureUpcoming() {
+        YearMonth current = YearMonth.now();
+        for (int i = 0; i <= monthsAhead; i++) {
+            ensureMonth(current.plusMonths(i));
+        }
+    }
+
+    private void applyRetention() {
+        YearMonth keepFrom = retentionCutoff();
+        if (keepFrom == null) {
+            return;
+        }
+        LocalDateTime cutoff = keepFrom.atDay(1).atStartOfDay();
+
+        for (Partition partition : partitions) {
+            // Only whole partitions go; a partition straddling the cutoff waits until it is entirely older
+            if (partition.to().isAfter(cutoff)) {
+                continue;
+            }
+            synchronized (this) {
+                if ("drop".equals(retentionAction)) {
+                    jdbcTemplate.execute("DROP TABLE IF EXISTS " + partition.name());
+                } else {
+                    jdbcTemplate.execute("ALTER TABLE " + TABLE + " DETACH PARTITION " + partition.name());
+                }
+                partitions = loadPartitions();
+            }
+            log.info("🧹 Retention: {} partition {} [{} - {})", "drop".equals(retentionAction) ? "dropped" : "detached",
+                    partition.name(), partition.from(), partition.to());
+        }
+    }
+
+    private boolean isCovered(YearMonth month) {
+        for (Partition partition : partitions) {
+            if (partition.covers(month)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void createSchema() {
+        String kind = jdbcTemplate.query(
+                "SELECT c.relkind FROM pg_class c JOIN pg_namespace n ON n.oid = c.relnamespace"
+                        + " WHERE c.relname = ? AND n.nspname = current_schema()",
+                rs -> rs.next() ? rs.getString(1) : null, TABLE);
+
+        // Block size WeatherDataWriter.allocateIds reserves ids in
+        jdbcTemplate.execute("CREATE SEQUENCE IF NOT EXISTS " + WeatherDataEntity.ID_SEQUENCE
+                + " INCREMENT BY " + WeatherDataEntity.ID_ALLOCATION_SIZE);
+
+        if ("p".equals(kind)) {
+            ensureUniqueKey();
+            return;
+        }
+        if ("r".equals(kind)) {
+            moveLegacyTableAside();
+        }
+
+        jdbcTemplate.execute("""
+                CREATE TABLE weather_data (
+                    id          bigint           NOT NULL,
+                    timestamp   timestamp(6)     NOT NULL,
+                    city        varchar(50)      NOT NULL,
+                    temperature double precision NOT NULL,
+                    humidity    double precision NOT NULL,
+                    rainfall    double precision NOT NULL,
+                    wind_speed  double precision NOT NULL,
+                    pressure    double precision NOT NULL,
+                    created_at  timestamp(6)     NOT NULL,
+                    processed   boolean          NOT NULL,
+                    PRIMARY KEY (id, timestamp),
+                    CONSTRAINT uq_weather_data_city_timestamp UNIQUE (city, timestamp)
+                ) PARTITION BY RANGE (timestamp)""");
+        // Created on every partition; city lookups use the leading column of the unique key
+        jdbcTemplate.execute("CREATE INDEX idx_timestamp ON weather_data (timestamp)");
+        log.info("🗂️  Created weather_data partitioned by month on timestamp");
+
+        if ("r".equals(kind)) {
+            attachLegacyTable();
+        }
+    }
+
+    private void moveLegacyTableAside() {
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " RENAME TO " + LEGACY_TABLE);
+        // Index names are schema-wide; the timestamp one is reused on attach, the unique
+        // (city, timestamp) key replaces the other two
+        jdbcTemplate.execute("ALTER INDEX IF EXISTS " + TABLE + "_pkey RENAME TO " + LEGACY_TABLE + "_pkey");
+        // While idx_city_timestamp still serves the (city, timestamp) self-join
+        removeDuplicates(LEGACY_TABLE);
+        jdbcTemplate.execute("DROP INDEX IF EXISTS idx_city");
+        jdbcTemplate.execute("DROP INDEX IF EXISTS idx_city_timestamp");
+        jdbcTemplate.execute("ALTER INDEX IF EXISTS idx_timestamp RENAME TO " + LEGACY_TABLE + "_timestamp");
+        // Ids come from weather_data_seq now; a partition may not bring its own identity
+        jdbcTemplate.execute("ALTER TABLE " + LEGACY_TABLE + " ALTER COLUMN id DROP IDENTITY IF EXISTS");
+        jdbcTemplate.execute("ALTER TABLE " + LEGACY_TABLE + " ALTER COLUMN id DROP DEFAULT");
+    }
+
+    private void attachLegacyTable() {
+        Map<String, Object> range = jdbcTemplate.queryForMap(
+                "SELECT MIN(timestamp) AS min_ts, MAX(timestamp) AS max_ts FROM " + LEGACY_TABLE);
+        if (range.get("min_ts") == null) {
+            jdbcTemplate.execute("DROP TABLE " + LEGACY_TABLE);
+            log.info("🗂️  Dropped empty {}", LEGACY_TABLE);
+            return;
+        }
+
+        YearMonth first = YearMonth.from(((Timestamp) range.get("min_ts")).toLocalDateTime());
+        YearMonth last = YearMonth.from(((Timestamp) range.get("max_ts")).toLocalDateTime());
+        // Validates the rows against the bounds with one scan; no rows are rewritten
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " ATTACH PARTITION " + LEGACY_TABLE
+                + " FOR VALUES FROM ('" + first.atDay(1).atStartOfDay() + "')"
+                + " TO ('" + last.plusMonths(1).atDay(1).atStartOfDay() + "')");
+        log.info("🗂️  Attached existing rows as partition {} covering {} to {}", LEGACY_TABLE, first, last);
+    }
+
+    // Tables partitioned before (city, timestamp) became unique
+    private void ensureUniqueKey() {
+        Boolean exists = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_constraint WHERE conname = 'uq_weather_data_city_timestamp')",
+                Boolean.class);
+        if (Boolean.TRUE.equals(exists)) {
+            return;
+        }
+        removeDuplicates(TABLE);
+        jdbcTemplate.execute("ALTER TABLE " + TABLE
+                + " ADD CONSTRAINT uq_weather_data_city_timestamp UNIQUE (city, timestamp)");
+        jdbcTemplate.execute("DROP INDEX IF EXISTS idx_city_timestamp");
+        log.info("🗂️  Added unique key (city, timestamp) to {}", TABLE);
+    }
+
+    // Keeps the first stored copy of every (city, timestamp)
+    private void removeDuplicates(String table) {
+        long startedAt = System.currentTimeMillis();
+        int removed = jdbcTemplate.update("DELETE FROM " + table + " a USING " + table + " b"
+                + " WHERE a.city = b.city AND a.timestamp = b.timestamp AND a.id > b.id");
+        log.info("🧹 Removed {} duplicate (city, timestamp) rows from {} in {} ms",
+                removed, table, System.currentTimeMillis() - startedAt);
+    }
+
+    private List<Partition> loadPartitions() {
+        List<Partition> loaded = new ArrayList<>();
+        jdbcTemplate.query(
+                "SELECT c.relname, pg_get_expr(c.relpartbound, c.oid) FROM pg_inherits i"
+                        + " JOIN pg_class c ON c.oid = i.inhrelid WHERE i.inhparent = ?::regclass",
+                rs -> {
+                    Matcher bound = RANGE_BOUND.matcher(rs.getString(2));
+                    if (bound.find()) {
+                        loaded.add(new Partition(rs.getString(1), parseBound(bound.group(1)), parseBound(bound.group(2))));
+                    }
+                }, TABLE);
+        loaded.sort(Comparator.comparing(Partition::from));
+        return List.copyOf(loaded);
+    }
+
+    private static LocalDateTime parseBound(String value) {
+        return LocalDateTime.parse(value.replace(' ', 'T'));
+    }
+
+    static String partitionName(YearMonth month) {
+        return String.format("%s_p%04d_%02d", TABLE, month.getYear(), month.getMonthValue());
+    }
+}
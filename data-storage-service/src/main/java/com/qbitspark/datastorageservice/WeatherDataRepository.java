@@ -49,8 +49,6 @@ public interface WeatherDataRepository extends JpaRepository<WeatherDataEntity,
 
     List<WeatherDataEntity> findByCityOrderByTimestampDesc(String city);
 
-    void deleteByProcessedTrueAndCreatedAtBefore(LocalDateTime cutoffDate);
-
     boolean existsByCity(String city);
 
     boolean existsByTimestampBetween(LocalDateTime start, LocalDateTime end);
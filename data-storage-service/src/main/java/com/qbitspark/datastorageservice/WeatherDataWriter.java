@@ -0,0 +1,233 @@
+package com.qbitspark.datastorageservice;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.postgresql.copy.PGCopyOutputStream;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.LongSupplier;
+
+// Writes decoded readings to weather_data, in the caller's transaction. Both modes skip readings
+// whose (city, timestamp) is already stored, so a replayed batch is harmless. The rows actually
+// inserted come back through RETURNING and are added to the rollups (WeatherRollups) in the same
+// transaction.
+//   insert: one INSERT ... SELECT FROM unnest(arrays) ... ON CONFLICT DO NOTHING per batch
+//   copy:   PostgreSQL COPY FROM STDIN, in binary or CSV format, into a session-local staging
+//           table, then one INSERT ... SELECT ... ON CONFLICT DO NOTHING from it
+// Ids come from the same pooled sequence Hibernate uses.
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class WeatherDataWriter {
+
+    public static final String MODE_INSERT = "insert";
+    public static final String MODE_COPY = "copy";
+    public static final String COPY_BINARY = "binary";
+    public static final String COPY_CSV = "csv";
+
+    private static final int COPY_BUFFER_BYTES = 1 << 16;
+
+    private static final String RETURNING =
+            " RETURNING timestamp, city, temperature, humidity, rainfall, wind_speed, pressure";
+
+    private static final String INSERT_SQL = "INSERT INTO weather_data (" + WeatherCopyEncoder.COLUMNS + ")"
+            + " SELECT * FROM unnest(?::bigint[], ?::timestamp[], ?::varchar[], ?::float8[], ?::float8[],"
+            + " ?::float8[], ?::float8[], ?::float8[], ?::timestamp[], ?::boolean[])"
+            + " ON CONFLICT (city, timestamp) DO NOTHING" + RETURNING;
+
+    private static final String STAGING_TABLE = "weather_data_staging";
+
+    // Temporary tables live per connection; rows disappear at every commit
+    private static final String CREATE_STAGING_SQL = "CREATE TEMP TABLE IF NOT EXISTS " + STAGING_TABLE
+            + " (LIKE weather_data) ON COMMIT DELETE ROWS";
+
+    private static final String MERGE_STAGING_SQL = "INSERT INTO weather_data (" + WeatherCopyEncoder.COLUMNS + ")"
+            + " SELECT " + WeatherCopyEncoder.COLUMNS + " FROM " + STAGING_TABLE
+            + " ON CONFLICT (city, timestamp) DO NOTHING" + RETURNING;
+
+    // Several pieces can be copied in one transaction (writeAll); each merge only sees its own rows
+    private static final String CLEAR_STAGING_SQL = "TRUNCATE " + STAGING_TABLE;
+
+    private static final RowMapper<WeatherReading> INSERTED_ROW = (rs, rowNum) -> new WeatherReading(
+            rs.getTimestamp(1).toLocalDateTime(), rs.getString(2), rs.getDouble(3), rs.getDouble(4),
+            rs.getDouble(5), rs.getDouble(6), rs.getDouble(7));
+
+    private final WeatherDataPartitions weatherDataPartitions;
+    private final WeatherRollups weatherRollups;
+    private final JdbcTemplate jdbcTemplate;
+    private final DataSource dataSource;
+
+    @Value("${app.storage.write-mode:insert}")
+    private String writeMode;
+
+    @Value("${app.storage.copy-format:binary}")
+    private String copyFormat;
+
+    @PostConstruct
+    void init() {
+        if (!MODE_INSERT.equals(writeMode) && !MODE_COPY.equals(writeMode)) {
+            throw new IllegalArgumentException("Unknown app.storage.write-mode: " + writeMode);
+        }
+        if (!COPY_BINARY.equals(copyFormat) && !COPY_CSV.equals(copyFormat)) {
+            throw new IllegalArgumentException("Unknown app.storage.copy-format: " + copyFormat);
+        }
+        log.info("💾 Writing weather data with {}", MODE_COPY.equals(writeMode) ? "COPY (" + copyFormat + ")" : "batched INSERT");
+    }
+
+    // Returns the number of rows inserted; the rest were already stored
+    public int write(List<WeatherReading> readings) {
+        return writeAll(List.of(readings))[0];
+    }
+
+    // One statement per list, then one rollup upsert per bucket for everything they inserted
+    public int[] writeAll(List<List<WeatherReading>> batches) {
+        int[] counts = new int[batches.size()];
+        List<WeatherReading> inserted = new ArrayList<>();
+        for (int i = 0; i < batches.size(); i++) {
+            List<WeatherReading> readings = batches.get(i);
+            if (readings.isEmpty()) {
+                continue;
+            }
+            weatherDataPartitions.ensureFor(readings);
+            List<WeatherReading> rows = MODE_COPY.equals(writeMode)
+                    ? copyRows(readings, copyFormat)
+                    : insertRows(readings);
+            counts[i] = rows.size();
+            inserted.addAll(rows);
+        }
+        weatherRollups.add(inserted);
+        return counts;
+    }
+
+    private List<WeatherReading> insertRows(List<WeatherReading> readings) {
+        int n = readings.size();
+        LongSupplier ids = allocateIds(n);
+        Timestamp createdAt = Timestamp.valueOf(LocalDateTime.now());
+
+        Object[] id = new Object[n];
+        Object[] timestamp = new Object[n];
+        Object[] city = new Object[n];
+        Object[] temperature = new Object[n];
+        Object[] humidity = new Object[n];
+        Object[] rainfall = new Object[n];
+        Object[] windSpeed = new Object[n];
+        Object[] pressure = new Object[n];
+        Object[] created = new Object[n];
+        Object[] processed = new Object[n];
+        for (int i = 0; i < n; i++) {
+            WeatherReading reading = readings.get(i);
+            id[i] = ids.getAsLong();
+            timestamp[i] = Timestamp.valueOf(reading.timestamp());
+            city[i] = reading.city();
+            temperature[i] = reading.temperature();
+            humidity[i] = reading.humidity();
+            rainfall[i] = reading.rainfall();
+            windSpeed[i] = reading.windSpeed();
+            pressure[i] = reading.pressure();
+            created[i] = createdAt;
+            processed[i] = Boolean.FALSE;
+        }
+
+        // Arrays bind as ten parameters however large the batch; only inserted rows are returned
+        return jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(INSERT_SQL);
+            statement.setArray(1, connection.createArrayOf("int8", id));
+            statement.setArray(2, connection.createArrayOf("timestamp", timestamp));
+            statement.setArray(3, connection.createArrayOf("varchar", city));
+            statement.setArray(4, connection.createArrayOf("float8", temperature));
+            statement.setArray(5, connection.createArrayOf("float8", humidity));
+            statement.setArray(6, connection.createArrayOf("float8", rainfall));
+            statement.setArray(7, connection.createArrayOf("float8", windSpeed));
+            statement.setArray(8, connection.createArrayOf("float8", pressure));
+            statement.setArray(9, connection.createArrayOf("timestamp", created));
+            statement.setArray(10, connection.createArrayOf("bool", processed));
+            return statement;
+        }, INSERTED_ROW);
+    }
+
+    private List<WeatherReading> copyRows(List<WeatherReading> readings, String format) {
+        LongSupplier ids = allocateIds(readings.size());
+        LocalDateTime createdAt = LocalDateTime.now();
+
+        jdbcTemplate.execute(CREATE_STAGING_SQL);
+
+        // Bound to the current transaction, so the rows commit or roll back with it
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+        CopyIn copyIn = null;
+        try {
+            copyIn = connection.unwrap(PGConnection.class).getCopyAPI()
+                    .copyIn(WeatherCopyEncoder.copySql(STAGING_TABLE, format));
+            PGCopyOutputStream out = new PGCopyOutputStream(copyIn, COPY_BUFFER_BYTES);
+            if (COPY_CSV.equals(format)) {
+                WeatherCopyEncoder.writeCsv(readings, ids, createdAt, out);
+            } else {
+                WeatherCopyEncoder.writeBinary(readings, ids, createdAt, out);
+            }
+            // Ends the COPY; the server reports bad rows here
+            out.close();
+        } catch (SQLException | IOException e) {
+            cancel(copyIn);
+            throw new IllegalStateException("COPY into weather_data failed for " + readings.size() + " rows", e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+
+        // Rows already in weather_data are left out
+        List<WeatherReading> inserted = jdbcTemplate.query(MERGE_STAGING_SQL, INSERTED_ROW);
+        jdbcTemplate.execute(CLEAR_STAGING_SQL);
+        return inserted;
+    }
+
+    // Reserves ids the way Hibernate's pooled optimizer does: each nextval v of the sequence
+    // stands for the block (v - allocation size, v]. Done before the COPY starts, as the
+    // connection cannot run other statements while one is open.
+    private LongSupplier allocateIds(int count) {
+        int blockSize = WeatherDataEntity.ID_ALLOCATION_SIZE;
+        long[] ids = new long[count];
+        int filled = 0;
+        while (filled < count) {
+            int blocks = (count - filled + blockSize - 1) / blockSize;
+            List<Long> highs = jdbcTemplate.queryForList("SELECT nextval(?::regclass) FROM generate_series(1, ?)",
+                    Long.class, WeatherDataEntity.ID_SEQUENCE, blocks);
+            for (long high : highs) {
+                // The very first value of a fresh sequence only covers id 1, hence the loop
+                for (long id = Math.max(1, high - blockSize + 1); id <= high && filled < count; id++) {
+                    ids[filled++] = id;
+                }
+            }
+        }
+
+        int[] next = {0};
+        return () -> ids[next[0]++];
+    }
+
+    private void cancel(CopyIn copyIn) {
+        try {
+            if (copyIn != null && copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        } catch (SQLException e) {
+            log.warn("⚠️  Could not cancel COPY into weather_data: {}", e.getMessage());
+        }
+    }
+
+    public String getWriteMode() {
+        return MODE_COPY.equals(writeMode) ? MODE_COPY + "-" + copyFormat : MODE_INSERT;
+    }
+}
@@ -0,0 +1,63 @@
+package com.qbitspark.datastorageservice;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/storage/dead-letters")
+@Slf4j
+public class WeatherDeadLetterController {
+
+    @Autowired
+    private WeatherDeadLetters weatherDeadLetters;
+
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getStats() {
+        Map<String, Object> response = new HashMap<>(weatherDeadLetters.getStats());
+        response.put("timestamp", LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+        return ResponseEntity.ok(response);
+    }
+
+    // Republishes weather-data.DLT to weather-data, up to max records per call; call again until
+    // remaining is 0. Replayed records go through the normal pipeline, stored rows are skipped.
+    @PostMapping("/replay")
+    public ResponseEntity<Map<String, Object>> replay(@RequestParam(defaultValue = "100000") int max) {
+        log.info("🔁 Received request to replay up to {} records from {}", max, WeatherDeadLetters.DLT_TOPIC);
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("timestamp", LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+
+        if (max < 1) {
+            response.put("status", "ERROR");
+            response.put("message", "'max' must be at least 1");
+            return ResponseEntity.badRequest().body(response);
+        }
+
+        try {
+            Map<String, Object> result = weatherDeadLetters.replay(max);
+            if (result == null) {
+                response.put("status", "ALREADY_REPLAYING");
+                response.put("message", "A replay of " + WeatherDeadLetters.DLT_TOPIC + " is already in progress");
+                return ResponseEntity.status(409).body(response); // Conflict
+            }
+
+            response.putAll(result);
+            response.put("status", "COMPLETED");
+            return ResponseEntity.ok(response);
+
+        } catch (Exception e) {
+            log.error("❌ Error replaying {}", WeatherDeadLetters.DLT_TOPIC, e);
+
+            response.put("status", "ERROR");
+            response.put("message", "Failed to replay dead letters: " + e.getMessage());
+            return ResponseEntity.status(500).body(response);
+        }
+    }
+}
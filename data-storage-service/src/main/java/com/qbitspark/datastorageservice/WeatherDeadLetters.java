@@ -0,0 +1,298 @@
+package com.qbitspark.datastorageservice;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.ConsumerRecords;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.kafka.support.KafkaHeaders;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+// Retry and dead-letter topics for weather-data. Readings the writers gave up on are sent, one JSON
+// record each, to the first of the retry topics weather-data-retry-<delay ms>; the delays grow by
+// the multiplier. WeatherRetryConsumer stores them once their delay has passed and moves the ones
+// that fail again to the next topic. After the last one, and straight away for messages that
+// cannot be decoded at all, records land in weather-data.DLT with Spring's kafka_dlt-* headers
+// (exception, message, original topic/partition/offset/timestamp). replay() republishes the DLT
+// to weather-data in bulk; the replay group's committed offsets remember how far it got.
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class WeatherDeadLetters {
+
+    public static final String TOPIC = "weather-data";
+    public static final String DLT_TOPIC = TOPIC + ".DLT";
+    public static final String RETRY_TOPIC_PREFIX = TOPIC + "-retry-";
+
+    // Retry round a record is in, 1 for the first retry topic
+    public static final String ATTEMPT_HEADER = "weather-retry-attempt";
+
+    private static final String REPLAY_GROUP = "weather-storage-dlt-replay";
+    private static final int MAX_MESSAGE_HEADER_LENGTH = 1000;
+
+    private final KafkaTemplate<String, byte[]> kafkaTemplate;
+    private final ConsumerFactory<String, Object> consumerFactory;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.storage.retry.attempts:3}")
+    private int attempts;
+
+    @Value("${app.storage.retry.initial-delay-ms:1000}")
+    private long initialDelayMs;
+
+    @Value("${app.storage.retry.multiplier:4}")
+    private double multiplier;
+
+    @Value("${app.storage.retry.replay-poll-timeout-ms:2000}")
+    private long replayPollTimeoutMs;
+
+    private List<String> retryTopics;
+    private final Map<String, Long> delays = new HashMap<>();
+
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder deadLettered = new LongAdder();
+    private final LongAdder replayed = new LongAdder();
+    private final AtomicBoolean replaying = new AtomicBoolean();
+
+    @PostConstruct
+    void init() {
+        if (attempts < 1) {
+            throw new IllegalArgumentException("app.storage.retry.attempts must be at least 1: " + attempts);
+        }
+        List<String> topics = new ArrayList<>(attempts);
+        double delay = initialDelayMs;
+        for (int i = 0; i < attempts; i++) {
+            String topic = RETRY_TOPIC_PREFIX + Math.round(delay);
+            topics.add(topic);
+            delays.put(topic, Math.round(delay));
+            delay *= multiplier;
+        }
+        retryTopics = List.copyOf(topics);
+
+        FunctionCounter.builder("weather.storage.retried", retried, LongAdder::sum)
+                .description("Weather readings sent to a retry topic")
+                .register(meterRegistry);
+        FunctionCounter.builder("weather.storage.dead.letters", deadLettered, LongAdder::sum)
+                .description("Weather records sent to " + DLT_TOPIC)
+                .register(meterRegistry);
+        FunctionCounter.builder("weather.storage.dead.letters.replayed", replayed, LongAdder::sum)
+                .description("Records republished from " + DLT_TOPIC + " to " + TOPIC)
+                .register(meterRegistry);
+        log.info("🔁 Retrying failed weather readings through {} then {}", retryTopics, DLT_TOPIC);
+    }
+
+    public List<String> getRetryTopics() {
+        return retryTopics;
+    }
+
+    public long delayOf(String retryTopic) {
+        return delays.getOrDefault(retryTopic, 0L);
+    }
+
+    // Readings from the main topic that could not be stored; they start at the first retry topic
+    public CompletableFuture<Void> retry(List<WeatherReading> readings, Throwable failure) {
+        List<CompletableFuture<?>> sends = new ArrayList<>(readings.size());
+        for (WeatherReading reading : readings) {
+            sends.add(forward(reading.city(), WeatherRecordCodec.encodeJson(reading), new RecordHeaders(),
+                    1, failure, null));
+        }
+        return CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new));
+    }
+
+    // Readings of a retry record that failed again: on to the next retry topic, or the DLT
+    public CompletableFuture<Void> retryAgain(ConsumerRecord<String, ?> record, List<WeatherReading> readings,
+                                              Throwable failure) {
+        Header attemptHeader = record.headers().lastHeader(ATTEMPT_HEADER);
+        int attempt = attemptHeader == null ? 1 : Integer.parseInt(new String(attemptHeader.value(), StandardCharsets.UTF_8));
+        List<CompletableFuture<?>> sends = new ArrayList<>(readings.size());
+        for (WeatherReading reading : readings) {
+            sends.add(forward(record.key(), WeatherRecordCodec.encodeJson(reading), record.headers(),
+                    attempt + 1, failure, null));
+        }
+        return CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new));
+    }
+
+    // A message that will never decode; it skips the retry topics
+    public CompletableFuture<?> deadLetter(ConsumerRecord<String, ?> record, byte[] value, Throwable failure) {
+        return forward(record.key(), value, record.headers(), attempts + 1, failure, record);
+    }
+
+    private CompletableFuture<?> forward(String key, byte[] value, Headers source, int attempt,
+                                         Throwable failure, ConsumerRecord<String, ?> original) {
+        boolean dead = attempt > attempts;
+        String topic = dead ? DLT_TOPIC : retryTopics.get(attempt - 1);
+
+        Headers headers = new RecordHeaders();
+        Header format = source.lastHeader(WeatherRecordCodec.FORMAT_HEADER);
+        if (format != null) {
+            headers.add(format);
+        }
+        headers.add(ATTEMPT_HEADER, String.valueOf(attempt).getBytes(StandardCharsets.UTF_8));
+        addFailureHeaders(headers, failure);
+        if (original != null) {
+            headers.add(KafkaHeaders.DLT_ORIGINAL_TOPIC, original.topic().getBytes(StandardCharsets.UTF_8));
+            headers.add(KafkaHeaders.DLT_ORIGINAL_PARTITION, ByteBuffer.allocate(Integer.BYTES).putInt(original.partition()).array());
+            headers.add(KafkaHeaders.DLT_ORIGINAL_OFFSET, ByteBuffer.allocate(Long.BYTES).putLong(original.offset()).array());
+            headers.add(KafkaHeaders.DLT_ORIGINAL_TIMESTAMP, ByteBuffer.allocate(Long.BYTES).putLong(original.timestamp()).array());
+        } else {
+            // Readings are re-encoded from a decoded poll; only the topic is known
+            Header originalTopic = source.lastHeader(KafkaHeaders.DLT_ORIGINAL_TOPIC);
+            headers.add(KafkaHeaders.DLT_ORIGINAL_TOPIC,
+                    originalTopic == null ? TOPIC.getBytes(StandardCharsets.UTF_8) : originalTopic.value());
+        }
+
+        (dead ? deadLettered : retried).increment();
+        return kafkaTemplate.send(new ProducerRecord<>(topic, null, key, value, headers));
+    }
+
+    private static void addFailureHeaders(Headers headers, Throwable failure) {
+        if (failure == null) {
+            return;
+        }
+        Throwable root = failure;
+        while (root.getCause() != null && root.getCause() != root) {
+            root = root.getCause();
+        }
+        String message = String.valueOf(root.getMessage());
+        if (message.length() > MAX_MESSAGE_HEADER_LENGTH) {
+            message = message.substring(0, MAX_MESSAGE_HEADER_LENGTH);
+        }
+        headers.add(KafkaHeaders.DLT_EXCEPTION_FQCN, failure.getClass().getName().getBytes(StandardCharsets.UTF_8));
+        headers.add(KafkaHeaders.DLT_EXCEPTION_CAUSE_FQCN, root.getClass().getName().getBytes(StandardCharsets.UTF_8));
+        headers.add(KafkaHeaders.DLT_EXCEPTION_MESSAGE, message.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Republishes up to max records from the DLT to weather-data, from where the last replay stopped
+    // up to the end of the DLT as it was when the replay started. Offsets are committed only after
+    // the records were written to weather-data. Returns null if a replay is already running.
+    public Map<String, Object> replay(int max) {
+        if (!replaying.compareAndSet(false, true)) {
+            return null;
+        }
+        Properties overrides = new Properties();
+        overrides.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class.getName());
+        overrides.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "earliest");
+        overrides.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
+
+        long startedAt = System.currentTimeMillis();
+        int count = 0;
+        try (Consumer<String, Object> consumer = consumerFactory.createConsumer(REPLAY_GROUP, null, null, overrides)) {
+            List<PartitionInfo> partitionInfos = consumer.partitionsFor(DLT_TOPIC);
+            List<TopicPartition> partitions = new ArrayList<>();
+            if (partitionInfos != null) {
+                for (PartitionInfo info : partitionInfos) {
+                    partitions.add(new TopicPartition(info.topic(), info.partition()));
+                }
+            }
+            if (partitions.isEmpty()) {
+                return replayResult(0, 0, startedAt);
+            }
+            consumer.assign(partitions);
+            Map<TopicPartition, Long> end = consumer.endOffsets(partitions);
+            Map<TopicPartition, Long> start = new HashMap<>();
+            for (TopicPartition partition : partitions) {
+                start.put(partition, consumer.position(partition));
+            }
+
+            Map<TopicPartition, OffsetAndMetadata> done = new HashMap<>();
+            while (count < max && !caughtUp(consumer, end)) {
+                ConsumerRecords<String, Object> records = consumer.poll(Duration.ofMillis(replayPollTimeoutMs));
+                if (records.isEmpty()) {
+                    break;
+                }
+                List<CompletableFuture<?>> sends = new ArrayList<>(records.count());
+                for (ConsumerRecord<String, Object> record : records) {
+                    TopicPartition partition = new TopicPartition(record.topic(), record.partition());
+                    if (count >= max || record.offset() >= end.get(partition)) {
+                        continue;
+                    }
+                    sends.add(kafkaTemplate.send(replayRecord(record)));
+                    done.put(partition, new OffsetAndMetadata(record.offset() + 1));
+                    count++;
+                }
+                CompletableFuture.allOf(sends.toArray(CompletableFuture[]::new)).join();
+                if (!done.isEmpty()) {
+                    consumer.commitSync(done);
+                }
+                replayed.add(sends.size());
+            }
+
+            long remaining = 0;
+            for (TopicPartition partition : partitions) {
+                OffsetAndMetadata replayedTo = done.get(partition);
+                long position = replayedTo == null ? start.get(partition) : replayedTo.offset();
+                remaining += Math.max(0, end.get(partition) - position);
+            }
+            log.info("🔁 Replayed {} records from {} to {}, {} left", count, DLT_TOPIC, TOPIC, remaining);
+            return replayResult(count, remaining, startedAt);
+        } finally {
+            replaying.set(false);
+        }
+    }
+
+    private static boolean caughtUp(Consumer<?, ?> consumer, Map<TopicPartition, Long> end) {
+        for (Map.Entry<TopicPartition, Long> entry : end.entrySet()) {
+            if (consumer.position(entry.getKey()) < entry.getValue()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // The original payload and format; the failure headers stay behind in the DLT
+    private static ProducerRecord<String, byte[]> replayRecord(ConsumerRecord<String, Object> record) {
+        Headers headers = new RecordHeaders();
+        Header format = record.headers().lastHeader(WeatherRecordCodec.FORMAT_HEADER);
+        if (format != null) {
+            headers.add(format);
+        }
+        return new ProducerRecord<>(TOPIC, null, record.key(), (byte[]) record.value(), headers);
+    }
+
+    private static Map<String, Object> replayResult(int count, long remaining, long startedAt) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("replayed", count);
+        result.put("remaining", remaining);
+        result.put("durationMs", System.currentTimeMillis() - startedAt);
+        return result;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("retryTopics", retryTopics);
+        stats.put("deadLetterTopic", DLT_TOPIC);
+        stats.put("retried", retried.sum());
+        stats.put("deadLettered", deadLettered.sum());
+        stats.put("replayed", replayed.sum());
+        stats.put("replaying", replaying.get());
+        return stats;
+    }
+}
@@ -0,0 +1,395 @@
+package com.qbitspark.datastorageservice;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Single-pass parser for the JSON weather records written by data-ingestion-service, e.g.
+//   {"timestamp":"2023-07-14T06:30","city":"Dar es Salaam","temperature":24.5,"humidity":81.0,...}
+// It walks the UTF-8 bytes once: keys are compared in place, numbers and ISO-8601 local timestamps
+// are assembled digit by digit, and the only String it creates is the city. Numbers may be quoted,
+// unknown fields are skipped. Malformed input ends in an IllegalArgumentException naming the offset.
+public final class WeatherJsonParser {
+
+    private static final byte[][] FIELDS = {
+            ascii("timestamp"), ascii("city"), ascii("temperature"), ascii("humidity"),
+            ascii("rainfall"), ascii("windSpeed"), ascii("pressure")
+    };
+    private static final int TIMESTAMP = 0;
+    private static final int CITY = 1;
+    private static final int FIRST_NUMBER = 2;
+    private static final int ALL_FIELDS = (1 << FIELDS.length) - 1;
+
+    // Largest power of ten a double holds exactly; mantissa / 10^scale is then correctly rounded
+    private static final double[] POWERS_OF_TEN = new double[23];
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    private static final int[] NANO_SCALE = {1_000_000_000, 100_000_000, 10_000_000, 1_000_000, 100_000, 10_000,
+            1_000, 100, 10, 1};
+
+    static {
+        POWERS_OF_TEN[0] = 1;
+        for (int i = 1; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = POWERS_OF_TEN[i - 1] * 10;
+        }
+    }
+
+    private final byte[] data;
+    private int pos;
+    private boolean escaped;
+
+    private LocalDateTime timestamp;
+    private String city;
+    private final double[] numbers = new double[FIELDS.length - FIRST_NUMBER];
+    private int seen;
+
+    private WeatherJsonParser(byte[] data) {
+        this.data = data;
+    }
+
+    public static WeatherReading parse(byte[] data) {
+        return new WeatherJsonParser(data).parseRecord();
+    }
+
+    private WeatherReading parseRecord() {
+        skipWhitespace();
+        expect('{');
+        skipWhitespace();
+        if (peek() == '}') {
+            pos++;
+        } else {
+            parseFields();
+        }
+        skipWhitespace();
+        if (pos != data.length) {
+            throw error("Unexpected data after the record");
+        }
+
+        if (seen != ALL_FIELDS) {
+            throw new IllegalArgumentException("Missing fields in weather record: " + missingFields());
+        }
+        if (city.isBlank()) {
+            throw new IllegalArgumentException("Blank city in weather record");
+        }
+        return new WeatherReading(timestamp, city, numbers[0], numbers[1], numbers[2], numbers[3], numbers[4]);
+    }
+
+    private void parseFields() {
+        while (true) {
+            skipWhitespace();
+            expect('"');
+            int keyStart = pos;
+            int keyEnd = stringEnd();
+            pos = keyEnd + 1;
+            int field = escaped ? -1 : fieldOf(keyStart, keyEnd);
+
+            skipWhitespace();
+            expect(':');
+            skipWhitespace();
+            if (field == TIMESTAMP) {
+                timestamp = parseTimestamp();
+            } else if (field == CITY) {
+                city = parseString();
+            } else if (field >= FIRST_NUMBER) {
+                numbers[field - FIRST_NUMBER] = parseNumber();
+            } else {
+                skipValue();
+            }
+            if (field >= 0) {
+                seen |= 1 << field;
+            }
+
+            skipWhitespace();
+            int next = next();
+            if (next == '}') {
+                return;
+            }
+            if (next != ',') {
+                pos--;
+                throw error("Expected ',' or '}'");
+            }
+        }
+    }
+
+    private int fieldOf(int start, int end) {
+        for (int i = 0; i < FIELDS.length; i++) {
+            byte[] name = FIELDS[i];
+            if (Arrays.equals(data, start, end, name, 0, name.length)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private String parseString() {
+        expect('"');
+        int start = pos;
+        int end = stringEnd();
+        pos = end + 1;
+        return escaped ? unescape(start, end) : new String(data, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    // Index of the quote closing the string that starts at pos; sets escaped if it contains backslashes
+    private int stringEnd() {
+        escaped = false;
+        for (int i = pos; i < data.length; i++) {
+            byte b = data[i];
+            if (b == '"') {
+                return i;
+            }
+            if (b == '\\') {
+                escaped = true;
+                i++;
+            }
+        }
+        throw error("Unterminated string");
+    }
+
+    private String unescape(int start, int end) {
+        StringBuilder value = new StringBuilder(end - start);
+        int run = start;
+        int i = start;
+        while (i < end) {
+            if (data[i] != '\\') {
+                i++;
+                continue;
+            }
+            value.append(new String(data, run, i - run, StandardCharsets.UTF_8));
+            byte escape = data[i + 1];
+            switch (escape) {
+                case '"', '\\', '/' -> value.append((char) escape);
+                case 'b' -> value.append('\b');
+                case 'f' -> value.append('\f');
+                case 'n' -> value.append('\n');
+                case 'r' -> value.append('\r');
+                case 't' -> value.append('\t');
+                case 'u' -> {
+                    if (i + 6 > end) {
+                        pos = i;
+                        throw error("Truncated \\u escape");
+                    }
+                    int code = 0;
+                    for (int j = i + 2; j < i + 6; j++) {
+                        int digit = Character.digit(data[j], 16);
+                        if (digit < 0) {
+                            pos = j;
+                            throw error("Invalid \\u escape");
+                        }
+                        code = code * 16 + digit;
+                    }
+                    value.append((char) code);
+                    i += 4;
+                }
+                default -> {
+                    pos = i;
+                    throw error("Invalid escape");
+                }
+            }
+            i += 2;
+            run = i;
+        }
+        return value.append(new String(data, run, end - run, StandardCharsets.UTF_8)).toString();
+    }
+
+    // Decimal notation goes through the exact fast path; exponents or more than 15-16 significant
+    // digits fall back to Double.parseDouble
+    private double parseNumber() {
+        boolean quoted = peek() == '"';
+        if (quoted) {
+            pos++;
+        }
+        int start = pos;
+        boolean negative = peek() == '-';
+        if (negative || peek() == '+') {
+            pos++;
+        }
+
+        long mantissa = 0;
+        int scale = 0;
+        int digits = 0;
+        boolean exact = true;
+        int b;
+        while ((b = peek() - '0') >= 0 && b <= 9) {
+            if (mantissa < MAX_EXACT_MANTISSA / 10) {
+                mantissa = mantissa * 10 + b;
+            } else {
+                exact = false;
+            }
+            digits++;
+            pos++;
+        }
+        if (peek() == '.') {
+            pos++;
+            while ((b = peek() - '0') >= 0 && b <= 9) {
+                if (mantissa < MAX_EXACT_MANTISSA / 10) {
+                    mantissa = mantissa * 10 + b;
+                    scale++;
+                } else if (b != 0) {
+                    exact = false;
+                }
+                digits++;
+                pos++;
+            }
+        }
+        if (digits == 0) {
+            throw error("Expected a number");
+        }
+        if (peek() == 'e' || peek() == 'E') {
+            exact = false;
+            pos++;
+            if (peek() == '-' || peek() == '+') {
+                pos++;
+            }
+            int exponentStart = pos;
+            while ((b = peek() - '0') >= 0 && b <= 9) {
+                pos++;
+            }
+            if (pos == exponentStart) {
+                throw error("Expected an exponent");
+            }
+        }
+
+        double value;
+        if (exact && scale < POWERS_OF_TEN.length) {
+            value = mantissa / POWERS_OF_TEN[scale];
+            if (negative) {
+                value = -value;
+            }
+        } else {
+            value = Double.parseDouble(new String(data, start, pos - start, StandardCharsets.ISO_8859_1));
+        }
+
+        if (quoted) {
+            expect('"');
+        }
+        return value;
+    }
+
+    // ISO-8601 local date-time as LocalDateTime.toString() writes it: yyyy-MM-ddTHH:mm[:ss[.fraction]]
+    private LocalDateTime parseTimestamp() {
+        expect('"');
+        int year = digits(4);
+        expect('-');
+        int month = digits(2);
+        expect('-');
+        int day = digits(2);
+        if (peek() != 'T' && peek() != 't') {
+            throw error("Expected 'T'");
+        }
+        pos++;
+        int hour = digits(2);
+        expect(':');
+        int minute = digits(2);
+        int second = 0;
+        int nano = 0;
+        if (peek() == ':') {
+            pos++;
+            second = digits(2);
+            if (peek() == '.') {
+                pos++;
+                int fractionDigits = 0;
+                int b;
+                while (fractionDigits < 9 && (b = peek() - '0') >= 0 && b <= 9) {
+                    nano = nano * 10 + b;
+                    fractionDigits++;
+                    pos++;
+                }
+                if (fractionDigits == 0) {
+                    throw error("Expected fraction digits");
+                }
+                nano *= NANO_SCALE[fractionDigits];
+            }
+        }
+        expect('"');
+
+        if (month < 1 || month > 12 || day < 1 || day > 31 || hour > 23 || minute > 59 || second > 59) {
+            throw new IllegalArgumentException("Invalid timestamp field in weather record");
+        }
+        // Rejects days past the end of the month
+        return LocalDateTime.of(year, month, day, hour, minute, second, nano);
+    }
+
+    private int digits(int count) {
+        int value = 0;
+        for (int i = 0; i < count; i++) {
+            int digit = peek() - '0';
+            if (digit < 0 || digit > 9) {
+                throw error("Expected a digit");
+            }
+            value = value * 10 + digit;
+            pos++;
+        }
+        return value;
+    }
+
+    // Any JSON value of a field we do not store
+    private void skipValue() {
+        int depth = 0;
+        while (true) {
+            int b = peek();
+            if (b < 0) {
+                throw error("Unexpected end of record");
+            }
+            if (depth == 0 && (b == ',' || b == '}')) {
+                return;
+            }
+            pos++;
+            if (b == '"') {
+                pos = stringEnd() + 1;
+            } else if (b == '{' || b == '[') {
+                depth++;
+            } else if (b == '}' || b == ']') {
+                if (--depth < 0) {
+                    throw error("Unbalanced brackets");
+                }
+            }
+        }
+    }
+
+    private void skipWhitespace() {
+        while (pos < data.length) {
+            byte b = data[pos];
+            if (b != ' ' && b != '\n' && b != '\r' && b != '\t') {
+                return;
+            }
+            pos++;
+        }
+    }
+
+    private int peek() {
+        return pos < data.length ? data[pos] : -1;
+    }
+
+    private int next() {
+        if (pos >= data.length) {
+            throw error("Unexpected end of record");
+        }
+        return data[pos++];
+    }
+
+    private void expect(char expected) {
+        if (peek() != expected) {
+            throw error("Expected '" + expected + "'");
+        }
+        pos++;
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at byte " + pos + " of weather record");
+    }
+
+    private String missingFields() {
+        List<String> missing = new ArrayList<>();
+        for (int i = 0; i < FIELDS.length; i++) {
+            if ((seen & 1 << i) == 0) {
+                missing.add(new String(FIELDS[i], StandardCharsets.US_ASCII));
+            }
+        }
+        return String.join(", ", missing);
+    }
+
+    private static byte[] ascii(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,15 @@
+package com.qbitspark.datastorageservice;
+
+import java.time.LocalDateTime;
+
+// One decoded weather measurement, as carried on the weather-data topic. Write paths that do not
+// go through JPA (COPY) work on these directly; the JPA path turns them into WeatherDataEntity.
+public record WeatherReading(
+        LocalDateTime timestamp,
+        String city,
+        double temperature,
+        double humidity,
+        double rainfall,
+        double windSpeed,
+        double pressure) {
+}
@@ -0,0 +1,23 @@
+package com.qbitspark.datastorageservice;
+
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.serialization.Deserializer;
+
+import java.util.List;
+
+// Value deserializer for weather-data: every format the weather-format header names (see
+// WeatherRecordCodec) straight from the record bytes, JSON through WeatherJsonParser. It runs
+// wrapped in Spring's ErrorHandlingDeserializer (see application.yml), so a message it cannot
+// decode reaches the listener with a null value and the failure in a header instead of failing the poll.
+public class WeatherReadingsDeserializer implements Deserializer<List<WeatherReading>> {
+
+    @Override
+    public List<WeatherReading> deserialize(String topic, byte[] data) {
+        return data == null ? null : WeatherRecordCodec.decodeReadings(data, WeatherRecordCodec.FORMAT_JSON);
+    }
+
+    @Override
+    public List<WeatherReading> deserialize(String topic, Headers headers, byte[] data) {
+        return data == null ? null : WeatherRecordCodec.decodeReadings(data, WeatherRecordCodec.formatOf(headers));
+    }
+}
@@ -0,0 +1,171 @@
+package com.qbitspark.datastorageservice;
+
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+// Decoder for the weather-data wire formats. The binary layouts must stay in sync with
+// WeatherRecordCodec and WeatherEnvelope in data-ingestion-service.
+//
+// Single record (wr-bin-v1), big-endian:
+//   byte   version
+//   long   timestamp, epoch milliseconds (UTC)
+//   short  city length, followed by the UTF-8 city bytes
+//   int    temperature x10, humidity x10, rainfall x100, wind speed x10, pressure x10
+//
+// Envelope of one city's records (wr-batch-v1), big-endian and column by column:
+//   byte      version
+//   short     city length, followed by the UTF-8 city bytes
+//   int       record count n
+//   n varints timestamps as zig-zag deltas from the previous one (epoch ms, first from 0)
+//   n ints    temperature x10, then n humidity x10, n rainfall x100, n wind speed x10, n pressure x10
+public final class WeatherRecordCodec {
+
+    // Kafka header naming the value format; absent means JSON
+    public static final String FORMAT_HEADER = "weather-format";
+    public static final String FORMAT_JSON = "json";
+    public static final String FORMAT_BINARY = "wr-bin-v1";
+    public static final String FORMAT_ENVELOPE = "wr-batch-v1";
+
+    public static final byte VERSION = 1;
+
+    // Smallest encoding of one envelope reading: a one-byte varint plus five ints
+    private static final int MIN_ENVELOPE_READING_BYTES = 1 + 5 * 4;
+
+    private WeatherRecordCodec() {
+    }
+
+    public static String formatOf(Headers headers) {
+        Header header = headers.lastHeader(FORMAT_HEADER);
+        return header == null ? FORMAT_JSON : new String(header.value(), StandardCharsets.UTF_8);
+    }
+
+    // All readings carried by a message: one for JSON/binary, many for an envelope
+    public static List<WeatherReading> decodeReadings(byte[] message, String format) {
+        switch (format) {
+            case FORMAT_JSON:
+                return List.of(WeatherJsonParser.parse(message));
+            case FORMAT_BINARY:
+                return List.of(decodeBinary(message));
+            case FORMAT_ENVELOPE:
+                return decodeEnvelope(message);
+            default:
+                throw new IllegalArgumentException("Unsupported weather message format: " + format);
+        }
+    }
+
+    // JSON in the layout data-ingestion-service writes; used to send readings to the retry topics
+    public static byte[] encodeJson(WeatherReading reading) {
+        StringBuilder json = new StringBuilder(160)
+                .append("{\"timestamp\":\"").append(reading.timestamp())
+                .append("\",\"city\":\"");
+        for (int i = 0; i < reading.city().length(); i++) {
+            char c = reading.city().charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        return json.append("\",\"temperature\":").append(reading.temperature())
+                .append(",\"humidity\":").append(reading.humidity())
+                .append(",\"rainfall\":").append(reading.rainfall())
+                .append(",\"windSpeed\":").append(reading.windSpeed())
+                .append(",\"pressure\":").append(reading.pressure())
+                .append('}')
+                .toString()
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    public static WeatherReading decodeBinary(byte[] message) {
+        ByteBuffer buffer = ByteBuffer.wrap(message);
+        byte version = buffer.get();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported weather record version: " + version);
+        }
+
+        LocalDateTime timestamp = LocalDateTime.ofInstant(Instant.ofEpochMilli(buffer.getLong()), ZoneOffset.UTC);
+
+        int cityLength = buffer.getShort();
+        String city = new String(message, buffer.position(), cityLength, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + cityLength);
+
+        return new WeatherReading(timestamp, city,
+                buffer.getInt() / 10.0,
+                buffer.getInt() / 10.0,
+                buffer.getInt() / 100.0,
+                buffer.getInt() / 10.0,
+                buffer.getInt() / 10.0);
+    }
+
+    public static List<WeatherReading> decodeEnvelope(byte[] message) {
+        ByteBuffer buffer = ByteBuffer.wrap(message);
+        byte version = buffer.get();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported weather envelope version: " + version);
+        }
+
+        int cityLength = buffer.getShort();
+        String city = new String(message, buffer.position(), cityLength, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + cityLength);
+        int count = buffer.getInt();
+        // Checked before allocating, so a corrupt count fails the record instead of the heap
+        if (count < 0 || count > buffer.remaining() / MIN_ENVELOPE_READING_BYTES) {
+            throw new IllegalArgumentException("Invalid weather envelope record count " + count
+                    + " for " + buffer.remaining() + " remaining bytes");
+        }
+
+        // Columns follow one another, so read each into an array before assembling the readings
+        LocalDateTime[] timestamps = new LocalDateTime[count];
+        long timestamp = 0;
+        for (int i = 0; i < count; i++) {
+            timestamp += unZigZag(getVarLong(buffer));
+            timestamps[i] = LocalDateTime.ofInstant(Instant.ofEpochMilli(timestamp), ZoneOffset.UTC);
+        }
+        double[] temperature = readColumn(buffer, count, 10.0);
+        double[] humidity = readColumn(buffer, count, 10.0);
+        double[] rainfall = readColumn(buffer, count, 100.0);
+        double[] windSpeed = readColumn(buffer, count, 10.0);
+        double[] pressure = readColumn(buffer, count, 10.0);
+
+        List<WeatherReading> readings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            readings.add(new WeatherReading(timestamps[i], city,
+                    temperature[i], humidity[i], rainfall[i], windSpeed[i], pressure[i]));
+        }
+        return readings;
+    }
+
+    private static double[] readColumn(ByteBuffer buffer, int count, double scale) {
+        double[] values = new double[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = buffer.getInt() / scale;
+        }
+        return values;
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static long getVarLong(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint in weather envelope");
+    }
+}
@@ -0,0 +1,118 @@
+package com.qbitspark.datastorageservice;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.core.log.LogAccessor;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.AbstractConsumerSeekAware;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.kafka.support.serializer.DeserializationException;
+import org.springframework.kafka.support.serializer.SerializationUtils;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Consumer of the retry topics (see WeatherDeadLetters), in its own group so the main listener never
+// waits on a bad record. A record is stored once the delay of its topic has passed since it was
+// written. Until then its partition is rewound to it and paused, and resumed when it is due; the
+// other retry topics keep flowing meanwhile. Records that fail again move on to the next retry
+// topic or the DLT.
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class WeatherRetryConsumer extends AbstractConsumerSeekAware {
+
+    public static final String LISTENER_ID = "weather-storage-retry";
+
+    private static final LogAccessor DESERIALIZATION_LOG = new LogAccessor(WeatherRetryConsumer.class);
+
+    private final WeatherShardedWriter weatherShardedWriter;
+    private final WeatherDeadLetters weatherDeadLetters;
+    private final KafkaListenerEndpointRegistry kafkaListenerEndpointRegistry;
+
+    // Partitions rewound to a record that is not due yet; their remaining records in this poll are skipped
+    private final Set<TopicPartition> waiting = ConcurrentHashMap.newKeySet();
+
+    private ScheduledExecutorService resumer;
+
+    @PostConstruct
+    void start() {
+        resumer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "weather-retry-resume");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void stop() {
+        resumer.shutdownNow();
+    }
+
+    @KafkaListener(id = LISTENER_ID, topics = "#{@weatherDeadLetters.retryTopics}",
+            groupId = "weather-storage-retry-group")
+    public void retry(ConsumerRecord<String, List<WeatherReading>> record, Acknowledgment acknowledgment) {
+        TopicPartition partition = new TopicPartition(record.topic(), record.partition());
+        if (waiting.contains(partition)) {
+            return;
+        }
+
+        long wait = record.timestamp() + weatherDeadLetters.delayOf(record.topic()) - System.currentTimeMillis();
+        if (wait > 0) {
+            holdUntilDue(partition, record.offset(), wait);
+            return;
+        }
+
+        if (record.value() == null) {
+            DeserializationException failure = SerializationUtils.getExceptionFromHeader(
+                    record, SerializationUtils.VALUE_DESERIALIZER_EXCEPTION_HEADER, DESERIALIZATION_LOG);
+            weatherDeadLetters.deadLetter(record, failure == null ? null : failure.getData(), failure).join();
+            acknowledgment.acknowledge();
+            return;
+        }
+
+        WeatherShardedWriter.Result result = weatherShardedWriter.submit(record.value()).join();
+        if (result.cancelled()) {
+            // Shutting down; the record is not acknowledged and comes back after a restart
+            return;
+        }
+        if (!result.isStored()) {
+            log.warn("⚠️  Retry of {} weather readings from {} failed again: {}",
+                    result.failed().size(), record.topic(), result.failure().getMessage());
+            weatherDeadLetters.retryAgain(record, result.failed(), result.failure()).join();
+        }
+        acknowledgment.acknowledge();
+    }
+
+    private void holdUntilDue(TopicPartition partition, long offset, long wait) {
+        MessageListenerContainer container = kafkaListenerEndpointRegistry.getListenerContainer(LISTENER_ID);
+        waiting.add(partition);
+        List<ConsumerSeekCallback> callbacks = getSeekCallbacksFor(partition);
+        if (callbacks != null) {
+            callbacks.forEach(callback -> callback.seek(partition.topic(), partition.partition(), offset));
+        }
+        container.pausePartition(partition);
+        resumer.schedule(() -> {
+            waiting.remove(partition);
+            container.resumePartition(partition);
+        }, wait, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+        super.onPartitionsRevoked(partitions);
+        waiting.removeAll(partitions);
+    }
+}
@@ -0,0 +1,255 @@
+package com.qbitspark.datastorageservice;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Hourly and daily per-city rollups of weather_data, kept current at write time so analytics and
+// delivery read a few rows per city and day instead of scanning the raw readings. Each bucket holds
+// the reading count, sum, sum of squares, min and max of every metric, the threshold counters the
+// reports use and the first and last reading time. WeatherDataWriter hands over the rows a batch
+// actually inserted (replays are skipped there), which are aggregated in memory and upserted as one
+// row per bucket in the batch's own transaction, so the rollups never disagree with the table.
+// Rows already in weather_data when a rollup table is first created are rolled up at startup.
+// Retention only drops raw partitions; the rollups keep their history.
+@Component
+@Slf4j
+@RequiredArgsConstructor
+@DependsOn("weatherDataPartitions")
+public class WeatherRollups {
+
+    public static final String HOURLY_TABLE = "weather_rollup_hourly";
+    public static final String DAILY_TABLE = "weather_rollup_daily";
+
+    // Thresholds of the analytics reports
+    static final double HOT_TEMPERATURE = 30.0;
+    static final double RAINY_RAINFALL = 0.1;
+    static final double WINDY_WIND_SPEED = 20.0;
+    static final double EXTREME_TEMPERATURE = 35.0;
+    static final double EXTREME_RAINFALL = 10.0;
+    static final double EXTREME_WIND_SPEED = 25.0;
+
+    private static final String[] METRICS = {"temperature", "humidity", "rainfall", "wind_speed", "pressure"};
+    private static final String[] COUNTERS = {"hot_readings", "rainy_readings", "windy_readings", "extreme_readings"};
+    private static final String[] COUNTER_CONDITIONS = {
+            "temperature > " + HOT_TEMPERATURE,
+            "rainfall > " + RAINY_RAINFALL,
+            "wind_speed > " + WINDY_WIND_SPEED,
+            "temperature > " + EXTREME_TEMPERATURE + " OR rainfall > " + EXTREME_RAINFALL
+                    + " OR wind_speed > " + EXTREME_WIND_SPEED
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private final String hourlyUpsertSql = upsertSql(HOURLY_TABLE);
+    private final String dailyUpsertSql = upsertSql(DAILY_TABLE);
+
+    // Running aggregate of one city in one hour or day
+    static final class Bucket {
+        final String city;
+        final LocalDateTime start;
+        long readings;
+        final double[] sum = new double[METRICS.length];
+        final double[] sumOfSquares = new double[METRICS.length];
+        final double[] min = new double[METRICS.length];
+        final double[] max = new double[METRICS.length];
+        final long[] counters = new long[COUNTERS.length];
+        LocalDateTime firstReading;
+        LocalDateTime lastReading;
+
+        Bucket(String city, LocalDateTime start) {
+            this.city = city;
+            this.start = start;
+        }
+
+        void add(WeatherReading reading) {
+            double[] values = {reading.temperature(), reading.humidity(), reading.rainfall(),
+                    reading.windSpeed(), reading.pressure()};
+            for (int i = 0; i < values.length; i++) {
+                double value = values[i];
+                sum[i] += value;
+                sumOfSquares[i] += value * value;
+                min[i] = readings == 0 ? value : Math.min(min[i], value);
+                max[i] = readings == 0 ? value : Math.max(max[i], value);
+            }
+            if (reading.temperature() > HOT_TEMPERATURE) {
+                counters[0]++;
+            }
+            if (reading.rainfall() > RAINY_RAINFALL) {
+                counters[1]++;
+            }
+            if (reading.windSpeed() > WINDY_WIND_SPEED) {
+                counters[2]++;
+            }
+            if (reading.temperature() > EXTREME_TEMPERATURE || reading.rainfall() > EXTREME_RAINFALL
+                    || reading.windSpeed() > EXTREME_WIND_SPEED) {
+                counters[3]++;
+            }
+            if (firstReading == null || reading.timestamp().isBefore(firstReading)) {
+                firstReading = reading.timestamp();
+            }
+            if (lastReading == null || reading.timestamp().isAfter(lastReading)) {
+                lastReading = reading.timestamp();
+            }
+            readings++;
+        }
+
+        boolean holds(String city, LocalDateTime start) {
+            return this.start.equals(start) && this.city.equals(city);
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        transactionTemplate.executeWithoutResult(status -> {
+            createTable(HOURLY_TABLE, "hour");
+            createTable(DAILY_TABLE, "day");
+        });
+    }
+
+    // Called with the rows a batch inserted, inside the batch's transaction
+    public void add(List<WeatherReading> inserted) {
+        if (inserted.isEmpty()) {
+            return;
+        }
+        upsert(hourlyUpsertSql, aggregate(inserted, ChronoUnit.HOURS));
+        upsert(dailyUpsertSql, aggregate(inserted, ChronoUnit.DAYS));
+    }
+
+    // Buckets sorted by city and start, so concurrent transactions lock rollup rows in the same order
+    static List<Bucket> aggregate(List<WeatherReading> readings, ChronoUnit unit) {
+        Map<String, Map<LocalDateTime, Bucket>> byCity = new TreeMap<>();
+        Bucket current = null;
+        for (WeatherReading reading : readings) {
+            LocalDateTime start = reading.timestamp().truncatedTo(unit);
+            // Batches are mostly runs of one city and bucket; skip the lookups while that holds
+            if (current == null || !current.holds(reading.city(), start)) {
+                current = byCity.computeIfAbsent(reading.city(), city -> new TreeMap<>())
+                        .computeIfAbsent(start, s -> new Bucket(reading.city(), s));
+            }
+            current.add(reading);
+        }
+
+        List<Bucket> buckets = new ArrayList<>();
+        byCity.values().forEach(cityBuckets -> buckets.addAll(cityBuckets.values()));
+        return buckets;
+    }
+
+    private void upsert(String sql, List<Bucket> buckets) {
+        jdbcTemplate.batchUpdate(sql, buckets, buckets.size(), WeatherRollups::bind);
+    }
+
+    private static void bind(PreparedStatement statement, Bucket bucket) throws SQLException {
+        int parameter = 1;
+        statement.setString(parameter++, bucket.city);
+        statement.setTimestamp(parameter++, Timestamp.valueOf(bucket.start));
+        statement.setLong(parameter++, bucket.readings);
+        for (int i = 0; i < METRICS.length; i++) {
+            statement.setDouble(parameter++, bucket.sum[i]);
+            statement.setDouble(parameter++, bucket.sumOfSquares[i]);
+            statement.setDouble(parameter++, bucket.min[i]);
+            statement.setDouble(parameter++, bucket.max[i]);
+        }
+        for (long counter : bucket.counters) {
+            statement.setLong(parameter++, counter);
+        }
+        statement.setTimestamp(parameter++, Timestamp.valueOf(bucket.firstReading));
+        statement.setTimestamp(parameter, Timestamp.valueOf(bucket.lastReading));
+    }
+
+    private void createTable(String table, String unit) {
+        Boolean exists = jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, table);
+        if (Boolean.TRUE.equals(exists)) {
+            return;
+        }
+
+        StringBuilder columns = new StringBuilder();
+        for (String metric : METRICS) {
+            columns.append(metric).append("_sum double precision NOT NULL, ")
+                    .append(metric).append("_sum_sq double precision NOT NULL, ")
+                    .append(metric).append("_min double precision NOT NULL, ")
+                    .append(metric).append("_max double precision NOT NULL, ");
+        }
+        for (String counter : COUNTERS) {
+            columns.append(counter).append(" bigint NOT NULL, ");
+        }
+        jdbcTemplate.execute("CREATE TABLE " + table + " ("
+                + "city varchar(50) NOT NULL, "
+                + "bucket timestamp(6) NOT NULL, "
+                + "readings bigint NOT NULL, "
+                + columns
+                + "first_reading timestamp(6) NOT NULL, "
+                + "last_reading timestamp(6) NOT NULL, "
+                + "PRIMARY KEY (city, bucket))");
+        // Date-range reports over all cities
+        jdbcTemplate.execute("CREATE INDEX idx_" + table + "_bucket ON " + table + " (bucket)");
+
+        // One pass over what is already stored; the listeners only start after this
+        int buckets = jdbcTemplate.update(backfillSql(table, unit));
+        log.info("📊 Created {} with {} buckets from existing weather_data rows", table, buckets);
+    }
+
+    private static String columnList() {
+        StringBuilder columns = new StringBuilder("city, bucket, readings");
+        for (String metric : METRICS) {
+            columns.append(", ").append(metric).append("_sum, ").append(metric).append("_sum_sq, ")
+                    .append(metric).append("_min, ").append(metric).append("_max");
+        }
+        for (String counter : COUNTERS) {
+            columns.append(", ").append(counter);
+        }
+        return columns.append(", first_reading, last_reading").toString();
+    }
+
+    private static String upsertSql(String table) {
+        int parameters = 3 + METRICS.length * 4 + COUNTERS.length + 2;
+        StringBuilder sql = new StringBuilder("INSERT INTO ").append(table).append(" AS r (").append(columnList())
+                .append(") VALUES (").append("?, ".repeat(parameters - 1)).append("?)")
+                .append(" ON CONFLICT (city, bucket) DO UPDATE SET readings = r.readings + EXCLUDED.readings");
+        for (String metric : METRICS) {
+            sql.append(", ").append(metric).append("_sum = r.").append(metric).append("_sum + EXCLUDED.")
+                    .append(metric).append("_sum");
+            sql.append(", ").append(metric).append("_sum_sq = r.").append(metric).append("_sum_sq + EXCLUDED.")
+                    .append(metric).append("_sum_sq");
+            sql.append(", ").append(metric).append("_min = LEAST(r.").append(metric).append("_min, EXCLUDED.")
+                    .append(metric).append("_min)");
+            sql.append(", ").append(metric).append("_max = GREATEST(r.").append(metric).append("_max, EXCLUDED.")
+                    .append(metric).append("_max)");
+        }
+        for (String counter : COUNTERS) {
+            sql.append(", ").append(counter).append(" = r.").append(counter).append(" + EXCLUDED.").append(counter);
+        }
+        return sql.append(", first_reading = LEAST(r.first_reading, EXCLUDED.first_reading)")
+                .append(", last_reading = GREATEST(r.last_reading, EXCLUDED.last_reading)")
+                .toString();
+    }
+
+    private static String backfillSql(String table, String unit) {
+        StringBuilder select = new StringBuilder("SELECT city, date_trunc('").append(unit)
+                .append("', timestamp), count(*)");
+        for (String metric : METRICS) {
+            select.append(", sum(").append(metric).append("), sum(").append(metric).append(" * ").append(metric)
+                    .append("), min(").append(metric).append("), max(").append(metric).append(")");
+        }
+        for (String condition : COUNTER_CONDITIONS) {
+            select.append(", count(*) FILTER (WHERE ").append(condition).append(")");
+        }
+        return "INSERT INTO " + table + " (" + columnList() + ") "
+                + select + ", min(timestamp), max(timestamp) FROM weather_data GROUP BY 1, 2";
+    }
+}
@@ -0,0 +1,378 @@
+package com.qbitspark.datastorageservice;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// Fixed pool of writer threads in front of WeatherDataWriter. Every reading is routed by the hash
+// of its city to one shard, so a city is always written by the same thread, in the order the
+// listeners handed it over. Each shard drains whatever the listener threads queued for it since
+// its last flush (up to max-batch-rows) and stores it in one transaction on a pooled connection.
+// A flush that fails because the database is unavailable goes to the local spool (WeatherSpool),
+// and so does every flush after it until the database answers again; only if the spool is disabled
+// or cannot take it is the flush retried with backoff until it succeeds, with WeatherWriteBuffer
+// pausing the consumer meanwhile. Any other failure is retried max-attempts times, then each piece
+// is tried on its own, and the pieces that still fail are reported back as failed readings (see
+// WeatherDeadLetters) so a bad record cannot hold up its shard. Readings for months past partition
+// retention are reported as failed without reaching a shard. submit() completes once every
+// shard involved is done with its part.
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class WeatherShardedWriter {
+
+    private final WeatherDataWriter weatherDataWriter;
+    private final WeatherDataPartitions weatherDataPartitions;
+    private final WeatherSpool weatherSpool;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.storage.writer.shards:4}")
+    private int shardCount;
+
+    @Value("${app.storage.writer.max-batch-rows:2000}")
+    private int maxBatchRows;
+
+    @Value("${app.storage.writer.max-attempts:3}")
+    private int maxAttempts;
+
+    @Value("${app.storage.writer.retry-backoff-ms:500}")
+    private long retryBackoffMs;
+
+    @Value("${app.storage.writer.max-retry-backoff-ms:30000}")
+    private long maxRetryBackoffMs;
+
+    // Rows a piece inserted, or whether it went to the spool instead
+    private record Stored(int inserted, boolean spooled) {
+    }
+
+    private record Piece(List<WeatherReading> readings, CompletableFuture<Stored> result) {
+    }
+
+    // Outcome of one submitted batch. spooled readings are on local disk and reach the database
+    // later; failed holds the readings that could not be stored, with the last failure; cancelled
+    // means the writer shut down first and nothing should be acknowledged.
+    public record Result(int inserted, int spooled, List<WeatherReading> failed, Throwable failure,
+                         boolean cancelled) {
+
+        static final Result EMPTY = new Result(0, 0, List.of(), null, false);
+
+        public boolean isStored() {
+            return failed.isEmpty() && !cancelled;
+        }
+    }
+
+    private Shard[] shards;
+    private volatile boolean running;
+    private Timer flushTimer;
+
+    @PostConstruct
+    void start() {
+        if (shardCount < 1) {
+            throw new IllegalArgumentException("app.storage.writer.shards must be at least 1: " + shardCount);
+        }
+        running = true;
+        flushTimer = Timer.builder("weather.storage.writer.flush")
+                .description("Time a writer shard takes to store one micro-batch, retries included")
+                .register(meterRegistry);
+        shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            Shard shard = new Shard(i);
+            Gauge.builder("weather.storage.writer.queue", shard.queue, BlockingQueue::size)
+                    .description("Batches waiting for a storage writer shard")
+                    .tag("shard", String.valueOf(i))
+                    .register(meterRegistry);
+            shard.thread.start();
+            shards[i] = shard;
+        }
+        log.info("💾 Writing weather data with {} writer shards", shardCount);
+    }
+
+    @PreDestroy
+    void stop() {
+        running = false;
+        for (Shard shard : shards) {
+            shard.thread.interrupt();
+        }
+    }
+
+    // Returns the number of rows inserted; the rest were already stored or went to the spool
+    public int write(List<WeatherReading> readings) {
+        Result result = submit(readings).join();
+        if (result.isStored()) {
+            return result.inserted();
+        }
+        if (result.failure() instanceof RuntimeException failure) {
+            throw failure;
+        }
+        throw new IllegalStateException("Could not store " + result.failed().size() + " weather readings",
+                result.failure());
+    }
+
+    // Completes once every shard involved has committed its part of the readings or given up on it
+    public CompletableFuture<Result> submit(List<WeatherReading> readings) {
+        if (readings.isEmpty()) {
+            return CompletableFuture.completedFuture(Result.EMPTY);
+        }
+
+        List<List<WeatherReading>> split = new ArrayList<>(shards.length);
+        for (int i = 0; i < shards.length; i++) {
+            split.add(null);
+        }
+        List<WeatherReading> expired = null;
+        for (WeatherReading reading : readings) {
+            // No partition will take these; fail them alone instead of with the rest of their shard's batch
+            if (weatherDataPartitions.isExpired(reading.timestamp())) {
+                if (expired == null) {
+                    expired = new ArrayList<>();
+                }
+                expired.add(reading);
+                continue;
+            }
+            int shard = shardOf(reading.city());
+            List<WeatherReading> part = split.get(shard);
+            if (part == null) {
+                part = new ArrayList<>();
+                split.set(shard, part);
+            }
+            part.add(reading);
+        }
+
+        List<Piece> pieces = new ArrayList<>(shards.length + 1);
+        if (expired != null) {
+            pieces.add(new Piece(expired, CompletableFuture.failedFuture(new IllegalStateException(
+                    expired.size() + " weather readings are older than the partition retention of weather_data"))));
+        }
+        for (int i = 0; i < shards.length; i++) {
+            if (split.get(i) != null) {
+                pieces.add(shards[i].submit(split.get(i)));
+            }
+        }
+        return CompletableFuture.allOf(pieces.stream().map(Piece::result).toArray(CompletableFuture[]::new))
+                .handle((ignored, error) -> resultOf(pieces));
+    }
+
+    private static Result resultOf(List<Piece> pieces) {
+        int inserted = 0;
+        int spooled = 0;
+        List<WeatherReading> failed = new ArrayList<>();
+        Throwable failure = null;
+        boolean cancelled = false;
+        for (Piece piece : pieces) {
+            CompletableFuture<Stored> result = piece.result();
+            if (result.isCancelled()) {
+                cancelled = true;
+            } else if (result.isCompletedExceptionally()) {
+                failed.addAll(piece.readings());
+                failure = result.exceptionNow();
+            } else if (result.join().spooled()) {
+                spooled += piece.readings().size();
+            } else {
+                inserted += result.join().inserted();
+            }
+        }
+        return new Result(inserted, spooled, failed, failure, cancelled);
+    }
+
+    // Connection-level and transient failures say nothing about the readings; those are waited out
+    // (or spooled), not given up on
+    static boolean isDatabaseUnavailable(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof DataAccessResourceFailureException) {
+                return true;
+            }
+            if (cause instanceof SQLException sqlException && sqlException.getSQLState() != null) {
+                String state = sqlException.getSQLState();
+                // 08: connection exception, 53: insufficient resources, 57P: operator intervention,
+                // 25006: read-only transaction (a demoted primary after a failover),
+                // 40001/40P01: serialization failure and deadlock, which succeed when tried again
+                if (state.startsWith("08") || state.startsWith("53") || state.startsWith("57P")
+                        || state.equals("25006") || state.equals("40001") || state.equals("40P01")) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    int shardOf(String city) {
+        return Math.floorMod(city.hashCode(), shards.length);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("shards", shards.length);
+        stats.put("maxBatchRows", maxBatchRows);
+        List<Integer> queued = new ArrayList<>(shards.length);
+        for (Shard shard : shards) {
+            queued.add(shard.queue.size());
+        }
+        stats.put("queued", queued);
+        return stats;
+    }
+
+    private final class Shard implements Runnable {
+
+        private final int index;
+        private final BlockingQueue<Piece> queue = new LinkedBlockingQueue<>();
+        private final Thread thread;
+
+        private Shard(int index) {
+            this.index = index;
+            this.thread = new Thread(this, "weather-writer-" + index);
+            this.thread.setDaemon(true);
+        }
+
+        private Piece submit(List<WeatherReading> readings) {
+            Piece piece = new Piece(readings, new CompletableFuture<>());
+            if (!running) {
+                piece.result().cancel(false);
+                return piece;
+            }
+            queue.add(piece);
+            return piece;
+        }
+
+        @Override
+        public void run() {
+            List<Piece> batch = new ArrayList<>();
+            while (running) {
+                try {
+                    batch.add(queue.take());
+                } catch (InterruptedException e) {
+                    break;
+                }
+                int rows = batch.get(0).readings().size();
+                Piece next;
+                while (rows < maxBatchRows && (next = queue.poll()) != null) {
+                    batch.add(next);
+                    rows += next.readings().size();
+                }
+                flush(batch, rows);
+                batch.clear();
+            }
+
+            Piece left;
+            while ((left = queue.poll()) != null) {
+                left.result().cancel(false);
+            }
+        }
+
+        // One transaction for everything drained; a statement per piece so each caller gets its own count,
+        // and one rollup upsert per bucket for all of them
+        private void flush(List<Piece> batch, int rows) {
+            long startedAt = System.nanoTime();
+            // Known to be down; no point waiting for a connection
+            if (weatherSpool.isDatabaseUnavailable() && spool(batch, rows)) {
+                return;
+            }
+            long backoffMs = retryBackoffMs;
+            for (int attempt = 1; ; attempt++) {
+                Exception failure;
+                try {
+                    int[] inserted = store(batch);
+                    flushTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                    for (int i = 0; i < batch.size(); i++) {
+                        batch.get(i).result().complete(new Stored(inserted[i], false));
+                    }
+                    return;
+                } catch (Exception e) {
+                    failure = e;
+                }
+
+                boolean unavailable = isDatabaseUnavailable(failure);
+                if (unavailable && weatherSpool.isEnabled()) {
+                    weatherSpool.markUnavailable(failure);
+                    if (spool(batch, rows)) {
+                        return;
+                    }
+                }
+                if (!unavailable && attempt >= maxAttempts) {
+                    log.error("❌ Writer shard {} gave up storing {} readings after {} attempts: {}",
+                            index, rows, attempt, failure.getMessage());
+                    flushTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                    isolate(batch, failure);
+                    return;
+                }
+                log.error("❌ Writer shard {} failed to store {} readings (attempt {}), retrying in {} ms: {}",
+                        index, rows, attempt, backoffMs, failure.getMessage());
+                try {
+                    Thread.sleep(backoffMs);
+                } catch (InterruptedException e) {
+                    // Shutting down; the batch was not acknowledged and will be delivered again
+                    for (Piece piece : batch) {
+                        piece.result().cancel(false);
+                    }
+                    return;
+                }
+                backoffMs = Math.min(backoffMs * 2, maxRetryBackoffMs);
+            }
+        }
+
+        // Offsets of the pieces can be acknowledged once the spool has them on disk
+        private boolean spool(List<Piece> batch, int rows) {
+            if (!weatherSpool.isEnabled()) {
+                return false;
+            }
+            List<WeatherReading> readings = new ArrayList<>(rows);
+            for (Piece piece : batch) {
+                readings.addAll(piece.readings());
+            }
+            try {
+                weatherSpool.append(readings);
+            } catch (IOException e) {
+                log.error("❌ Writer shard {} could not spool {} readings, waiting for the database: {}",
+                        index, rows, e.getMessage());
+                return false;
+            }
+            for (Piece piece : batch) {
+                piece.result().complete(new Stored(0, true));
+            }
+            return true;
+        }
+
+        // The pieces of a failed micro-batch come from different polls; store them one by one so
+        // only the pieces that fail on their own are reported
+        private void isolate(List<Piece> batch, Exception failure) {
+            if (batch.size() == 1) {
+                batch.get(0).result().completeExceptionally(failure);
+                return;
+            }
+            for (Piece piece : batch) {
+                try {
+                    piece.result().complete(new Stored(store(List.of(piece))[0], false));
+                } catch (Exception e) {
+                    piece.result().completeExceptionally(e);
+                }
+            }
+        }
+
+        private int[] store(List<Piece> batch) {
+            // Partition DDL needs its own transaction; do it before this one holds a connection
+            for (Piece piece : batch) {
+                weatherDataPartitions.ensureFor(piece.readings());
+            }
+            List<List<WeatherReading>> readings = batch.stream().map(Piece::readings).toList();
+            return transactionTemplate.execute(status -> weatherDataWriter.writeAll(readings));
+        }
+    }
+}
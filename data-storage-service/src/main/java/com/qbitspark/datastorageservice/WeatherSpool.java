@@ -0,0 +1,268 @@
+package com.qbitspark.datastorageservice;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+// Local disk spool for the writer shards while PostgreSQL is down or failing over. When a flush
+// fails because the database is unavailable, the shard appends the readings to a memory-mapped
+// segment log (WeatherSpoolLog) instead of retrying, and the batch counts as done once the entry
+// is on disk, so the listeners keep consuming at full speed and commit their offsets. Until the
+// database is back the shards go straight to the spool without waiting on connections.
+// A drainer thread loads the spool into weather_data oldest first, in transactions of up to
+// drain-batch-rows through WeatherDataWriter (so replays are skipped and the rollups follow).
+// The first successful drain marks the database available again. Readings the database rejects
+// for any other reason go to the retry topics, like the writers' own.
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class WeatherSpool {
+
+    private final WeatherDataWriter weatherDataWriter;
+    private final WeatherDataPartitions weatherDataPartitions;
+    private final WeatherDataCounts weatherDataCounts;
+    private final WeatherDeadLetters weatherDeadLetters;
+    private final TransactionTemplate transactionTemplate;
+    private final JdbcTemplate jdbcTemplate;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.storage.spool.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.storage.spool.directory:spool/weather-data}")
+    private String directory;
+
+    @Value("${app.storage.spool.segment-bytes:67108864}")
+    private int segmentBytes;
+
+    @Value("${app.storage.spool.drain-batch-rows:5000}")
+    private int drainBatchRows;
+
+    // How often the drainer checks a database marked unavailable, doubling up to the maximum
+    @Value("${app.storage.spool.probe-interval-ms:1000}")
+    private long probeIntervalMs;
+
+    @Value("${app.storage.spool.max-probe-interval-ms:30000}")
+    private long maxProbeIntervalMs;
+
+    private WeatherSpoolLog spoolLog;
+    private Thread drainer;
+    private volatile boolean running;
+
+    private volatile boolean databaseUnavailable;
+    private volatile long unavailableSince;
+
+    private final LongAdder spooled = new LongAdder();
+    private final LongAdder drained = new LongAdder();
+    private volatile double drainRate;
+    private volatile long lastDrainAt;
+
+    @PostConstruct
+    void start() throws IOException {
+        if (!enabled) {
+            log.info("💾 Spool disabled; writers wait out database outages");
+            return;
+        }
+        spoolLog = new WeatherSpoolLog(Path.of(directory), segmentBytes);
+        long pending = spoolLog.getPendingReadings();
+        if (pending > 0) {
+            log.info("💾 Found {} spooled readings in {} segments under {}", pending, spoolLog.getSegmentCount(),
+                    directory);
+        }
+
+        Gauge.builder("weather.storage.spool.depth", this, WeatherSpool::getPendingReadings)
+                .description("Readings in the local spool waiting to be loaded into the database")
+                .register(meterRegistry);
+        Gauge.builder("weather.storage.spool.bytes", this, WeatherSpool::getPendingBytes)
+                .description("Bytes of spooled entries waiting to be loaded")
+                .register(meterRegistry);
+        Gauge.builder("weather.storage.spool.drain.rate", this, spool -> spool.drainRate)
+                .description("Readings per second loaded from the spool by the last drain transaction")
+                .register(meterRegistry);
+        FunctionCounter.builder("weather.storage.spool.spooled", spooled, LongAdder::sum)
+                .description("Readings written to the spool while the database was unavailable")
+                .register(meterRegistry);
+        FunctionCounter.builder("weather.storage.spool.drained", drained, LongAdder::sum)
+                .description("Readings loaded from the spool into the database")
+                .register(meterRegistry);
+
+        running = true;
+        drainer = new Thread(this::drain, "weather-spool-drainer");
+        drainer.setDaemon(true);
+        drainer.start();
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        if (drainer == null) {
+            return;
+        }
+        running = false;
+        drainer.interrupt();
+        drainer.join(TimeUnit.SECONDS.toMillis(10));
+        synchronized (this) {
+            spoolLog.close();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Set by a failed flush, cleared by the drainer once the database answers again
+    public boolean isDatabaseUnavailable() {
+        return databaseUnavailable;
+    }
+
+    public void markUnavailable(Throwable failure) {
+        if (!databaseUnavailable) {
+            unavailableSince = System.currentTimeMillis();
+            databaseUnavailable = true;
+            log.warn("⚠️  Database unavailable, spooling weather readings to {}: {}", directory, failure.getMessage());
+        }
+    }
+
+    // Returns once the readings are on disk
+    public synchronized void append(List<WeatherReading> readings) throws IOException {
+        if (!running) {
+            throw new IOException("Spool is closed");
+        }
+        spoolLog.append(readings);
+        spooled.add(readings.size());
+    }
+
+    public synchronized long getPendingReadings() {
+        return spoolLog == null ? 0 : spoolLog.getPendingReadings();
+    }
+
+    public synchronized long getPendingBytes() {
+        return spoolLog == null ? 0 : spoolLog.getPendingBytes();
+    }
+
+    private void drain() {
+        long backoffMs = probeIntervalMs;
+        while (running) {
+            WeatherSpoolLog.Chunk chunk;
+            synchronized (this) {
+                chunk = spoolLog.read(drainBatchRows);
+            }
+            try {
+                if (chunk == null) {
+                    if (databaseUnavailable) {
+                        probe();
+                        markAvailable();
+                    }
+                    backoffMs = probeIntervalMs;
+                    Thread.sleep(probeIntervalMs);
+                    continue;
+                }
+                load(chunk);
+                markAvailable();
+                backoffMs = probeIntervalMs;
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                if (chunk != null && !WeatherShardedWriter.isDatabaseUnavailable(e)) {
+                    reject(chunk, e);
+                    continue;
+                }
+                markUnavailable(e);
+                try {
+                    Thread.sleep(backoffMs);
+                } catch (InterruptedException interrupted) {
+                    return;
+                }
+                backoffMs = Math.min(backoffMs * 2, maxProbeIntervalMs);
+            }
+        }
+    }
+
+    // A primary demoted by a failover still answers, but read-only
+    private void probe() {
+        if ("on".equals(jdbcTemplate.queryForObject("SHOW transaction_read_only", String.class))) {
+            throw new DataAccessResourceFailureException("Database is read-only");
+        }
+    }
+
+    private void load(WeatherSpoolLog.Chunk chunk) {
+        long startedAt = System.nanoTime();
+        weatherDataPartitions.ensureFor(chunk.readings());
+        Integer inserted = transactionTemplate.execute(status -> weatherDataWriter.write(chunk.readings()));
+        synchronized (this) {
+            spoolLog.release(chunk);
+        }
+
+        int rows = chunk.readings().size();
+        drained.add(rows);
+        weatherDataCounts.recordStored(inserted == null ? 0 : inserted);
+        long elapsedNanos = Math.max(1, System.nanoTime() - startedAt);
+        drainRate = rows * 1e9 / elapsedNanos;
+        lastDrainAt = System.currentTimeMillis();
+        log.debug("Loaded {} spooled readings ({} inserted), {} left", rows, inserted, getPendingReadings());
+    }
+
+    // Not an outage: the database refused these readings, so they take the retry topics instead
+    private void reject(WeatherSpoolLog.Chunk chunk, Exception failure) {
+        log.error("❌ Could not load {} spooled readings, sending them to {}: {}", chunk.readings().size(),
+                weatherDeadLetters.getRetryTopics().get(0), failure.getMessage());
+        try {
+            weatherDeadLetters.retry(chunk.readings(), failure).join();
+        } catch (Exception e) {
+            // Kept in the spool and tried again
+            log.error("❌ Could not hand spooled readings to the retry topics: {}", e.getMessage());
+            try {
+                Thread.sleep(maxProbeIntervalMs);
+            } catch (InterruptedException interrupted) {
+                Thread.currentThread().interrupt();
+            }
+            return;
+        }
+        synchronized (this) {
+            spoolLog.release(chunk);
+        }
+    }
+
+    private void markAvailable() {
+        if (databaseUnavailable) {
+            databaseUnavailable = false;
+            log.info("✅ Database available again after {} s; {} readings left in the spool",
+                    (System.currentTimeMillis() - unavailableSince) / 1000, getPendingReadings());
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("directory", directory);
+        stats.put("databaseUnavailable", databaseUnavailable);
+        long pending = getPendingReadings();
+        stats.put("pendingReadings", pending);
+        stats.put("pendingBytes", getPendingBytes());
+        synchronized (this) {
+            stats.put("segments", spoolLog == null ? 0 : spoolLog.getSegmentCount());
+        }
+        stats.put("spooled", spooled.sum());
+        stats.put("drained", drained.sum());
+        stats.put("drainRatePerSecond", Math.round(drainRate));
+        stats.put("lastDrainAt", lastDrainAt == 0 ? null : Instant.ofEpochMilli(lastDrainAt).toString());
+        return stats;
+    }
+}
@@ -0,0 +1,26 @@
+package com.qbitspark.datastorageservice;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/storage/spool")
+public class WeatherSpoolController {
+
+    @Autowired
+    private WeatherSpool weatherSpool;
+
+    // Spool depth, drain rate and whether the database is currently treated as unavailable
+    @GetMapping
+    public ResponseEntity<Map<String, Object>> getStats() {
+        Map<String, Object> response = new HashMap<>(weatherSpool.getStats());
+        response.put("timestamp", LocalDateTime.now().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME));
+        return ResponseEntity.ok(response);
+    }
+}
@@ -0,0 +1,307 @@
+package com.qbitspark.datastorageservice;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.zip.CRC32;
+
+// Append-only log of decoded readings in memory-mapped segment files, used by WeatherSpool while
+// the database is unreachable. append() returns once its entry is forced to disk, so whatever it
+// accepted survives a crash. Entries are read back oldest first; release() records how far they
+// were handed on in the segment header, so they are not read again after a restart, and a segment
+// is deleted once it has been released past its end.
+//
+// Segment: int magic, int released position, then entries of
+//   int payload length, int CRC32 of the payload,
+//   payload: int count, count x (long epoch second, int nano, short city length, city UTF-8,
+//            5 x double temperature, humidity, rainfall, wind speed, pressure)
+// and a zero length after the last one (files are zero-filled when extended). On open, existing
+// segments are scanned up to the first zero length or CRC mismatch; a torn entry from a crash was
+// never acknowledged and is dropped. Appends always go to a new segment after a restart. A crash
+// between loading a chunk and its release still reads that chunk again.
+// Not thread-safe on its own; WeatherSpool synchronizes appends and drains.
+final class WeatherSpoolLog implements Closeable {
+
+    private static final int MAGIC = 0x57535032; // "WSP2"
+    private static final int SEGMENT_HEADER_BYTES = 8;
+    private static final int RELEASED_OFFSET = 4;
+    private static final int ENTRY_HEADER_BYTES = 8;
+    private static final int READING_FIXED_BYTES = 8 + 4 + 2 + 5 * 8;
+    private static final String SUFFIX = ".spool";
+
+    private final Path directory;
+    private final int segmentBytes;
+
+    private final Deque<Segment> segments = new ArrayDeque<>();
+    private long nextSequence;
+    private long pendingReadings;
+
+    private static final class Segment {
+        final long sequence;
+        final Path path;
+        MappedByteBuffer buffer;
+        // End of the written entries
+        int writePosition;
+        // Start of the first entry not released yet
+        int readPosition;
+        // Readings from readPosition to writePosition
+        long readings;
+        boolean sealed;
+
+        Segment(long sequence, Path path) {
+            this.sequence = sequence;
+            this.path = path;
+        }
+    }
+
+    // Entries read and not released yet; release() moves the read position past them
+    record Chunk(List<WeatherReading> readings, long sequence, int end) {
+    }
+
+    WeatherSpoolLog(Path directory, int segmentBytes) throws IOException {
+        this.directory = directory;
+        this.segmentBytes = segmentBytes;
+        Files.createDirectories(directory);
+        recover();
+    }
+
+    void append(List<WeatherReading> readings) throws IOException {
+        if (readings.isEmpty()) {
+            return;
+        }
+        byte[] payload = encode(readings);
+        int entryBytes = ENTRY_HEADER_BYTES + payload.length;
+
+        Segment segment = segments.peekLast();
+        // Room for the entry and the zero length behind it
+        if (segment == null || segment.sealed || segment.writePosition + entryBytes + 4 > segment.buffer.capacity()) {
+            if (segment != null) {
+                segment.sealed = true;
+            }
+            segment = create(Math.max(segmentBytes, SEGMENT_HEADER_BYTES + entryBytes + 4));
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer buffer = segment.buffer;
+        int start = segment.writePosition;
+        buffer.put(start + ENTRY_HEADER_BYTES, payload);
+        buffer.putInt(start + 4, (int) crc.getValue());
+        buffer.putInt(start, payload.length);
+        segment.buffer.force(start, entryBytes);
+
+        segment.writePosition = start + entryBytes;
+        segment.readings += readings.size();
+        pendingReadings += readings.size();
+    }
+
+    // Entries from the oldest unreleased one on, up to about maxReadings (at least one entry), from
+    // one segment; null when everything has been released
+    Chunk read(int maxReadings) {
+        dropReleased();
+        Segment segment = segments.peekFirst();
+        if (segment == null || segment.readPosition == segment.writePosition) {
+            return null;
+        }
+
+        List<WeatherReading> readings = new ArrayList<>();
+        int position = segment.readPosition;
+        while (position < segment.writePosition && readings.size() < maxReadings) {
+            int length = segment.buffer.getInt(position);
+            decode(segment.buffer.slice(position + ENTRY_HEADER_BYTES, length), readings);
+            position += ENTRY_HEADER_BYTES + length;
+        }
+        return new Chunk(readings, segment.sequence, position);
+    }
+
+    void release(Chunk chunk) {
+        Segment segment = segments.peekFirst();
+        if (segment == null || segment.sequence != chunk.sequence()) {
+            throw new IllegalStateException("Spool chunk released out of order");
+        }
+        segment.readPosition = chunk.end();
+        segment.buffer.putInt(RELEASED_OFFSET, chunk.end());
+        segment.buffer.force(RELEASED_OFFSET, 4);
+        segment.readings -= chunk.readings().size();
+        pendingReadings -= chunk.readings().size();
+        dropReleased();
+    }
+
+    long getPendingReadings() {
+        return pendingReadings;
+    }
+
+    long getPendingBytes() {
+        long bytes = 0;
+        for (Segment segment : segments) {
+            bytes += segment.writePosition - segment.readPosition;
+        }
+        return bytes;
+    }
+
+    int getSegmentCount() {
+        return segments.size();
+    }
+
+    @Override
+    public void close() {
+        // An empty segment has nothing to keep
+        Segment last = segments.peekLast();
+        if (last != null && last.readPosition == last.writePosition) {
+            segments.removeLast();
+            delete(last);
+        }
+        segments.clear();
+    }
+
+    // Deletes sealed segments read to the end
+    private void dropReleased() {
+        Segment first;
+        while ((first = segments.peekFirst()) != null && first.sealed && first.readPosition == first.writePosition) {
+            segments.removeFirst();
+            delete(first);
+        }
+    }
+
+    private void delete(Segment segment) {
+        segment.buffer = null;
+        try {
+            Files.deleteIfExists(segment.path);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not delete spool segment " + segment.path, e);
+        }
+    }
+
+    private Segment create(int capacity) throws IOException {
+        long sequence = nextSequence++;
+        Segment segment = new Segment(sequence, directory.resolve(String.format("%020d%s", sequence, SUFFIX)));
+        try (FileChannel channel = FileChannel.open(segment.path, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            segment.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        }
+        segment.buffer.putInt(0, MAGIC);
+        segment.buffer.putInt(RELEASED_OFFSET, SEGMENT_HEADER_BYTES);
+        segment.buffer.force(0, SEGMENT_HEADER_BYTES);
+        segment.writePosition = SEGMENT_HEADER_BYTES;
+        segment.readPosition = SEGMENT_HEADER_BYTES;
+        segments.addLast(segment);
+        return segment;
+    }
+
+    private void recover() throws IOException {
+        TreeMap<Long, Path> found = new TreeMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    found.put(Long.parseLong(name.substring(0, name.length() - SUFFIX.length())), file);
+                } catch (NumberFormatException e) {
+                    // Not one of ours
+                }
+            }
+        }
+
+        for (var entry : found.entrySet()) {
+            Segment segment = new Segment(entry.getKey(), entry.getValue());
+            try (FileChannel channel = FileChannel.open(segment.path, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE)) {
+                segment.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            }
+            segment.sealed = true;
+            if (segment.buffer.capacity() >= SEGMENT_HEADER_BYTES && segment.buffer.getInt(0) == MAGIC) {
+                scan(segment);
+            }
+            if (segment.readings == 0) {
+                delete(segment);
+            } else {
+                segments.addLast(segment);
+                pendingReadings += segment.readings;
+            }
+        }
+        nextSequence = found.isEmpty() ? 0 : found.lastKey() + 1;
+    }
+
+    // Finds the end of the valid entries and counts the readings not released yet. A released
+    // position that is not the start of an entry means a damaged header; then nothing counts as released.
+    private static void scan(Segment segment) {
+        ByteBuffer buffer = segment.buffer;
+        int released = buffer.getInt(RELEASED_OFFSET);
+        int position = SEGMENT_HEADER_BYTES;
+        long readings = 0;
+        long unreleased = 0;
+        boolean boundary = released == position;
+        while (position + ENTRY_HEADER_BYTES <= buffer.capacity()) {
+            int length = buffer.getInt(position);
+            if (length < 4 || position + ENTRY_HEADER_BYTES + length > buffer.capacity()) {
+                break;
+            }
+            ByteBuffer payload = buffer.slice(position + ENTRY_HEADER_BYTES, length);
+            CRC32 crc = new CRC32();
+            crc.update(payload.duplicate());
+            if ((int) crc.getValue() != buffer.getInt(position + 4)) {
+                break;
+            }
+            int count = payload.getInt(0);
+            readings += count;
+            if (position >= released) {
+                unreleased += count;
+            }
+            position += ENTRY_HEADER_BYTES + length;
+            boundary |= position == released;
+        }
+        segment.writePosition = position;
+        segment.readPosition = boundary ? released : SEGMENT_HEADER_BYTES;
+        segment.readings = boundary ? unreleased : readings;
+    }
+
+    static byte[] encode(List<WeatherReading> readings) {
+        byte[][] cities = new byte[readings.size()][];
+        int size = 4;
+        for (int i = 0; i < readings.size(); i++) {
+            cities[i] = readings.get(i).city().getBytes(StandardCharsets.UTF_8);
+            size += READING_FIXED_BYTES + cities[i].length;
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(readings.size());
+        for (int i = 0; i < readings.size(); i++) {
+            WeatherReading reading = readings.get(i);
+            buffer.putLong(reading.timestamp().toEpochSecond(ZoneOffset.UTC));
+            buffer.putInt(reading.timestamp().getNano());
+            buffer.putShort((short) cities[i].length);
+            buffer.put(cities[i]);
+            buffer.putDouble(reading.temperature());
+            buffer.putDouble(reading.humidity());
+            buffer.putDouble(reading.rainfall());
+            buffer.putDouble(reading.windSpeed());
+            buffer.putDouble(reading.pressure());
+        }
+        return buffer.array();
+    }
+
+    static void decode(ByteBuffer payload, List<WeatherReading> readings) {
+        int count = payload.getInt();
+        for (int i = 0; i < count; i++) {
+            LocalDateTime timestamp = LocalDateTime.ofEpochSecond(payload.getLong(), payload.getInt(), ZoneOffset.UTC);
+            byte[] city = new byte[payload.getShort()];
+            payload.get(city);
+            readings.add(new WeatherReading(timestamp, new String(city, StandardCharsets.UTF_8),
+                    payload.getDouble(), payload.getDouble(), payload.getDouble(), payload.getDouble(),
+                    payload.getDouble()));
+        }
+    }
+}
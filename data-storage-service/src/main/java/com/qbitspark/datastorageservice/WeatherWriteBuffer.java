@@ -0,0 +1,329 @@
+package com.qbitspark.datastorageservice;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.kafka.common.TopicPartition;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.listener.MessageListenerContainer;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiPredicate;
+import java.util.function.Function;
+
+// Write-behind buffer between the storage listener and WeatherShardedWriter. The listener hands a
+// decoded poll over and returns to polling at once, so a slow database never holds the consumer
+// past max.poll.interval.ms. Backpressure goes through the listener container instead: when more
+// than high-water-rows are waiting, or a batch took longer than max-flush-latency-ms to be stored,
+// the partitions with batches in the buffer are paused. The consumer keeps polling (and stays in
+// the group) without fetching from them, and they are resumed once the buffer is back under
+// low-water-rows.
+// Completion callbacks of one listener thread run in submission order, so offsets are acknowledged
+// in order even when shards finish out of order. A batch that cannot be finished is sought back
+// and delivered again instead of holding up the acknowledgements of that thread.
+@Component
+@Slf4j
+@RequiredArgsConstructor
+public class WeatherWriteBuffer {
+
+    public static final String LISTENER_ID = "weather-storage";
+
+    private final WeatherShardedWriter weatherShardedWriter;
+    private final KafkaListenerEndpointRegistry kafkaListenerEndpointRegistry;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${app.storage.buffer.high-water-rows:20000}")
+    private long highWaterRows;
+
+    @Value("${app.storage.buffer.low-water-rows:5000}")
+    private long lowWaterRows;
+
+    @Value("${app.storage.buffer.max-flush-latency-ms:5000}")
+    private long maxFlushLatencyMs;
+
+    // Rows submitted and not yet stored
+    private final AtomicLong depth = new AtomicLong();
+
+    // Batches in the buffer per partition; these are the partitions a pause applies to
+    private final Map<TopicPartition, AtomicInteger> inFlight = new ConcurrentHashMap<>();
+
+    private final Set<TopicPartition> paused = ConcurrentHashMap.newKeySet();
+    private final LongAdder pauses = new LongAdder();
+    private final LongAdder slowBatches = new LongAdder();
+    private volatile long lastBatchLatencyMs;
+
+    // Runs the completion callbacks, so a slow hand-off never holds up a writer shard
+    private ExecutorService completions;
+
+    // Completion chain of each listener thread
+    private final ThreadLocal<Lane> lanes = ThreadLocal.withInitial(Lane::new);
+
+    // Batches of one listener thread finish in submission order along tail, which is only touched
+    // on that thread and never completes exceptionally. A failed batch bumps the generation: the
+    // batches submitted before that are not acknowledged either, and every partition they cover is
+    // sought back to its first offset (once per partition, the lowest offset comes first), so the
+    // consumer delivers them again. Revoking partitions bumps it too; seeks of partitions that are
+    // no longer assigned are dropped, those start from the committed offsets.
+    // The seek only takes effect at the next poll, so the listener may still submit a poll fetched
+    // before it. Until a poll starting at or before the rewound offset arrives, polls of that
+    // partition are stale and not acknowledged, or they would commit past the readings being redelivered.
+    private static final class Lane {
+        private CompletableFuture<Void> tail = CompletableFuture.completedFuture(null);
+        private int generation;
+        // Offset each partition was sought back to, until a poll starting there is submitted
+        private final Map<TopicPartition, Long> rewound = new HashMap<>();
+    }
+
+    @PostConstruct
+    void init() {
+        if (lowWaterRows > highWaterRows) {
+            throw new IllegalArgumentException("app.storage.buffer.low-water-rows must not exceed high-water-rows");
+        }
+        // At most one callback per listener thread at a time, since each thread's callbacks are chained
+        completions = Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, "weather-buffer-completion");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Gauge.builder("weather.storage.buffer.depth", depth, AtomicLong::get)
+                .description("Readings handed to the writers and not yet stored")
+                .register(meterRegistry);
+        Gauge.builder("weather.storage.buffer.paused.partitions", paused, Set::size)
+                .description("weather-data partitions paused because the buffer is saturated")
+                .register(meterRegistry);
+        FunctionCounter.builder("weather.storage.buffer.pauses", pauses, LongAdder::sum)
+                .description("Times partitions were paused because the buffer was saturated")
+                .register(meterRegistry);
+        FunctionCounter.builder("weather.storage.buffer.slow.batches", slowBatches, LongAdder::sum)
+                .description("Batches that took longer than max-flush-latency-ms to be stored")
+                .register(meterRegistry);
+    }
+
+    // Queues the readings of one poll, firstOffsets holding the first offset of each of its partitions.
+    // Once the writers are done with them, and after the batches submitted before it from the same
+    // listener thread, onStored gets the outcome on a completion thread (never a writer shard) and
+    // returns what the poll still waits for, such as sends to the retry topics; the poll is
+    // acknowledged once that completes. If onStored throws or its future fails, the poll is not
+    // acknowledged and rewind seeks its partitions back so it is delivered again; rewind returns
+    // false if the partition is no longer assigned and nothing was sought.
+    public void submit(List<WeatherReading> readings, Map<TopicPartition, Long> firstOffsets,
+                       Acknowledgment acknowledgment,
+                       Function<WeatherShardedWriter.Result, CompletableFuture<?>> onStored,
+                       BiPredicate<TopicPartition, Long> rewind) {
+        long rows = readings.size();
+        Collection<TopicPartition> partitions = firstOffsets.keySet();
+        long startedAt = System.nanoTime();
+        depth.addAndGet(rows);
+        for (TopicPartition partition : partitions) {
+            inFlight.computeIfAbsent(partition, p -> new AtomicInteger()).incrementAndGet();
+        }
+
+        CompletableFuture<WeatherShardedWriter.Result> stored = weatherShardedWriter.submit(readings);
+        stored.whenComplete((result, error) -> {
+            lastBatchLatencyMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+            long remaining = depth.addAndGet(-rows);
+            for (TopicPartition partition : partitions) {
+                inFlight.computeIfPresent(partition, (p, count) -> count.decrementAndGet() == 0 ? null : count);
+            }
+            if (lastBatchLatencyMs > maxFlushLatencyMs) {
+                slowBatches.increment();
+                // Only worth holding the partitions back while there is still a backlog behind this batch
+                if (remaining > lowWaterRows) {
+                    pause("stored in " + lastBatchLatencyMs + " ms");
+                }
+            }
+            if (remaining <= lowWaterRows) {
+                resume();
+            }
+        });
+
+        Lane lane = lanes.get();
+        int generation;
+        boolean stale = false;
+        synchronized (lane) {
+            generation = lane.generation;
+            for (Map.Entry<TopicPartition, Long> entry : firstOffsets.entrySet()) {
+                Long rewoundTo = lane.rewound.get(entry.getKey());
+                if (rewoundTo == null) {
+                    continue;
+                }
+                if (entry.getValue() <= rewoundTo) {
+                    // The redelivery has arrived
+                    lane.rewound.remove(entry.getKey());
+                } else {
+                    // Fetched before the seek took effect
+                    stale = true;
+                }
+            }
+        }
+        boolean fetchedBeforeRewind = stale;
+        lane.tail = lane.tail.thenCompose(ignored -> stored).handleAsync((result, error) -> {
+            try {
+                return finish(lane, generation, fetchedBeforeRewind, result, error, firstOffsets, acknowledgment,
+                        onStored, rewind);
+            } catch (RuntimeException e) {
+                log.error("❌ Could not finish a batch of {} weather readings from {}", rows, partitions, e);
+                return CompletableFuture.<Void>completedFuture(null);
+            }
+        }, completions).thenCompose(Function.identity());
+
+        if (depth.get() > highWaterRows) {
+            pause(depth.get() + " readings buffered");
+        }
+    }
+
+    // Completes normally in any case, once the poll is acknowledged or sought back
+    private CompletableFuture<Void> finish(Lane lane, int generation, boolean stale,
+                                           WeatherShardedWriter.Result result, Throwable error, Map<TopicPartition, Long> firstOffsets,
+                                           Acknowledgment acknowledgment,
+                                           Function<WeatherShardedWriter.Result, CompletableFuture<?>> onStored,
+                                           BiPredicate<TopicPartition, Long> rewind) {
+        if (error == null && result.cancelled()) {
+            // Shutting down; not acknowledged, so delivered again after a restart
+            return CompletableFuture.completedFuture(null);
+        }
+        if (skipped(lane, generation, stale, firstOffsets, rewind)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<?> handedOff;
+        try {
+            if (error != null) {
+                throw new IllegalStateException("Storing the batch failed", error);
+            }
+            handedOff = onStored.apply(result);
+        } catch (RuntimeException e) {
+            handedOff = CompletableFuture.failedFuture(e);
+        }
+        return handedOff.handle((ignored, failure) -> {
+            if (failure == null && !skipped(lane, generation, stale, firstOffsets, rewind)) {
+                try {
+                    acknowledgment.acknowledge();
+                    return null;
+                } catch (RuntimeException e) {
+                    failure = e;
+                }
+            }
+            if (failure != null) {
+                log.error("❌ Could not finish a batch of weather readings from {}; seeking back to deliver it "
+                        + "again", firstOffsets, failure);
+                synchronized (lane) {
+                    lane.generation++;
+                    rewind(lane, firstOffsets, rewind);
+                }
+            }
+            return null;
+        });
+    }
+
+    // An earlier batch of this thread failed, the partitions were revoked since it was submitted,
+    // or it was fetched before one of its partitions was sought back
+    private static boolean skipped(Lane lane, int generation, boolean stale,
+                                   Map<TopicPartition, Long> firstOffsets, BiPredicate<TopicPartition, Long> rewind) {
+        synchronized (lane) {
+            if (generation == lane.generation && !stale) {
+                return false;
+            }
+            rewind(lane, firstOffsets, rewind);
+            return true;
+        }
+    }
+
+    // Called with the lane locked. A partition already sought back to an earlier offset is left there
+    private static void rewind(Lane lane, Map<TopicPartition, Long> firstOffsets,
+                               BiPredicate<TopicPartition, Long> rewind) {
+        for (Map.Entry<TopicPartition, Long> entry : firstOffsets.entrySet()) {
+            Long rewoundTo = lane.rewound.get(entry.getKey());
+            if (rewoundTo != null && rewoundTo <= entry.getValue()) {
+                continue;
+            }
+            if (rewind.test(entry.getKey(), entry.getValue())) {
+                lane.rewound.put(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    // Called on the listener thread that owned the partitions; they start from the committed offsets
+    // when assigned again
+    public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+        Lane lane = lanes.get();
+        synchronized (lane) {
+            lane.generation++;
+            lane.rewound.keySet().removeAll(partitions);
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        completions.shutdownNow();
+    }
+
+    private synchronized void pause(String reason) {
+        MessageListenerContainer container = container();
+        if (container == null) {
+            return;
+        }
+        List<TopicPartition> newlyPaused = new ArrayList<>();
+        for (TopicPartition partition : inFlight.keySet()) {
+            if (paused.add(partition)) {
+                container.pausePartition(partition);
+                newlyPaused.add(partition);
+            }
+        }
+        if (!newlyPaused.isEmpty()) {
+            pauses.increment();
+            log.warn("⏸️  Pausing {}, the database is not keeping up ({})", newlyPaused, reason);
+        }
+    }
+
+    private synchronized void resume() {
+        if (paused.isEmpty()) {
+            return;
+        }
+        MessageListenerContainer container = container();
+        if (container == null) {
+            return;
+        }
+        for (TopicPartition partition : paused) {
+            container.resumePartition(partition);
+        }
+        log.info("▶️  Resuming {} ({} readings buffered)", paused, depth.get());
+        paused.clear();
+    }
+
+    private MessageListenerContainer container() {
+        return kafkaListenerEndpointRegistry.getListenerContainer(LISTENER_ID);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("depth", depth.get());
+        stats.put("highWaterRows", highWaterRows);
+        stats.put("lowWaterRows", lowWaterRows);
+        stats.put("pausedPartitions", paused.stream().map(TopicPartition::toString).sorted().toList());
+        stats.put("pauses", pauses.sum());
+        stats.put("slowBatches", slowBatches.sum());
+        stats.put("lastBatchLatencyMs", lastBatchLatencyMs);
+        return stats;
+    }
+}
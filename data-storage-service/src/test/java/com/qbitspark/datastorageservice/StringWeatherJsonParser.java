@@ -0,0 +1,106 @@
+package com.qbitspark.datastorageservice;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+// The regex/String JSON parser the consumer used before WeatherJsonParser (formerly
+// WeatherDataEntity.fromKafkaMessage), kept only as the baseline of WeatherJsonParserBenchmark.
+final class StringWeatherJsonParser {
+
+    // Multiple date formatters to handle different timestamp formats
+    private static final DateTimeFormatter[] TIMESTAMP_FORMATTERS = {
+            DateTimeFormatter.ISO_LOCAL_DATE_TIME,
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSSSSSSS"),
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSSSS"),
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS"),
+            DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss")
+    };
+
+    private StringWeatherJsonParser() {
+    }
+
+    static WeatherReading parse(String jsonMessage) {
+        try {
+            LocalDateTime timestamp = null;
+            String city = null;
+            Double temperature = null;
+            Double humidity = null;
+            Double rainfall = null;
+            Double windSpeed = null;
+            Double pressure = null;
+
+            // Remove braces and split by commas, but be careful with commas in values
+            String content = jsonMessage.trim();
+            if (content.startsWith("{")) {
+                content = content.substring(1);
+            }
+            if (content.endsWith("}")) {
+                content = content.substring(0, content.length() - 1);
+            }
+
+            // Split by comma, respecting quoted strings
+            for (String pair : content.split(",(?=(?:[^\"]*\"[^\"]*\")*[^\"]*$)")) {
+                String[] keyValue = pair.split(":", 2);
+                if (keyValue.length == 2) {
+                    String key = keyValue[0].trim().replace("\"", "");
+                    String value = keyValue[1].trim();
+
+                    // Remove quotes from string values
+                    if (value.startsWith("\"") && value.endsWith("\"")) {
+                        value = value.substring(1, value.length() - 1);
+                    }
+
+                    switch (key) {
+                        case "timestamp" -> timestamp = parseTimestamp(value);
+                        case "city" -> city = value;
+                        case "temperature" -> temperature = parseDouble(value, "temperature");
+                        case "humidity" -> humidity = parseDouble(value, "humidity");
+                        case "rainfall" -> rainfall = parseDouble(value, "rainfall");
+                        case "windSpeed" -> windSpeed = parseDouble(value, "windSpeed");
+                        case "pressure" -> pressure = parseDouble(value, "pressure");
+                        default -> {
+                        }
+                    }
+                }
+            }
+
+            if (timestamp == null || city == null || city.isBlank() || temperature == null || humidity == null
+                    || rainfall == null || windSpeed == null || pressure == null) {
+                throw new IllegalArgumentException("Missing field in message: " + jsonMessage);
+            }
+            return new WeatherReading(timestamp, city, temperature, humidity, rainfall, windSpeed, pressure);
+
+        } catch (Exception e) {
+            throw new IllegalArgumentException("Error parsing Kafka message: " + jsonMessage + " - " + e.getMessage(), e);
+        }
+    }
+
+    private static LocalDateTime parseTimestamp(String timestampStr) {
+        if (timestampStr == null || timestampStr.trim().isEmpty()) {
+            throw new IllegalArgumentException("Timestamp cannot be null or empty");
+        }
+
+        // Try each formatter until one works
+        for (DateTimeFormatter formatter : TIMESTAMP_FORMATTERS) {
+            try {
+                return LocalDateTime.parse(timestampStr, formatter);
+            } catch (DateTimeParseException e) {
+                // Continue to next formatter
+            }
+        }
+
+        throw new IllegalArgumentException("Unable to parse timestamp: " + timestampStr);
+    }
+
+    private static Double parseDouble(String value, String fieldName) {
+        if (value == null || value.trim().isEmpty()) {
+            throw new IllegalArgumentException(fieldName + " cannot be null or empty");
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + fieldName + " value: " + value, e);
+        }
+    }
+}
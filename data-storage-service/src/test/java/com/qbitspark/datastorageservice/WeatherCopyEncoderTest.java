@@ -0,0 +1,72 @@
+package com.qbitspark.datastorageservice;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WeatherCopyEncoderTest {
+
+    private static final LocalDateTime CREATED_AT = LocalDateTime.of(2024, 5, 1, 12, 0, 0, 123_456_000);
+
+    private final List<WeatherReading> readings = List.of(
+            new WeatherReading(LocalDateTime.of(2000, 1, 1, 0, 0, 1), "Dar es Salaam", 24.5, 81.0, 0.25, 12.3, 1012.7),
+            new WeatherReading(LocalDateTime.of(2023, 7, 14, 6, 30), "Say \"hi\", Mbeya", 18.0, 60.0, 0.0, 5.0, 1015.0));
+
+    @Test
+    void binaryRowsFollowCopyLayout() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        AtomicLong ids = new AtomicLong(41);
+        WeatherCopyEncoder.writeBinary(readings, ids::incrementAndGet, CREATED_AT, out);
+
+        ByteBuffer buffer = ByteBuffer.wrap(out.toByteArray());
+        byte[] signature = new byte[11];
+        buffer.get(signature);
+        assertThat(signature).containsExactly('P', 'G', 'C', 'O', 'P', 'Y', '\n', 0xFF, '\r', '\n', 0);
+        assertThat(buffer.getInt()).isZero();
+        assertThat(buffer.getInt()).isZero();
+
+        // First row, field by field
+        assertThat(buffer.getShort()).isEqualTo((short) 10);
+        assertThat(buffer.getInt()).isEqualTo(8);
+        assertThat(buffer.getLong()).isEqualTo(42);
+        assertThat(buffer.getInt()).isEqualTo(8);
+        assertThat(buffer.getLong()).isEqualTo(1_000_000L);
+        byte[] city = new byte[buffer.getInt()];
+        buffer.get(city);
+        assertThat(new String(city, StandardCharsets.UTF_8)).isEqualTo("Dar es Salaam");
+        for (double expected : new double[]{24.5, 81.0, 0.25, 12.3, 1012.7}) {
+            assertThat(buffer.getInt()).isEqualTo(8);
+            assertThat(buffer.getDouble()).isEqualTo(expected);
+        }
+        assertThat(buffer.getInt()).isEqualTo(8);
+        assertThat(buffer.getLong()).isEqualTo(WeatherCopyEncoder.postgresMicros(CREATED_AT));
+        assertThat(buffer.getInt()).isEqualTo(1);
+        assertThat(buffer.get()).isZero();
+
+        // Second row: skip to the trailer
+        assertThat(buffer.getShort()).isEqualTo((short) 10);
+        assertThat(buffer.getInt()).isEqualTo(8);
+        assertThat(buffer.getLong()).isEqualTo(43);
+        buffer.position(out.size() - 2);
+        assertThat(buffer.getShort()).isEqualTo((short) -1);
+    }
+
+    @Test
+    void csvQuotesCityAndKeepsColumnOrder() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        AtomicLong ids = new AtomicLong(6);
+        WeatherCopyEncoder.writeCsv(readings, ids::incrementAndGet, CREATED_AT, out);
+
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo(
+                "7,2000-01-01T00:00:01,\"Dar es Salaam\",24.5,81.0,0.25,12.3,1012.7,2024-05-01T12:00:00.123456,f\n"
+                        + "8,2023-07-14T06:30,\"Say \"\"hi\"\", Mbeya\",18.0,60.0,0.0,5.0,1015.0,2024-05-01T12:00:00.123456,f\n");
+    }
+}
@@ -0,0 +1,129 @@
+package com.qbitspark.datastorageservice;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+// Rows/sec of the storage write paths for one poll-sized batch, each in its own transaction as
+// the writer shards do it. Batches go through WeatherDataWriter.write, so the rollup upsert is
+// included; mode sets app.storage.write-mode and copy-format. Every invocation writes new
+// (city, timestamp) keys, except replay, which inserts the same batch again and measures how cheap
+// a redelivered batch is. jpa is the baseline the service used before: saveAll of
+// WeatherDataEntity objects in one transaction, Hibernate batching at the poll size and no rollups.
+// Needs a running PostgreSQL; point it at a scratch database with -Dspring.datasource.url=...
+// when running main() with the test classpath. Rows are written under a throwaway city name and
+// deleted afterwards, together with its rollups.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(WeatherDataWriteBenchmark.BATCH_ROWS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WeatherDataWriteBenchmark {
+
+    static final int BATCH_ROWS = 500;
+
+    @Param({"jpa", "insert", "copy-binary", "copy-csv", "replay"})
+    public String mode;
+
+    private ConfigurableApplicationContext context;
+    private WeatherDataWriter writer;
+    private WeatherDataRepository repository;
+    private WeatherDataPartitions partitions;
+    private TransactionTemplate transactionTemplate;
+    private JdbcTemplate jdbcTemplate;
+    private String city;
+    private long invocations;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(DataStorageServiceApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("spring.kafka.listener.auto-startup=false",
+                        "app.storage.write-mode=" + (mode.startsWith("copy")
+                                ? WeatherDataWriter.MODE_COPY : WeatherDataWriter.MODE_INSERT),
+                        "app.storage.copy-format=" + ("copy-csv".equals(mode)
+                                ? WeatherDataWriter.COPY_CSV : WeatherDataWriter.COPY_BINARY),
+                        "spring.jpa.properties.hibernate.jdbc.batch_size=" + BATCH_ROWS)
+                .run();
+        writer = context.getBean(WeatherDataWriter.class);
+        repository = context.getBean(WeatherDataRepository.class);
+        partitions = context.getBean(WeatherDataPartitions.class);
+        transactionTemplate = context.getBean(TransactionTemplate.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+        city = "bench-" + UUID.randomUUID().toString().substring(0, 8);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        jdbcTemplate.update("DELETE FROM weather_data WHERE city = ?", city);
+        jdbcTemplate.update("DELETE FROM " + WeatherRollups.HOURLY_TABLE + " WHERE city = ?", city);
+        jdbcTemplate.update("DELETE FROM " + WeatherRollups.DAILY_TABLE + " WHERE city = ?", city);
+        context.close();
+    }
+
+    @Benchmark
+    public Integer writeBatch() {
+        List<WeatherReading> batch = batch("replay".equals(mode) ? 0 : invocations++);
+        partitions.ensureFor(batch);
+        if ("jpa".equals(mode)) {
+            return transactionTemplate.execute(status -> repository.saveAll(entities(batch)).size());
+        }
+        return transactionTemplate.execute(status -> writer.write(batch));
+    }
+
+    private static List<WeatherDataEntity> entities(List<WeatherReading> batch) {
+        LocalDateTime createdAt = LocalDateTime.now();
+        List<WeatherDataEntity> entities = new ArrayList<>(batch.size());
+        for (WeatherReading reading : batch) {
+            entities.add(new WeatherDataEntity(null, reading.timestamp(), reading.city(),
+                    reading.temperature(), reading.humidity(), reading.rainfall(), reading.windSpeed(),
+                    reading.pressure(), createdAt, false));
+        }
+        return entities;
+    }
+
+    // One reading per second, continuing where the previous batch ended
+    private List<WeatherReading> batch(long number) {
+        LocalDateTime start = LocalDateTime.of(2023, 1, 1, 0, 0).plusSeconds(number * BATCH_ROWS);
+        List<WeatherReading> batch = new ArrayList<>(BATCH_ROWS);
+        for (int i = 0; i < BATCH_ROWS; i++) {
+            batch.add(new WeatherReading(start.plusSeconds(i), city,
+                    20 + i % 15 / 10.0, 60 + i % 30, i % 7 / 4.0, 10 + i % 20 / 10.0, 1000 + i % 25));
+        }
+        return batch;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(WeatherDataWriteBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,60 @@
+package com.qbitspark.datastorageservice;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+// The regex/String JSON parser the consumer used (now StringWeatherJsonParser) against the
+// single-pass byte parser behind WeatherReadingsDeserializer, on the same message bytes.
+// Run main() with the test classpath; add -prof gc to compare allocation per message.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WeatherJsonParserBenchmark {
+
+    // LocalDateTime.toString() drops zero seconds and nanos, so both shapes occur on the topic
+    @Param({"2023-07-14T06:30", "2023-07-14T06:30:15.123456789"})
+    public String timestamp;
+
+    private byte[] json;
+
+    @Setup
+    public void setUp() {
+        json = ("{\"timestamp\":\"" + timestamp + "\",\"city\":\"Dar es Salaam\",\"temperature\":24.5,"
+                + "\"humidity\":81.0,\"rainfall\":0.25,\"windSpeed\":12.3,\"pressure\":1012.7}")
+                .getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public WeatherReading stringParser() {
+        return StringWeatherJsonParser.parse(new String(json, StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public WeatherReading singlePassParser() {
+        return WeatherJsonParser.parse(json);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(WeatherJsonParserBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
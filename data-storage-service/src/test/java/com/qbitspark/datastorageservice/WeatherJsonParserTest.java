@@ -0,0 +1,97 @@
+package com.qbitspark.datastorageservice;
+
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.support.serializer.ErrorHandlingDeserializer;
+import org.springframework.kafka.support.serializer.SerializationUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class WeatherJsonParserTest {
+
+    @Test
+    void parsesTheShapesFoundOnTheTopic() {
+        Map<String, WeatherReading> messages = Map.of(
+                "{\"timestamp\":\"2023-07-14T06:30\",\"city\":\"Dar es Salaam\",\"temperature\":24.5,"
+                        + "\"humidity\":81.0,\"rainfall\":0.25,\"windSpeed\":12.3,\"pressure\":1012.7}",
+                new WeatherReading(LocalDateTime.of(2023, 7, 14, 6, 30), "Dar es Salaam", 24.5, 81.0, 0.25, 12.3, 1012.7),
+                " { \"city\" : \"Mbeya\", \"timestamp\" : \"2024-02-29T23:59:58.123456789\", \"temperature\" : -3.75,"
+                        + " \"humidity\" : \"60\", \"rainfall\" : 0, \"windSpeed\" : 1e1, \"pressure\" : 1015.123456789012345 } ",
+                new WeatherReading(LocalDateTime.of(2024, 2, 29, 23, 59, 58, 123_456_789), "Mbeya",
+                        -3.75, 60.0, 0.0, 10.0, 1015.123456789012345),
+                "{\"timestamp\":\"2000-01-01T00:00:01.5\",\"city\":\"Arusha\",\"temperature\":0.1,\"humidity\":0.3,"
+                        + "\"rainfall\":0.0000000000000000000000001,\"windSpeed\":12345678901234567890,\"pressure\":-0.0}",
+                new WeatherReading(LocalDateTime.of(2000, 1, 1, 0, 0, 1, 500_000_000), "Arusha",
+                        0.1, 0.3, 1e-25, 12345678901234567890.0, -0.0));
+
+        messages.forEach((message, expected) -> {
+            assertThat(WeatherJsonParser.parse(message.getBytes(StandardCharsets.UTF_8))).as(message).isEqualTo(expected);
+            assertThat(StringWeatherJsonParser.parse(message)).as(message).isEqualTo(expected);
+        });
+    }
+
+    @Test
+    void decodesEscapesAndSkipsUnknownFields() {
+        String message = "{\"source\":{\"station\":[1,\"}\",{\"a\":null}]},\"timestamp\":\"2023-07-14T06:30:15\","
+                + "\"city\":\"Say \\\"hi\\\", Z\\u00fcrich \\ud83c\\udf27 Mwánza\",\"temperature\":24.5,\"humidity\":81,"
+                + "\"rainfall\":0.25,\"windSpeed\":12.3,\"pressure\":1012.7,\"ok\":true}";
+
+        WeatherReading reading = WeatherJsonParser.parse(message.getBytes(StandardCharsets.UTF_8));
+
+        assertThat(reading.city()).isEqualTo("Say \"hi\", Zürich 🌧 Mwánza");
+        assertThat(reading.timestamp()).isEqualTo(LocalDateTime.of(2023, 7, 14, 6, 30, 15));
+        assertThat(reading.humidity()).isEqualTo(81.0);
+    }
+
+    @Test
+    void readsBackRetryRecords() {
+        WeatherReading reading = new WeatherReading(LocalDateTime.of(2023, 7, 14, 6, 30, 0, 5_000),
+                "Say \"hi\"\\\n Mbeya", -0.1, 1.0E10, 0.25, 12.3, 1012.7);
+
+        assertThat(WeatherJsonParser.parse(WeatherRecordCodec.encodeJson(reading))).isEqualTo(reading);
+    }
+
+    @Test
+    void rejectsMalformedRecords() {
+        List<String> messages = List.of(
+                "",
+                "{\"timestamp\":\"2023-07-14T06:30\",\"city\":\"Mbeya\"}",
+                "{\"timestamp\":\"2023-02-30T06:30\",\"city\":\"Mbeya\",\"temperature\":1,\"humidity\":1,"
+                        + "\"rainfall\":1,\"windSpeed\":1,\"pressure\":1}",
+                "{\"timestamp\":\"2023-07-14 06:30\",\"city\":\"Mbeya\",\"temperature\":1,\"humidity\":1,"
+                        + "\"rainfall\":1,\"windSpeed\":1,\"pressure\":1}",
+                "{\"timestamp\":\"2023-07-14T06:30\",\"city\":\"Mbeya\",\"temperature\":abc,\"humidity\":1,"
+                        + "\"rainfall\":1,\"windSpeed\":1,\"pressure\":1}",
+                "{\"timestamp\":\"2023-07-14T06:30\",\"city\":\"Mbeya\",\"temperature\":1,\"humidity\":1,"
+                        + "\"rainfall\":1,\"windSpeed\":1,\"pressure\":1",
+                "{\"timestamp\":\"2023-07-14T06:30\",\"city\":\"Mbeya\",\"temperature\":1,\"humidity\":1,"
+                        + "\"rainfall\":1,\"windSpeed\":1,\"pressure\":1}x");
+
+        for (String message : messages) {
+            assertThatThrownBy(() -> WeatherJsonParser.parse(message.getBytes(StandardCharsets.UTF_8)))
+                    .as(message)
+                    .isInstanceOf(RuntimeException.class);
+        }
+    }
+
+    @Test
+    void poisonMessagesAreReportedInAHeader() {
+        try (ErrorHandlingDeserializer<List<WeatherReading>> deserializer =
+                     new ErrorHandlingDeserializer<>(new WeatherReadingsDeserializer())) {
+            deserializer.configure(Map.of(), false);
+
+            RecordHeaders headers = new RecordHeaders();
+            List<WeatherReading> readings = deserializer.deserialize("weather-data", headers,
+                    "{\"city\":\"Mbeya\"".getBytes(StandardCharsets.UTF_8));
+
+            assertThat(readings).isNull();
+            assertThat(headers.lastHeader(SerializationUtils.VALUE_DESERIALIZER_EXCEPTION_HEADER)).isNotNull();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.qbitspark.datastorageservice;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// JSON vs binary decoding cost on the consumer side; run main() with the test classpath
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WeatherRecordCodecBenchmark {
+
+    private final byte[] json = ("{\"timestamp\":\"2023-07-14T06:30\",\"city\":\"Dar es Salaam\",\"temperature\":24.5,"
+            + "\"humidity\":81.0,\"rainfall\":0.25,\"windSpeed\":12.3,\"pressure\":1012.7}").getBytes(StandardCharsets.UTF_8);
+
+    private final byte[] binary = binaryMessage();
+
+    @Benchmark
+    public List<WeatherReading> decodeJson() {
+        return WeatherRecordCodec.decodeReadings(json, WeatherRecordCodec.FORMAT_JSON);
+    }
+
+    @Benchmark
+    public List<WeatherReading> decodeBinary() {
+        return WeatherRecordCodec.decodeReadings(binary, WeatherRecordCodec.FORMAT_BINARY);
+    }
+
+    private static byte[] binaryMessage() {
+        byte[] city = "Dar es Salaam".getBytes(StandardCharsets.UTF_8);
+        return ByteBuffer.allocate(31 + city.length)
+                .put(WeatherRecordCodec.VERSION)
+                .putLong(LocalDateTime.of(2023, 7, 14, 6, 30).toInstant(ZoneOffset.UTC).toEpochMilli())
+                .putShort((short) city.length)
+                .put(city)
+                .putInt(245).putInt(810).putInt(25).putInt(123).putInt(10127)
+                .array();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(WeatherRecordCodecBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,49 @@
+package com.qbitspark.datastorageservice;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class WeatherRecordCodecTest {
+
+    // One Mbeya reading at 2023-07-14T06:30Z in wr-batch-v1, with the count given
+    private static byte[] envelope(int count) {
+        byte[] city = "Mbeya".getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(64);
+        buffer.put(WeatherRecordCodec.VERSION);
+        buffer.putShort((short) city.length);
+        buffer.put(city);
+        buffer.putInt(count);
+        long zigZag = 1689316200000L << 1;
+        while ((zigZag & ~0x7FL) != 0) {
+            buffer.put((byte) ((zigZag & 0x7F) | 0x80));
+            zigZag >>>= 7;
+        }
+        buffer.put((byte) zigZag);
+        buffer.putInt(215).putInt(600).putInt(0).putInt(120).putInt(10120);
+        return Arrays.copyOf(buffer.array(), buffer.position());
+    }
+
+    @Test
+    void decodesAnEnvelope() {
+        assertThat(WeatherRecordCodec.decodeEnvelope(envelope(1))).containsExactly(
+                new WeatherReading(LocalDateTime.of(2023, 7, 14, 6, 30), "Mbeya", 21.5, 60.0, 0.0, 12.0, 1012.0));
+    }
+
+    @Test
+    void rejectsACountTheMessageCannotHold() {
+        assertThatThrownBy(() -> WeatherRecordCodec.decodeEnvelope(envelope(Integer.MAX_VALUE)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("record count");
+        assertThatThrownBy(() -> WeatherRecordCodec.decodeEnvelope(envelope(-1)))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> WeatherRecordCodec.decodeEnvelope(envelope(2)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
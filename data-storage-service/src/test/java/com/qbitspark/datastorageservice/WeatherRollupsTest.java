@@ -0,0 +1,56 @@
+package com.qbitspark.datastorageservice;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class WeatherRollupsTest {
+
+    private final List<WeatherReading> readings = List.of(
+            new WeatherReading(LocalDateTime.of(2023, 7, 14, 6, 30), "Mbeya", 31.0, 60.0, 0.0, 21.0, 1012.0),
+            new WeatherReading(LocalDateTime.of(2023, 7, 14, 6, 10), "Mbeya", 19.0, 80.0, 12.0, 5.0, 1014.0),
+            new WeatherReading(LocalDateTime.of(2023, 7, 14, 7, 0), "Mbeya", 22.0, 70.0, 0.5, 10.0, 1013.0),
+            new WeatherReading(LocalDateTime.of(2023, 7, 14, 6, 45), "Arusha", 36.0, 40.0, 0.05, 3.0, 1010.0));
+
+    @Test
+    void hourlyBucketsAreSortedByCityAndHour() {
+        List<WeatherRollups.Bucket> buckets = WeatherRollups.aggregate(readings, ChronoUnit.HOURS);
+
+        assertThat(buckets).extracting(bucket -> bucket.city + " " + bucket.start).containsExactly(
+                "Arusha 2023-07-14T06:00", "Mbeya 2023-07-14T06:00", "Mbeya 2023-07-14T07:00");
+        assertThat(buckets).extracting(bucket -> bucket.readings).containsExactly(1L, 2L, 1L);
+    }
+
+    @Test
+    void bucketsHoldSumsExtremesAndCounters() {
+        List<WeatherRollups.Bucket> buckets = WeatherRollups.aggregate(readings, ChronoUnit.DAYS);
+        assertThat(buckets).hasSize(2);
+
+        WeatherRollups.Bucket mbeya = buckets.get(1);
+        assertThat(mbeya.city).isEqualTo("Mbeya");
+        assertThat(mbeya.start).isEqualTo(LocalDateTime.of(2023, 7, 14, 0, 0));
+        assertThat(mbeya.readings).isEqualTo(3);
+        // temperature
+        assertThat(mbeya.sum[0]).isEqualTo(72.0);
+        assertThat(mbeya.sumOfSquares[0]).isEqualTo(31.0 * 31.0 + 19.0 * 19.0 + 22.0 * 22.0);
+        assertThat(mbeya.min[0]).isEqualTo(19.0);
+        assertThat(mbeya.max[0]).isEqualTo(31.0);
+        // rainfall
+        assertThat(mbeya.sum[2]).isCloseTo(12.5, within(1e-9));
+        assertThat(mbeya.min[2]).isEqualTo(0.0);
+        // hot, rainy, windy, extreme
+        assertThat(mbeya.counters).containsExactly(1, 2, 1, 1);
+        assertThat(mbeya.firstReading).isEqualTo(LocalDateTime.of(2023, 7, 14, 6, 10));
+        assertThat(mbeya.lastReading).isEqualTo(LocalDateTime.of(2023, 7, 14, 7, 0));
+
+        WeatherRollups.Bucket arusha = buckets.get(0);
+        assertThat(arusha.counters).containsExactly(1, 0, 0, 1);
+        assertThat(arusha.min[4]).isEqualTo(1010.0);
+        assertThat(arusha.max[4]).isEqualTo(1010.0);
+    }
+}
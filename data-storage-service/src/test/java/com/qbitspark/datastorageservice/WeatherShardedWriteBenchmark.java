@@ -0,0 +1,107 @@
+package com.qbitspark.datastorageservice;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Rows/sec through WeatherShardedWriter for poll-sized batches spread over many cities. The JMH
+// threads play the listener threads (listener-concurrency); shards is the writer pool. The
+// connection pool is sized to match: one per shard, plus partition DDL, spool drainer and counts.
+// Compare shards=1 with more shards, and rerun with -t to see how it scales with listener threads,
+// e.g. for 1, 2, 4 and 8 cores.
+// Needs a running PostgreSQL; point it at a scratch database with -Dspring.datasource.url=...
+// when running main() with the test classpath. Rows are written under throwaway city names and
+// deleted afterwards, together with their rollups.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@OperationsPerInvocation(WeatherShardedWriteBenchmark.BATCH_ROWS)
+@Threads(4)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WeatherShardedWriteBenchmark {
+
+    static final int BATCH_ROWS = 500;
+    static final int CITIES = 32;
+
+    @Param({"1", "2", "4", "8"})
+    public int shards;
+
+    private ConfigurableApplicationContext context;
+    private WeatherShardedWriter writer;
+    private JdbcTemplate jdbcTemplate;
+    private String cityPrefix;
+    private final AtomicLong batches = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(DataStorageServiceApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties("spring.kafka.listener.auto-startup=false",
+                        "app.storage.writer.shards=" + shards,
+                        "spring.datasource.hikari.maximum-pool-size=" + (shards + 3))
+                .run();
+        writer = context.getBean(WeatherShardedWriter.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+        cityPrefix = "bench-" + UUID.randomUUID().toString().substring(0, 8) + "-";
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        jdbcTemplate.update("DELETE FROM weather_data WHERE city LIKE ?", cityPrefix + "%");
+        jdbcTemplate.update("DELETE FROM " + WeatherRollups.HOURLY_TABLE + " WHERE city LIKE ?", cityPrefix + "%");
+        jdbcTemplate.update("DELETE FROM " + WeatherRollups.DAILY_TABLE + " WHERE city LIKE ?", cityPrefix + "%");
+        context.close();
+    }
+
+    @Benchmark
+    public int writeBatch() {
+        return writer.write(batch(batches.getAndIncrement()));
+    }
+
+    // Each batch covers all cities, one reading per city and second, continuing where the previous batch ended
+    private List<WeatherReading> batch(long number) {
+        long perCity = BATCH_ROWS / CITIES + 1;
+        LocalDateTime start = LocalDateTime.of(2023, 1, 1, 0, 0).plusSeconds(number * perCity);
+        List<WeatherReading> batch = new ArrayList<>(BATCH_ROWS);
+        for (int i = 0; i < BATCH_ROWS; i++) {
+            batch.add(new WeatherReading(start.plusSeconds(i / CITIES), cityPrefix + i % CITIES,
+                    20 + i % 15 / 10.0, 60 + i % 30, i % 7 / 4.0, 10 + i % 20 / 10.0, 1000 + i % 25));
+        }
+        return batch;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(WeatherShardedWriteBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,147 @@
+package com.qbitspark.datastorageservice;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WeatherSpoolLogTest {
+
+    @TempDir
+    Path directory;
+
+    private static List<WeatherReading> readings(int from, int count) {
+        List<WeatherReading> readings = new ArrayList<>(count);
+        for (int i = from; i < from + count; i++) {
+            readings.add(new WeatherReading(LocalDateTime.of(2023, 7, 14, 6, 30).plusSeconds(i).withNano(i * 1000),
+                    i % 2 == 0 ? "Dar es Salaam" : "Mbeya", 20 + i * 0.1, 60.5, i * 0.01, 12.3, 1012.7));
+        }
+        return readings;
+    }
+
+    @Test
+    void readsBackWhatWasAppendedInOrder() throws IOException {
+        WeatherSpoolLog log = new WeatherSpoolLog(directory, 1 << 16);
+        log.append(readings(0, 3));
+        log.append(readings(3, 2));
+        assertThat(log.getPendingReadings()).isEqualTo(5);
+
+        WeatherSpoolLog.Chunk chunk = log.read(10);
+        assertThat(chunk.readings()).isEqualTo(readings(0, 5));
+        // Nothing moves until the chunk is released
+        assertThat(log.read(10).readings()).isEqualTo(readings(0, 5));
+
+        log.release(chunk);
+        assertThat(log.getPendingReadings()).isZero();
+        assertThat(log.read(10)).isNull();
+    }
+
+    @Test
+    void readsWholeEntriesUpToTheLimit() throws IOException {
+        WeatherSpoolLog log = new WeatherSpoolLog(directory, 1 << 16);
+        log.append(readings(0, 3));
+        log.append(readings(3, 3));
+        log.append(readings(6, 3));
+
+        WeatherSpoolLog.Chunk first = log.read(4);
+        assertThat(first.readings()).isEqualTo(readings(0, 6));
+        log.release(first);
+        assertThat(log.read(4).readings()).isEqualTo(readings(6, 3));
+    }
+
+    @Test
+    void rollsOverSegmentsAndDeletesDrainedOnes() throws IOException {
+        // Room for about two entries of 20 readings per segment
+        WeatherSpoolLog log = new WeatherSpoolLog(directory, 3000);
+        for (int i = 0; i < 5; i++) {
+            log.append(readings(i * 20, 20));
+        }
+        assertThat(log.getSegmentCount()).isGreaterThan(1);
+        int segments = log.getSegmentCount();
+
+        List<WeatherReading> drained = new ArrayList<>();
+        WeatherSpoolLog.Chunk chunk;
+        while ((chunk = log.read(1000)) != null) {
+            drained.addAll(chunk.readings());
+            log.release(chunk);
+        }
+        assertThat(drained).isEqualTo(readings(0, 100));
+        assertThat(log.getSegmentCount()).isEqualTo(1);
+        assertThat(segmentFiles()).hasSize(1);
+        assertThat(segments).isGreaterThan(log.getSegmentCount());
+
+        log.close();
+        assertThat(segmentFiles()).isEmpty();
+    }
+
+    @Test
+    void recoversPendingEntriesAfterRestart() throws IOException {
+        WeatherSpoolLog log = new WeatherSpoolLog(directory, 1 << 16);
+        log.append(readings(0, 4));
+        log.append(readings(4, 4));
+        log.release(log.read(4));
+        // Simulated crash: the log is not closed
+
+        WeatherSpoolLog reopened = new WeatherSpoolLog(directory, 1 << 16);
+        // The released entry was recorded in the segment header and is not read again
+        assertThat(reopened.getPendingReadings()).isEqualTo(4);
+        reopened.append(readings(8, 2));
+        assertThat(reopened.getSegmentCount()).isEqualTo(2);
+
+        List<WeatherReading> drained = new ArrayList<>();
+        WeatherSpoolLog.Chunk chunk;
+        while ((chunk = reopened.read(1000)) != null) {
+            drained.addAll(chunk.readings());
+            reopened.release(chunk);
+        }
+        assertThat(drained).isEqualTo(readings(4, 6));
+    }
+
+    @Test
+    void deletesFullyReleasedSegmentsOnRecovery() throws IOException {
+        WeatherSpoolLog log = new WeatherSpoolLog(directory, 1 << 16);
+        log.append(readings(0, 4));
+        log.release(log.read(10));
+        // Simulated crash: the segment is still there, but everything in it was handed on
+
+        WeatherSpoolLog reopened = new WeatherSpoolLog(directory, 1 << 16);
+        assertThat(reopened.getPendingReadings()).isZero();
+        assertThat(reopened.read(10)).isNull();
+        assertThat(segmentFiles()).isEmpty();
+    }
+
+    @Test
+    void dropsATornEntryOnRecovery() throws IOException {
+        WeatherSpoolLog log = new WeatherSpoolLog(directory, 1 << 16);
+        log.append(readings(0, 2));
+        log.append(readings(2, 2));
+        int secondEntry = log.read(2).end();
+
+        // Corrupt one payload byte of the second entry
+        Path segment = segmentFiles().get(0);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0x7f}), secondEntry + 20);
+        }
+
+        WeatherSpoolLog reopened = new WeatherSpoolLog(directory, 1 << 16);
+        assertThat(reopened.getPendingReadings()).isEqualTo(2);
+        assertThat(reopened.read(100).readings()).isEqualTo(readings(0, 2));
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(".spool")).sorted().toList();
+        }
+    }
+}
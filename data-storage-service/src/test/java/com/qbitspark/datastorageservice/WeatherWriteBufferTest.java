@@ -0,0 +1,149 @@
+package com.qbitspark.datastorageservice;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.kafka.config.KafkaListenerEndpointRegistry;
+import org.springframework.kafka.support.Acknowledgment;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class WeatherWriteBufferTest {
+
+    private static final TopicPartition P0 = new TopicPartition("weather-data", 0);
+    private static final TopicPartition P1 = new TopicPartition("weather-data", 1);
+
+    private final WeatherShardedWriter writer = mock(WeatherShardedWriter.class);
+    private final List<CompletableFuture<WeatherShardedWriter.Result>> submitted = new ArrayList<>();
+    private final List<String> rewinds = new CopyOnWriteArrayList<>();
+    private WeatherWriteBuffer buffer;
+
+    @BeforeEach
+    void setUp() {
+        when(writer.submit(anyList())).thenAnswer(invocation -> {
+            CompletableFuture<WeatherShardedWriter.Result> stored = new CompletableFuture<>();
+            submitted.add(stored);
+            return stored;
+        });
+        buffer = new WeatherWriteBuffer(writer, mock(KafkaListenerEndpointRegistry.class), new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(buffer, "highWaterRows", 20000L);
+        ReflectionTestUtils.setField(buffer, "lowWaterRows", 5000L);
+        ReflectionTestUtils.setField(buffer, "maxFlushLatencyMs", 5000L);
+        buffer.init();
+    }
+
+    @AfterEach
+    void tearDown() {
+        buffer.stop();
+    }
+
+    private static List<WeatherReading> readings() {
+        return List.of(new WeatherReading(LocalDateTime.of(2023, 7, 14, 6, 30), "Mbeya", 21.5, 60, 0, 12, 1012));
+    }
+
+    private Acknowledgment submit(Map<TopicPartition, Long> firstOffsets, boolean failing) {
+        Acknowledgment acknowledgment = mock(Acknowledgment.class);
+        buffer.submit(readings(), firstOffsets, acknowledgment, result -> failing
+                ? CompletableFuture.failedFuture(new IllegalStateException("hand-off failed"))
+                : CompletableFuture.completedFuture(null), (partition, offset) -> rewinds.add(partition + "@" + offset));
+        return acknowledgment;
+    }
+
+    private void store(int batch) {
+        submitted.get(batch).complete(new WeatherShardedWriter.Result(1, 0, List.of(), null, false));
+    }
+
+    private void awaitRewinds(int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (rewinds.size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(rewinds).hasSize(count);
+    }
+
+    @Test
+    void seeksBackAFailedBatchAndKeepsAcknowledgingLaterOnes() throws InterruptedException {
+        Acknowledgment failed = submit(Map.of(P0, 100L), true);
+        // Already in the buffer behind the failed batch; delivered again as well
+        Acknowledgment behind = submit(Map.of(P0, 150L, P1, 40L), false);
+        store(0);
+        store(1);
+        awaitRewinds(2);
+
+        // The redelivered poll and everything after it are acknowledged again
+        Acknowledgment redelivered = submit(Map.of(P0, 100L, P1, 40L), false);
+        Acknowledgment next = submit(Map.of(P0, 200L), false);
+        store(2);
+        store(3);
+        verify(redelivered, timeout(5000)).acknowledge();
+        verify(next, timeout(5000)).acknowledge();
+
+        // Callbacks of one listener thread run in order, so the earlier ones are done by now
+        verify(failed, never()).acknowledge();
+        verify(behind, never()).acknowledge();
+        assertThat(rewinds).containsExactlyInAnyOrder("weather-data-0@100", "weather-data-1@40");
+    }
+
+    @Test
+    void doesNotAcknowledgeAPollFetchedBeforeTheSeekBack() throws InterruptedException {
+        Acknowledgment failed = submit(Map.of(P0, 100L), true);
+        store(0);
+        awaitRewinds(1);
+
+        // Fetched before the seek took effect but submitted after the failure; acknowledging it
+        // would commit past the readings about to be delivered again
+        Acknowledgment prefetched = submit(Map.of(P0, 150L), false);
+        store(1);
+
+        Acknowledgment redelivered = submit(Map.of(P0, 100L), false);
+        Acknowledgment next = submit(Map.of(P0, 150L), false);
+        store(2);
+        store(3);
+        verify(redelivered, timeout(5000)).acknowledge();
+        verify(next, timeout(5000)).acknowledge();
+
+        verify(failed, never()).acknowledge();
+        verify(prefetched, never()).acknowledge();
+        assertThat(rewinds).containsExactly("weather-data-0@100");
+    }
+
+    @Test
+    void doesNotAcknowledgeBatchesOfRevokedPartitions() {
+        Acknowledgment before = submit(Map.of(P0, 100L), false);
+        buffer.onPartitionsRevoked(List.of(P0));
+        Acknowledgment after = submit(Map.of(P0, 100L), false);
+        store(0);
+        store(1);
+
+        verify(after, timeout(5000)).acknowledge();
+        verify(before, never()).acknowledge();
+    }
+
+    @Test
+    void leavesCancelledBatchesUnacknowledged() {
+        Acknowledgment cancelled = submit(Map.of(P0, 100L), false);
+        submitted.get(0).complete(new WeatherShardedWriter.Result(0, 0, List.of(), null, true));
+        Acknowledgment next = submit(Map.of(P0, 101L), false);
+        store(1);
+
+        verify(next, timeout(5000)).acknowledge();
+        verify(cancelled, never()).acknowledge();
+        assertThat(rewinds).isEmpty();
+    }
+}